@@ -0,0 +1,108 @@
+package org.fusesource.lmdbjni;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.fusesource.lmdbjni.Constants.CREATE;
+
+/**
+ * Random lookups in databases ordered by the default memcmp ordering, a
+ * byte array comparator, a zero copy comparator and a native comparator.
+ */
+@Measurement(iterations = 5)
+@Warmup(iterations = 10)
+@Fork(value = 2)
+public class Comparators {
+  static final int SIZE = 100000;
+  static Env env;
+  static Database memcmp;
+  static Database byteArray;
+  static Database direct;
+  static Database nativeLong;
+
+  static {
+    File dir = new File("/tmp/lmdb-comparators");
+    Setup.setLmdbLibraryPath();
+    Setup.recreateDir(dir);
+    env = new Env();
+    env.setMapSize(1_073_741_824L);
+    env.setMaxDbs(4);
+    env.open(dir.getAbsolutePath());
+
+    Transaction tx = env.createWriteTransaction();
+    memcmp = env.openDatabase(tx, "memcmp", CREATE);
+    byteArray = env.openDatabase(tx, "byteArray", CREATE);
+    byteArray.setComparator(tx, new Comparator<byte[]>() {
+      @Override
+      public int compare(byte[] o1, byte[] o2) {
+        return Long.compare(Bytes.getLong(o1), Bytes.getLong(o2));
+      }
+    });
+    direct = env.openDatabase(tx, "direct", CREATE);
+    direct.setDirectComparator(tx, new Comparator<DirectBuffer>() {
+      @Override
+      public int compare(DirectBuffer o1, DirectBuffer o2) {
+        return Long.compare(o1.getLong(0, ByteOrder.BIG_ENDIAN), o2.getLong(0, ByteOrder.BIG_ENDIAN));
+      }
+    });
+    nativeLong = env.openDatabase(tx, "nativeLong", CREATE);
+    nativeLong.setComparator(tx, NativeComparator.LONG);
+    for (int i = 0; i < SIZE; i++) {
+      byte[] key = Bytes.fromLong(i);
+      memcmp.put(tx, key, key);
+      byteArray.put(tx, key, key);
+      direct.put(tx, key, key);
+      nativeLong.put(tx, key, key);
+    }
+    tx.commit();
+  }
+
+  @State(Scope.Thread)
+  public static class Lookup {
+    Transaction tx;
+    Random random = new Random(0);
+    DirectBuffer key = new DirectBuffer(ByteBuffer.allocateDirect(8));
+    DirectBuffer value = new DirectBuffer(0, 0);
+
+    @org.openjdk.jmh.annotations.Setup
+    public void open() {
+      tx = env.createReadTransaction();
+    }
+
+    @TearDown
+    public void close() {
+      tx.abort();
+    }
+
+    int get(Database db) {
+      key.putLong(0, random.nextInt(SIZE), ByteOrder.BIG_ENDIAN);
+      db.get(tx, key, value);
+      return value.getInt(0);
+    }
+  }
+
+  @Benchmark
+  public int lmdb_memcmp(Lookup lookup) {
+    return lookup.get(memcmp);
+  }
+
+  @Benchmark
+  public int lmdb_byte_array_comparator(Lookup lookup) {
+    return lookup.get(byteArray);
+  }
+
+  @Benchmark
+  public int lmdb_direct_comparator(Lookup lookup) {
+    return lookup.get(direct);
+  }
+
+  @Benchmark
+  public int lmdb_native_comparator(Lookup lookup) {
+    return lookup.get(nativeLong);
+  }
+}
@@ -0,0 +1,223 @@
+package org.fusesource.lmdbjni;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+import static org.fusesource.lmdbjni.Util.checkErrorCode;
+
+/**
+ * <p>
+ * Streams a copy of an environment to an output stream or channel.
+ * </p>
+ *
+ * LMDB writes the copy with mdb_env_copyfd2 into a pipe from a separate thread
+ * while the calling thread reads the pipe and writes to the target. The stream
+ * holds the data file of the environment, so restoring it means writing the
+ * stream to a file named data.mdb in an empty directory. The copy is a consistent
+ * snapshot read in a read transaction.
+ * <p>
+ * A rate limit slows down the reads of the pipe and with them the reads LMDB makes
+ * from disk, which keeps the copy from starving other readers. The limit and the
+ * progress callback count the uncompressed bytes.
+ * </p>
+ *
+ * <pre>
+ * new Backup(env).compact(true).rateLimit(20 * 1024 * 1024).gzip(true).writeTo(out);
+ * </pre>
+ *
+ * Not available on Windows.
+ */
+public class Backup {
+  private static final int CHUNK = 256 * 1024;
+
+  /**
+   * Receives the progress of a backup.
+   */
+  public interface Listener {
+    /**
+     * Called after every chunk written.
+     *
+     * @param bytesCopied bytes of the environment written so far.
+     * @param bytesTotal  pages in use times the page size when the backup
+     *                    started, an upper bound for compacted copies.
+     */
+    void progress(long bytesCopied, long bytesTotal);
+  }
+
+  private final Env env;
+  private boolean compact;
+  private long bytesPerSecond;
+  private boolean gzip;
+  private Listener listener;
+
+  public Backup(Env env) {
+    checkArgNotNull(env, "env");
+    this.env = env;
+  }
+
+  /**
+   * Omit free pages and renumber the pages of the copy, which uses more CPU.
+   */
+  public Backup compact(boolean compact) {
+    this.compact = compact;
+    return this;
+  }
+
+  /**
+   * Limit the copy to a number of bytes per second, 0 for no limit.
+   */
+  public Backup rateLimit(long bytesPerSecond) {
+    if (bytesPerSecond < 0) {
+      throw new IllegalArgumentException("bytesPerSecond must not be negative");
+    }
+    this.bytesPerSecond = bytesPerSecond;
+    return this;
+  }
+
+  /**
+   * Compress the stream with GZIP.
+   */
+  public Backup gzip(boolean gzip) {
+    this.gzip = gzip;
+    return this;
+  }
+
+  public Backup listener(Listener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * Write the copy to a stream. The stream is not closed.
+   *
+   * @return the number of bytes of the environment copied.
+   */
+  public long writeTo(OutputStream out) throws IOException {
+    checkArgNotNull(out, "out");
+    if (gzip) {
+      GZIPOutputStream compressed = new GZIPOutputStream(out, CHUNK);
+      long copied = copy(Channels.newChannel(compressed));
+      compressed.finish();
+      return copied;
+    }
+    return copy(Channels.newChannel(out));
+  }
+
+  /**
+   * Write the copy to a channel. The channel is not closed.
+   *
+   * @return the number of bytes of the environment copied.
+   */
+  public long writeTo(WritableByteChannel channel) throws IOException {
+    checkArgNotNull(channel, "channel");
+    if (gzip) {
+      return writeTo(Channels.newOutputStream(channel));
+    }
+    return copy(channel);
+  }
+
+  private long copy(WritableByteChannel target) throws IOException {
+    if (System.getProperty("os.name", "").startsWith("Windows")) {
+      throw new UnsupportedOperationException("Backup streams need POSIX pipes");
+    }
+    long total = (env.info().getLastPgNo() + 1) * env.stat().ms_psize;
+    int[] fds = new int[2];
+    if (JNI.pipe(fds) != 0) {
+      throw new IOException("Could not create a pipe, errno " + JNI.errno());
+    }
+    int in = fds[0];
+    Copier copier = new Copier(fds[1]);
+    copier.start();
+    long copied = 0;
+    try {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK);
+      long address = new DirectBuffer(buffer).addressOffset();
+      long start = System.nanoTime();
+      long n;
+      while ((n = JNI.read(in, address, CHUNK)) > 0) {
+        buffer.clear();
+        buffer.limit((int) n);
+        while (buffer.hasRemaining()) {
+          target.write(buffer);
+        }
+        copied += n;
+        if (listener != null) {
+          listener.progress(copied, total);
+        }
+        throttle(start, copied);
+      }
+      if (n < 0) {
+        throw new IOException("Could not read the pipe, errno " + JNI.errno());
+      }
+    } finally {
+      // a copier still writing fails with EPIPE once the pipe is closed
+      JNI.close(in);
+      copier.await();
+    }
+    checkErrorCode(copier.rc);
+    return copied;
+  }
+
+  private void throttle(long start, long copied) throws InterruptedIOException {
+    if (bytesPerSecond == 0) {
+      return;
+    }
+    long due = start + (long) (copied * 1e9 / bytesPerSecond);
+    long wait = due - System.nanoTime();
+    if (wait > 0) {
+      try {
+        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Backup interrupted");
+      }
+    }
+  }
+
+  /**
+   * Runs mdb_env_copyfd2 into the write end of the pipe and closes it.
+   */
+  private class Copier extends Thread {
+    private final int fd;
+    private volatile int rc;
+
+    Copier(int fd) {
+      super("lmdbjni-backup");
+      setDaemon(true);
+      this.fd = fd;
+    }
+
+    @Override
+    public void run() {
+      try {
+        rc = JNI.mdb_env_copyfd2(env.pointer(), fd, compact ? Constants.CP_COMPACT : 0);
+      } finally {
+        JNI.close(fd);
+      }
+    }
+
+    /**
+     * Wait for the copy to end even when interrupted, it still uses the
+     * environment. The interrupt is restored afterwards.
+     */
+    void await() {
+      boolean interrupted = false;
+      while (isAlive()) {
+        try {
+          join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
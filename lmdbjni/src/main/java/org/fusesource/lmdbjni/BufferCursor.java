@@ -128,6 +128,8 @@ public class BufferCursor implements Closeable {
   private int keyWriteIndex = 0;
   private int valWriteIndex = 0;
   private boolean validPosition = false;
+  private int valueOffset = 0;
+  private int valueLength = -1;
 
   BufferCursor(Cursor cursor, DirectBuffer key, DirectBuffer value) {
     this.cursor = cursor;
@@ -225,9 +227,7 @@ public class BufferCursor implements Closeable {
    * @return true if found
    */
   public boolean first() {
-    int rc = cursor.position(key, value, GetOp.FIRST);
-    setDatabaseMemoryLocation(rc);
-    return rc == 0;
+    return move(GetOp.FIRST);
   }
 
   /**
@@ -248,9 +248,7 @@ public class BufferCursor implements Closeable {
    * @return true if found
    */
   public boolean last() {
-    int rc = cursor.position(key, value, GetOp.LAST);
-    setDatabaseMemoryLocation(rc);
-    return rc == 0;
+    return move(GetOp.LAST);
   }
 
   /**
@@ -271,9 +269,7 @@ public class BufferCursor implements Closeable {
    * @return true if found
    */
   public boolean next() {
-    int rc = cursor.position(key, value, GetOp.NEXT);
-    setDatabaseMemoryLocation(rc);
-    return rc == 0;
+    return move(GetOp.NEXT);
   }
 
   /**
@@ -295,9 +291,7 @@ public class BufferCursor implements Closeable {
    * @return true if found
    */
   public boolean prev() {
-    int rc = cursor.position(key, value, GetOp.PREV);
-    setDatabaseMemoryLocation(rc);
-    return rc == 0;
+    return move(GetOp.PREV);
   }
 
   /**
@@ -312,6 +306,181 @@ public class BufferCursor implements Closeable {
     return rc == 0;
   }
 
+  /**
+   * Expose the page of values holding the current duplicate as the value, see
+   * {@link Cursor#positionMultiple(DirectBuffer, DirectBuffer, GetOp)}. Only for
+   * {@link org.fusesource.lmdbjni.Constants#DUPFIXED}.
+   *
+   * @return true if found
+   */
+  public boolean getMultiple() {
+    int rc = cursor.positionMultiple(key, value, GetOp.GET_MULTIPLE);
+    setDatabaseMemoryLocation(rc);
+    return rc == 0;
+  }
+
+  /**
+   * Move to the next page of values of the current key and expose it as the
+   * value. Only for {@link org.fusesource.lmdbjni.Constants#DUPFIXED}.
+   *
+   * <pre>
+   * long[] ids = new long[4096 / 8];
+   * if (cursor.seekKey() &amp;&amp; cursor.getMultiple()) {
+   *   do {
+   *     int n = cursor.valLongs(ids, 0);
+   *   } while (cursor.nextMultiple());
+   * }
+   * </pre>
+   *
+   * @return true if found
+   */
+  public boolean nextMultiple() {
+    int rc = cursor.positionMultiple(key, value, GetOp.NEXT_MULTIPLE);
+    setDatabaseMemoryLocation(rc);
+    return rc == 0;
+  }
+
+  /**
+   * Position at the first entry of a key range.
+   *
+   * @return true if found
+   */
+  public boolean first(KeyRange range) {
+    return positionInRange(range, GetOp.FIRST);
+  }
+
+  /**
+   * Position at the last entry of a key range.
+   *
+   * @return true if found
+   */
+  public boolean last(KeyRange range) {
+    return positionInRange(range, GetOp.LAST);
+  }
+
+  /**
+   * Position at the next entry if it is within the key range. The end of
+   * the range is checked in native code.
+   *
+   * @return true if found
+   */
+  public boolean next(KeyRange range) {
+    return positionInRange(range, GetOp.NEXT);
+  }
+
+  /**
+   * Position at the previous entry if it is within the key range.
+   *
+   * @return true if found
+   */
+  public boolean prev(KeyRange range) {
+    return positionInRange(range, GetOp.PREV);
+  }
+
+  private boolean positionInRange(KeyRange range, GetOp op) {
+    int rc;
+    if (valueLength == 0) {
+      rc = cursor.positionKey(key, range, op);
+      value.wrap(0, 0);
+    } else {
+      rc = cursor.position(key, value, range, op);
+      if (rc == 0 && valueLength > 0) {
+        Cursor.projectValue(value, valueOffset, valueLength);
+      }
+    }
+    setDatabaseMemoryLocation(rc);
+    return rc == 0;
+  }
+
+  private boolean move(GetOp op) {
+    if (valueLength >= 0) {
+      return positionInRange(KeyRange.all(), op);
+    }
+    int rc = cursor.position(key, value, op);
+    setDatabaseMemoryLocation(rc);
+    return rc == 0;
+  }
+
+  /**
+   * <p>
+   * Only read keys when moving with {@link #first()}, {@link #last()},
+   * {@link #next()}, {@link #prev()} and their key range variants.
+   * </p>
+   *
+   * The value buffer is left empty. Unless the database is
+   * {@link org.fusesource.lmdbjni.Constants#DUPSORT} the values are not read at all,
+   * so overflow pages of large values are not touched. Batches are configured with
+   * {@link EntryBatch#keysOnly()}.
+   *
+   * @return this cursor.
+   */
+  public BufferCursor keysOnly() {
+    return projectValue(0, 0);
+  }
+
+  /**
+   * Only expose a slice of at most length bytes starting at offset of every value
+   * when moving with {@link #first()}, {@link #last()}, {@link #next()},
+   * {@link #prev()} and their key range variants. Values shorter than the slice
+   * are cut short.
+   *
+   * @param offset start of the slice.
+   * @param length maximum length of the slice, 0 for keys only.
+   * @return this cursor.
+   */
+  public BufferCursor projectValue(int offset, int length) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("offset and length must not be negative");
+    }
+    this.valueOffset = offset;
+    this.valueLength = length;
+    return this;
+  }
+
+  /**
+   * Expose whole values again after {@link #keysOnly()} or
+   * {@link #projectValue(int, int)}.
+   *
+   * @return this cursor.
+   */
+  public BufferCursor fullValues() {
+    this.valueOffset = 0;
+    this.valueLength = -1;
+    return this;
+  }
+
+  /**
+   * Collect the next entries into a batch with a single native call, see
+   * {@link Cursor#getBatch(GetOp, GetOp, EntryBatch)}. The cursor is left
+   * positioned at the last entry of the batch.
+   *
+   * @return true if at least one entry was collected.
+   */
+  public boolean nextBatch(EntryBatch batch) {
+    return positionBatch(batch, GetOp.NEXT);
+  }
+
+  /**
+   * Collect the previous entries into a batch with a single native call,
+   * in descending order.
+   *
+   * @return true if at least one entry was collected.
+   * @see org.fusesource.lmdbjni.BufferCursor#nextBatch(EntryBatch)
+   */
+  public boolean prevBatch(EntryBatch batch) {
+    return positionBatch(batch, GetOp.PREV);
+  }
+
+  private boolean positionBatch(EntryBatch batch, GetOp op) {
+    int count = cursor.getBatch(op, batch);
+    setDatabaseMemoryLocation(count > 0 ? 0 : JNI.MDB_NOTFOUND);
+    if (count > 0) {
+      batch.key(count - 1, key);
+      batch.val(count - 1, value);
+    }
+    return count > 0;
+  }
+
   /**
    * <p>
    * Delete key/data pair at current cursor position.
@@ -321,6 +490,30 @@ public class BufferCursor implements Closeable {
     cursor.delete();
   }
 
+  Cursor getCursor() {
+    return cursor;
+  }
+
+  /**
+   * <p>
+   * Use the cursor with a new read only transaction.
+   * </p>
+   *
+   * The cursor returns to an unpositioned state since its key and value
+   * buffers would point into the old snapshot. Copy the current key before
+   * renewing to continue a scan from it.
+   *
+   * @param tx a read only transaction of the same environment.
+   */
+  public void renew(Transaction tx) {
+    cursor.renew(tx);
+    validPosition = false;
+    setSafeKeyMemoryLocation();
+    setSafeValMemoryLocation();
+    keyWriteIndex = 0;
+    valWriteIndex = 0;
+  }
+
   /**
    * Close the cursor and the transaction.
    */
@@ -1028,6 +1221,45 @@ public class BufferCursor implements Closeable {
     return this.value.getLong(pos, ByteOrder.BIG_ENDIAN);
   }
 
+  /**
+   * @see org.fusesource.lmdbjni.BufferCursor#valLongs(long[], int, ByteOrder)
+   */
+  public int valLongs(long[] dst, int offset) {
+    return valLongs(dst, offset, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Copy the value at current cursor position as consecutive longs, e.g.
+   * a page of values from {@link #getMultiple()}.
+   *
+   * @param dst    array to copy into.
+   * @param offset position in the array.
+   * @param order  byte order of the stored longs.
+   * @return number of longs copied, limited by the value and the array.
+   */
+  public int valLongs(long[] dst, int offset, ByteOrder order) {
+    checkForValidPosition();
+    return this.value.getLongs(0, dst, offset, dst.length - offset, order);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.BufferCursor#valInts(int[], int, ByteOrder)
+   */
+  public int valInts(int[] dst, int offset) {
+    return valInts(dst, offset, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Copy the value at current cursor position as consecutive ints.
+   *
+   * @return number of ints copied, limited by the value and the array.
+   * @see org.fusesource.lmdbjni.BufferCursor#valLongs(long[], int, ByteOrder)
+   */
+  public int valInts(int[] dst, int offset, ByteOrder order) {
+    checkForValidPosition();
+    return this.value.getInts(0, dst, offset, dst.length - offset, order);
+  }
+
   /**
    * Get data from key at current cursor position.
    *
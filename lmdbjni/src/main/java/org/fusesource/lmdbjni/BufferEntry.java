@@ -0,0 +1,56 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * <p>
+ * A mutable entry whose key and value point into the memory map.
+ * </p>
+ *
+ * Returned by {@link EntryIterator#flyweight()} iterators, which reuse a single
+ * instance for every entry. The buffers are only valid until the iterator moves
+ * on, the transaction ends or the next update in a write transaction.
+ * {@link #getKey()} and {@link #getValue()} return copies.
+ */
+public class BufferEntry extends Entry {
+  private final DirectBuffer key = new DirectBuffer(0, 0);
+  private final DirectBuffer value = new DirectBuffer(0, 0);
+
+  BufferEntry() {
+    super(null, null);
+  }
+
+  /**
+   * @return the key, without copying.
+   */
+  public DirectBuffer keyBuffer() {
+    return key;
+  }
+
+  /**
+   * @return the value, without copying.
+   */
+  public DirectBuffer valBuffer() {
+    return value;
+  }
+
+  /**
+   * @return a copy of the key.
+   */
+  @Override
+  public byte[] getKey() {
+    return copy(key);
+  }
+
+  /**
+   * @return a copy of the value.
+   */
+  @Override
+  public byte[] getValue() {
+    return copy(value);
+  }
+
+  static byte[] copy(DirectBuffer buffer) {
+    byte[] bytes = new byte[buffer.capacity()];
+    buffer.getBytes(0, bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,489 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.fusesource.lmdbjni.JNI.*;
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+import static org.fusesource.lmdbjni.Util.checkErrorCode;
+
+/**
+ * <p>
+ * Loads unsorted entries into a database with appending puts.
+ * </p>
+ *
+ * Entries are collected off-heap in runs of at most {@code runBytes} bytes. A
+ * full run is sorted in native code with the comparators of the database, so
+ * {@link org.fusesource.lmdbjni.Constants#INTEGERKEY}, native and Java comparators
+ * are honoured, and spilled to a temporary file. {@link #finish()} merges the runs
+ * and writes the entries in order with {@link org.fusesource.lmdbjni.Constants#APPEND},
+ * or {@link org.fusesource.lmdbjni.Constants#APPENDDUP} for further values of a key
+ * in a {@link org.fusesource.lmdbjni.Constants#DUPSORT} database, committing a write
+ * transaction every {@code transactionSize} entries. If everything fits in one run
+ * nothing is written to disk.
+ * <p>
+ * An entry that cannot be appended, because the database already holds a larger
+ * key or the key was added more than once, is written with a plain put instead.
+ * Of equal keys the last one added wins, like with repeated puts. Entries are
+ * committed in several transactions, so a failure may leave a part of them in the
+ * database.
+ * </p>
+ *
+ * <pre>
+ * BulkLoader loader = new BulkLoader(env, db);
+ * try {
+ *   for (Record record : records) {
+ *     loader.add(record.key(), record.value());
+ *   }
+ *   loader.finish();
+ * } finally {
+ *   loader.close();
+ * }
+ * </pre>
+ *
+ * A loader is not thread safe.
+ */
+public class BulkLoader implements Closeable {
+  public static final int DEFAULT_RUN_BYTES = 64 * 1024 * 1024;
+  public static final int DEFAULT_TRANSACTION_SIZE = 100000;
+
+  /** key size and value size */
+  private static final int HEADER = 8;
+  /** key and value MDB_val of a sorted record */
+  private static final int ENTRY = 4 * Unsafe.ADDRESS_SIZE;
+  private static final int MIN_READ_BUFFER = 64 * 1024;
+  private static final int MAX_READ_BUFFER = 1024 * 1024;
+
+  private final Env env;
+  private final Database db;
+  private final int runBytes;
+  private final int transactionSize;
+  private final File tempDir;
+  private final boolean dup;
+  private final ByteBuffer run;
+  private final DirectBuffer records;
+  private final List<File> spills = new ArrayList<File>();
+  /** write buffer of the run files, allocated by the first spill */
+  private ByteBuffer spillBuffer;
+  private int position;
+  private int count;
+  private long added;
+  private boolean finished;
+
+  /**
+   * Create a loader with default limits that spills to the default temporary directory.
+   */
+  public BulkLoader(Env env, Database db) {
+    this(env, db, DEFAULT_RUN_BYTES, DEFAULT_TRANSACTION_SIZE, null);
+  }
+
+  /**
+   * @param env             an open environment.
+   * @param db              the database to load.
+   * @param runBytes        off-heap memory for the entries of a run and their sort order,
+   *                        an entry takes its key and value rounded up to 8 bytes plus 40 bytes
+   *                        on 64 bit platforms.
+   * @param transactionSize number of entries written per write transaction.
+   * @param tempDir         directory of the run files, null for the default temporary directory.
+   */
+  public BulkLoader(Env env, Database db, int runBytes, int transactionSize, File tempDir) {
+    checkArgNotNull(env, "env");
+    checkArgNotNull(db, "db");
+    if (runBytes < 1024 || transactionSize < 1) {
+      throw new IllegalArgumentException("runBytes must be at least 1024 and transactionSize positive");
+    }
+    this.env = env;
+    this.db = db;
+    this.runBytes = runBytes;
+    this.transactionSize = transactionSize;
+    this.tempDir = tempDir;
+    Transaction tx = env.createReadTransaction();
+    try {
+      this.dup = (db.getFlags(tx) & Constants.DUPSORT) != 0;
+    } finally {
+      tx.close();
+    }
+    this.run = ByteBuffer.allocateDirect(runBytes).order(ByteOrder.nativeOrder());
+    this.records = new DirectBuffer(run);
+  }
+
+  /**
+   * Add an entry, spilling the current run to disk if it is full.
+   */
+  public void add(byte[] key, byte[] value) throws IOException {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int start = reserve(key.length, value.length);
+    records.putBytes(start + HEADER, key);
+    records.putBytes(start + HEADER + align(key.length), value);
+  }
+
+  /**
+   * Add an entry, spilling the current run to disk if it is full.
+   */
+  public void add(DirectBuffer key, DirectBuffer value) throws IOException {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int start = reserve(key.capacity(), value.capacity());
+    records.putBytes(start + HEADER, key, 0, key.capacity());
+    records.putBytes(start + HEADER + align(key.capacity()), value, 0, value.capacity());
+  }
+
+  /**
+   * @return the number of entries added.
+   */
+  public long size() {
+    return added;
+  }
+
+  /**
+   * Sort and write all entries added to the database.
+   *
+   * @return the number of entries written.
+   */
+  public long finish() throws IOException {
+    checkNotFinished();
+    finished = true;
+    if (spills.isEmpty()) {
+      writeRun();
+    } else {
+      if (count > 0) {
+        spill();
+      }
+      merge();
+    }
+    return added;
+  }
+
+  /**
+   * Delete the run files.
+   */
+  @Override
+  public void close() {
+    finished = true;
+    for (File file : spills) {
+      file.delete();
+    }
+    spills.clear();
+  }
+
+  private int reserve(int keySize, int valueSize) throws IOException {
+    checkNotFinished();
+    long size = HEADER + align(keySize) + align(valueSize);
+    if (size + ENTRY > runBytes) {
+      throw new IllegalArgumentException("Entry of " + size + " bytes does not fit a run of " + runBytes);
+    }
+    if (position + size + (long) (count + 1) * ENTRY > runBytes) {
+      spill();
+    }
+    int start = position;
+    records.putInt(start, keySize);
+    records.putInt(start + 4, valueSize);
+    position += size;
+    count++;
+    added++;
+    return start;
+  }
+
+  private void checkNotFinished() {
+    if (finished) {
+      throw new IllegalStateException("Loader is finished");
+    }
+  }
+
+  /**
+   * Sort the run into the key and value MDB_val of its records, kept at the
+   * end of the run buffer.
+   *
+   * @return the address of the sorted MDB_val.
+   */
+  private long sort(Transaction tx) {
+    long entries = records.addressOffset() + ((runBytes - (long) count * ENTRY) & ~7L);
+    checkErrorCode(lmdbjni_sort_records(tx.pointer(), db.pointer(), dup ? 1 : 0,
+      records.addressOffset(), count, entries));
+    return entries;
+  }
+
+  private void spill() throws IOException {
+    Transaction tx = env.createReadTransaction();
+    long entries;
+    try {
+      entries = sort(tx);
+    } finally {
+      tx.close();
+    }
+    File file = File.createTempFile("lmdbjni-run", ".tmp", tempDir);
+    spills.add(file);
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      FileChannel channel = out.getChannel();
+      ByteBuffer source = run.duplicate();
+      if (spillBuffer == null) {
+        spillBuffer = ByteBuffer.allocateDirect(MAX_READ_BUFFER);
+      }
+      ByteBuffer buffer = spillBuffer;
+      buffer.clear();
+      for (int i = 0; i < count; i++) {
+        long keyAddress = Unsafe.getAddress(entries, 4 * i + 1);
+        int start = (int) (keyAddress - HEADER - records.addressOffset());
+        int size = HEADER + align(records.getInt(start)) + align(records.getInt(start + 4));
+        source.limit(start + size).position(start);
+        if (buffer.remaining() < size) {
+          writeFully(channel, buffer);
+        }
+        if (buffer.remaining() < size) {
+          while (source.hasRemaining()) {
+            channel.write(source);
+          }
+        } else {
+          buffer.put(source);
+        }
+      }
+      writeFully(channel, buffer);
+    } finally {
+      out.close();
+    }
+    position = 0;
+    count = 0;
+  }
+
+  private void writeRun() {
+    Writer writer = new Writer();
+    try {
+      long entries = sort(writer.tx);
+      for (int i = 0; i < count; i++) {
+        writer.put(entries + (long) i * ENTRY);
+      }
+      writer.commit();
+    } finally {
+      writer.abort();
+    }
+  }
+
+  private void merge() throws IOException {
+    final Writer writer = new Writer();
+    List<Run> runs = new ArrayList<Run>();
+    try {
+      int readBuffer = Math.max(MIN_READ_BUFFER, Math.min(MAX_READ_BUFFER, runBytes / spills.size()));
+      PriorityQueue<Run> queue = new PriorityQueue<Run>(spills.size(), new Comparator<Run>() {
+        @Override
+        public int compare(Run a, Run b) {
+          int rc = writer.compare(a.entry, b.entry);
+          return rc != 0 ? rc : a.index - b.index;
+        }
+      });
+      for (int i = 0; i < spills.size(); i++) {
+        Run run = new Run(spills.get(i), i, readBuffer);
+        runs.add(run);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+        writer.put(run.entry);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      writer.commit();
+    } finally {
+      writer.abort();
+      for (Run run : runs) {
+        run.close();
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static int align(int size) {
+    return (size + 7) & ~7;
+  }
+
+  /**
+   * Appends sorted entries in write transactions of transactionSize entries.
+   */
+  private class Writer {
+    private final DirectBuffer key = new DirectBuffer(0, 0);
+    private final DirectBuffer value = new DirectBuffer(0, 0);
+    /** MDB_val of a copy of the last key, to find further values of a DUPSORT key */
+    private final DirectBuffer lastEntry = new DirectBuffer(ByteBuffer.allocateDirect(ENTRY));
+    private DirectBuffer lastKey = new DirectBuffer(ByteBuffer.allocateDirect(64));
+    private boolean hasLast;
+    private Transaction tx;
+    private Cursor cursor;
+    private int pending;
+
+    Writer() {
+      begin();
+    }
+
+    /**
+     * Write the entry with the key and value MDB_val at the address.
+     */
+    void put(long entry) {
+      key.wrap(Unsafe.getAddress(entry, 1), (int) Unsafe.getAddress(entry, 0));
+      value.wrap(Unsafe.getAddress(entry, 3), (int) Unsafe.getAddress(entry, 2));
+      boolean sameKey = dup && hasLast && mdb_cmp_address(tx.pointer(), db.pointer(), entry, lastEntry.addressOffset()) == 0;
+      int rc = cursor.put(key, value, sameKey ? Constants.APPENDDUP : Constants.APPEND);
+      if (rc == MDB_KEYEXIST) {
+        // smaller than the last key of the database or added before
+        rc = cursor.put(key, value, 0);
+        if (rc == MDB_KEYEXIST && dup) {
+          rc = 0;
+        }
+      }
+      checkErrorCode(rc);
+      if (dup && !sameKey) {
+        remember(key);
+      }
+      if (++pending == transactionSize) {
+        commit();
+        begin();
+      }
+    }
+
+    int compare(long a, long b) {
+      int rc = mdb_cmp_address(tx.pointer(), db.pointer(), a, b);
+      if (rc == 0 && dup) {
+        rc = mdb_dcmp_address(tx.pointer(), db.pointer(), a + 2 * Unsafe.ADDRESS_SIZE, b + 2 * Unsafe.ADDRESS_SIZE);
+      }
+      return rc;
+    }
+
+    void commit() {
+      cursor.close();
+      cursor = null;
+      tx.commit();
+      tx = null;
+      pending = 0;
+    }
+
+    void abort() {
+      if (cursor != null) {
+        cursor.close();
+        cursor = null;
+      }
+      if (tx != null) {
+        tx.abort();
+        tx = null;
+      }
+    }
+
+    private void begin() {
+      tx = env.createWriteTransaction();
+      cursor = db.openCursor(tx);
+    }
+
+    private void remember(DirectBuffer key) {
+      if (lastKey.capacity() < key.capacity()) {
+        lastKey = new DirectBuffer(ByteBuffer.allocateDirect(Math.max(key.capacity(), 2 * lastKey.capacity())));
+      }
+      lastKey.putBytes(0, key, 0, key.capacity());
+      Unsafe.putAddress(lastEntry.addressOffset(), 0, key.capacity());
+      Unsafe.putAddress(lastEntry.addressOffset(), 1, lastKey.addressOffset());
+      hasLast = true;
+    }
+  }
+
+  /**
+   * Reads the records of a run file.
+   */
+  private static class Run {
+    private final FileInputStream in;
+    private final FileChannel channel;
+    private final int index;
+    private final DirectBuffer pair = new DirectBuffer(ByteBuffer.allocateDirect(ENTRY));
+    private ByteBuffer buffer;
+    private long address;
+    /** address of the key and value MDB_val of the current record */
+    final long entry;
+
+    Run(File file, int index, int bufferSize) throws IOException {
+      this.in = new FileInputStream(file);
+      this.channel = in.getChannel();
+      this.index = index;
+      this.entry = pair.addressOffset();
+      allocate(bufferSize);
+      buffer.limit(0);
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return false at the end of the run.
+     */
+    boolean next() throws IOException {
+      if (!fill(HEADER)) {
+        if (buffer.hasRemaining()) {
+          throw new EOFException("Truncated run file");
+        }
+        return false;
+      }
+      int start = buffer.position();
+      int keySize = buffer.getInt(start);
+      int valueSize = buffer.getInt(start + 4);
+      int size = HEADER + align(keySize) + align(valueSize);
+      if (!fill(size)) {
+        throw new EOFException("Truncated run file");
+      }
+      start = buffer.position();
+      Unsafe.putAddress(entry, 0, keySize);
+      Unsafe.putAddress(entry, 1, address + start + HEADER);
+      Unsafe.putAddress(entry, 2, valueSize);
+      Unsafe.putAddress(entry, 3, address + start + HEADER + align(keySize));
+      buffer.position(start + size);
+      return true;
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+
+    /**
+     * Make sure the buffer holds at least size bytes after its position.
+     */
+    private boolean fill(int size) throws IOException {
+      if (buffer.remaining() >= size) {
+        return true;
+      }
+      buffer.compact();
+      if (buffer.capacity() < size) {
+        ByteBuffer old = buffer;
+        old.flip();
+        allocate(size);
+        buffer.put(old);
+      }
+      while (buffer.position() < size) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer.remaining() >= size;
+    }
+
+    private void allocate(int size) {
+      buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+      address = new DirectBuffer(buffer).addressOffset();
+    }
+  }
+}
@@ -134,6 +134,13 @@ public class Constants {
    */
   public static final int MULTIPLE = MDB_MULTIPLE;
 
+  //====================================================//
+  // Copy flags.
+  //====================================================//
+
+  /** Omit free pages and renumber the pages of a copy. */
+  public static final int CP_COMPACT = MDB_CP_COMPACT;
+
   //====================================================//
   // Cursor operations.
   //====================================================//
@@ -20,6 +20,7 @@ package org.fusesource.lmdbjni;
 
 import java.io.Closeable;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import static org.fusesource.lmdbjni.JNI.*;
 import static org.fusesource.lmdbjni.Util.checkArgNotNull;
@@ -34,6 +35,11 @@ public class Cursor extends NativeObject implements Closeable {
   DirectBuffer buffer;
   long bufferAddress;
   final boolean isReadOnly;
+  /** the pool this handle is recycled by, if any */
+  CursorPool pool;
+  /** reused to pack primitive values for putMultiple */
+  private NativeBuffer scratch;
+  private DirectBuffer scratchBuffer;
 
   Cursor(long self, boolean isReadOnly) {
     super(self);
@@ -41,7 +47,8 @@ public class Cursor extends NativeObject implements Closeable {
   }
 
   private void initBuffer () {
-    this.buffer = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * 4));
+    // key and value followed by the bounds of a key range
+    this.buffer = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * 8));
     this.bufferAddress = buffer.addressOffset();
   }
 
@@ -59,6 +66,10 @@ public class Cursor extends NativeObject implements Closeable {
       mdb_cursor_close(self);
       self = 0;
     }
+    if (scratch != null) {
+      scratch.delete();
+      scratch = null;
+    }
   }
 
   /**
@@ -120,7 +131,8 @@ public class Cursor extends NativeObject implements Closeable {
   }
 
   /**
-   * Same as get but with a seek operation.
+   * Same as get but with a seek operation. With {@link SeekOp#BOTH} and
+   * {@link SeekOp#BOTH_RANGE} the value buffer holds the value to search for.
    * @see org.fusesource.lmdbjni.Cursor#get(GetOp)
    */
   public int seekPosition(DirectBuffer key, DirectBuffer value, SeekOp op) {
@@ -130,6 +142,10 @@ public class Cursor extends NativeObject implements Closeable {
     if (buffer == null) initBuffer();
     Unsafe.putLong(bufferAddress, 0, key.capacity());
     Unsafe.putLong(bufferAddress, 1, key.addressOffset());
+    if (op == SeekOp.BOTH || op == SeekOp.BOTH_RANGE) {
+      Unsafe.putLong(bufferAddress, 2, value.capacity());
+      Unsafe.putLong(bufferAddress, 3, value.addressOffset());
+    }
 
     int rc = mdb_cursor_get_address(pointer(), bufferAddress, bufferAddress + 2 * Unsafe.ADDRESS_SIZE, op.getValue());
     if (rc == MDB_NOTFOUND) {
@@ -140,6 +156,233 @@ public class Cursor extends NativeObject implements Closeable {
     return rc;
   }
 
+  /**
+   * <p>
+   *   Retrieve by cursor within a key range.
+   * </p>
+   *
+   * The end of the range is checked in native code, so no data is copied
+   * once the cursor leaves the range.
+   *
+   * @param range the key range.
+   * @param op {@link GetOp#FIRST} or {@link GetOp#LAST} to position at the first
+   *           entry of the range in forward or backward order, {@link GetOp#NEXT}
+   *           or {@link GetOp#PREV} to move to the next entry.
+   * @return the entry or null if the cursor left the range.
+   */
+  public Entry get(KeyRange range, GetOp op) {
+    int rc = moveInRange(range, op, 0);
+    if (rc == MDB_NOTFOUND) {
+      return null;
+    }
+    checkErrorCode(rc);
+    byte[] key = new byte[(int) Unsafe.getAddress(bufferAddress, 0)];
+    Unsafe.getBytes(Unsafe.getAddress(bufferAddress, 1), 0, key);
+    byte[] value = new byte[(int) Unsafe.getAddress(bufferAddress, 2)];
+    Unsafe.getBytes(Unsafe.getAddress(bufferAddress, 3), 0, value);
+    return new Entry(key, value);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Cursor#get(KeyRange, GetOp)
+   */
+  public int position(DirectBuffer key, DirectBuffer value, KeyRange range, GetOp op) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int rc = moveInRange(range, op, 0);
+    if (rc == MDB_NOTFOUND) {
+      return rc;
+    }
+    checkErrorCode(rc);
+    wrapBufferAddress(key, value);
+    return rc;
+  }
+
+  /**
+   * <p>
+   *   Move within a key range without reading values.
+   * </p>
+   *
+   * Like {@link #position(DirectBuffer, DirectBuffer, KeyRange, GetOp)} but only
+   * the key is wrapped. Unless the database is {@link org.fusesource.lmdbjni.Constants#DUPSORT}
+   * the value is not read at all, so overflow pages of large values are not touched.
+   * Use {@link KeyRange#all()} to move over the whole database.
+   *
+   * @param key the buffer to wrap the key into.
+   * @param range the key range.
+   * @param op {@link GetOp#FIRST}, {@link GetOp#LAST}, {@link GetOp#NEXT} or {@link GetOp#PREV}.
+   * @return the response code, {@link org.fusesource.lmdbjni.JNI#MDB_NOTFOUND} once
+   * the cursor left the range.
+   */
+  public int positionKey(DirectBuffer key, KeyRange range, GetOp op) {
+    checkArgNotNull(key, "key");
+    int rc = moveInRange(range, op, KeyRange.KEYS_ONLY);
+    if (rc == MDB_NOTFOUND) {
+      return rc;
+    }
+    checkErrorCode(rc);
+    key.wrap(Unsafe.getAddress(bufferAddress, 1), (int) Unsafe.getLong(bufferAddress, 0));
+    return rc;
+  }
+
+  private int moveInRange(KeyRange range, GetOp op, int extraFlags) {
+    checkArgNotNull(range, "range");
+    checkArgNotNull(op, "op");
+    if (buffer == null) initBuffer();
+    boolean backward;
+    boolean first;
+    switch (op) {
+      case FIRST: backward = false; first = true; break;
+      case LAST: backward = true; first = true; break;
+      case NEXT: backward = false; first = false; break;
+      case PREV: backward = true; first = false; break;
+      default:
+        throw new IllegalArgumentException("Unsupported range operation " + op);
+    }
+    if (range.isEmpty()) {
+      // an empty upper bound cannot be passed to MDB_SET_RANGE
+      return MDB_NOTFOUND;
+    }
+    long bounds = bufferAddress + 4 * Unsafe.ADDRESS_SIZE;
+    int flags = range.write(bounds, backward) | extraFlags;
+    if (first) {
+      flags |= KeyRange.FIRST;
+    }
+    return lmdbjni_cursor_range(pointer(), bufferAddress, bufferAddress + 2 * Unsafe.ADDRESS_SIZE, bounds, flags);
+  }
+
+  /**
+   * <p>
+   *   Retrieve a page of duplicates of a {@link org.fusesource.lmdbjni.Constants#DUPFIXED}
+   *   database.
+   * </p>
+   *
+   * The values are packed back to back with the size of the first value, so a page
+   * of N values of size S is N * S bytes long. With {@link GetOp#GET_MULTIPLE} the page
+   * holding the current duplicate of the positioned key is returned, a key with a
+   * single value gives a page of one. {@link GetOp#NEXT_MULTIPLE} moves to the next
+   * page of the same key and returns {@link org.fusesource.lmdbjni.JNI#MDB_NOTFOUND}
+   * after the last one. Nothing is copied.
+   *
+   * <pre>
+   * if (cursor.seekPosition(key, values, SeekOp.KEY) == 0) {
+   *   int rc = cursor.positionMultiple(key, values, GetOp.GET_MULTIPLE);
+   *   while (rc == 0) {
+   *     int n = values.getLongs(0, ids, 0, ids.length, ByteOrder.nativeOrder());
+   *     rc = cursor.positionMultiple(key, values, GetOp.NEXT_MULTIPLE);
+   *   }
+   * }
+   * </pre>
+   *
+   * @param key    buffer to wrap the key into.
+   * @param values buffer to wrap the page of values into.
+   * @param op     {@link GetOp#GET_MULTIPLE} or {@link GetOp#NEXT_MULTIPLE}.
+   * @return the response code.
+   */
+  public int positionMultiple(DirectBuffer key, DirectBuffer values, GetOp op) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(values, "values");
+    checkArgNotNull(op, "op");
+    if (op != GetOp.GET_MULTIPLE && op != GetOp.NEXT_MULTIPLE) {
+      throw new IllegalArgumentException("Unsupported multiple operation " + op);
+    }
+    if (buffer == null) initBuffer();
+    int rc = lmdbjni_cursor_multiple(pointer(), bufferAddress, bufferAddress + 2 * Unsafe.ADDRESS_SIZE, op.getValue());
+    if (rc == MDB_NOTFOUND) {
+      return rc;
+    }
+    checkErrorCode(rc);
+    wrapBufferAddress(key, values);
+    return rc;
+  }
+
+  /**
+   * <p>
+   *   Move the cursor many times in a single native call.
+   * </p>
+   *
+   * The cursor is moved with the first operation and then with the second one
+   * until the batch is full, its byte budget is reached or the cursor runs
+   * out of entries. The keys and values are not copied.
+   *
+   * @param first operation of the first move, e.g. {@link GetOp#FIRST}.
+   * @param op    operation of the following moves, e.g. {@link GetOp#NEXT}.
+   * @param batch the batch that receives the entries.
+   * @return the number of entries collected, 0 if there were none left.
+   */
+  public int getBatch(GetOp first, GetOp op, EntryBatch batch) {
+    checkMove(first);
+    checkMove(op);
+    checkArgNotNull(batch, "batch");
+    return batch.fill(pointer(), first.getValue(), op.getValue());
+  }
+
+  /**
+   * <p>
+   *   Position the cursor at a key and move it many times in a single native call.
+   * </p>
+   *
+   * The first entry is found with {@link SeekOp#KEY} or {@link SeekOp#RANGE}
+   * from the given key, the following ones with op.
+   *
+   * @param first seek operation of the first move.
+   * @param key   off-heap key to seek.
+   * @param op    operation of the following moves, e.g. {@link GetOp#NEXT}.
+   * @param batch the batch that receives the entries.
+   * @return the number of entries collected, 0 if there were none.
+   * @see org.fusesource.lmdbjni.Cursor#getBatch(GetOp, GetOp, EntryBatch)
+   */
+  public int getBatch(SeekOp first, DirectBuffer key, GetOp op, EntryBatch batch) {
+    checkArgNotNull(first, "first");
+    checkArgNotNull(key, "key");
+    checkMove(op);
+    checkArgNotNull(batch, "batch");
+    if (first != SeekOp.KEY && first != SeekOp.RANGE) {
+      throw new IllegalArgumentException("Unsupported seek operation " + first);
+    }
+    return batch.fill(pointer(), first.getValue(), op.getValue(), key);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Cursor#getBatch(GetOp, GetOp, EntryBatch)
+   */
+  public int getBatch(GetOp op, EntryBatch batch) {
+    return getBatch(op, op, batch);
+  }
+
+  /**
+   * Batches only support operations that move the cursor without input,
+   * since the key and value of the first entry are not initialised.
+   */
+  private static void checkMove(GetOp op) {
+    checkArgNotNull(op, "op");
+    switch (op) {
+      case FIRST:
+      case LAST:
+      case NEXT:
+      case NEXT_DUP:
+      case NEXT_NODUP:
+      case PREV:
+      case PREV_DUP:
+      case PREV_NODUP:
+      case GET_CURRENT:
+      case FIRST_DUP:
+      case LAST_DUP:
+        return;
+      default:
+        throw new IllegalArgumentException("Unsupported batch operation " + op);
+    }
+  }
+
+  /**
+   * Narrow a value buffer to a slice of at most length bytes at offset.
+   */
+  static void projectValue(DirectBuffer value, int offset, int length) {
+    int size = value.capacity();
+    int start = Math.min(offset, size);
+    value.wrap(value.addressOffset() + start, Math.min(length, size - start));
+  }
+
   private void wrapBufferAddress(DirectBuffer key, DirectBuffer value) {
     int keySize = (int) Unsafe.getLong(bufferAddress, 0);
     key.wrap(Unsafe.getAddress(bufferAddress, 1), keySize);
@@ -284,6 +527,110 @@ public class Cursor extends NativeObject implements Closeable {
     return mdb_cursor_put_address(pointer(), bufferAddress, bufferAddress + 2 * Unsafe.ADDRESS_SIZE, flags);
   }
 
+  /**
+   * <p>
+   *   Store many duplicates of a {@link org.fusesource.lmdbjni.Constants#DUPFIXED}
+   *   key in a single call.
+   * </p>
+   *
+   * The values are packed back to back in the buffer, each elementSize bytes
+   * long, and stored with {@link org.fusesource.lmdbjni.Constants#MULTIPLE}.
+   * LMDB stops at the first value that fails, e.g. with
+   * {@link org.fusesource.lmdbjni.Constants#NODUPDATA} and a value that exists.
+   * Such a value ends the call without an exception and the return value tells
+   * how many values were stored.
+   *
+   * @param key         the key.
+   * @param values      the packed values.
+   * @param elementSize the size of every value.
+   * @param flags       additional put flags, e.g. {@link org.fusesource.lmdbjni.Constants#APPENDDUP}
+   *                    for sorted values.
+   * @return the number of values stored.
+   */
+  public int putMultiple(DirectBuffer key, DirectBuffer values, int elementSize, int flags) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(values, "values");
+    if (elementSize < 1 || values.capacity() % elementSize != 0) {
+      throw new IllegalArgumentException("values must hold a whole number of elements of size " + elementSize);
+    }
+    int count = values.capacity() / elementSize;
+    if (count == 0) {
+      return 0;
+    }
+    if (buffer == null) initBuffer();
+    // the data is an array of two MDB_val, the first element and the element count
+    Unsafe.putLong(bufferAddress, 0, key.capacity());
+    Unsafe.putLong(bufferAddress, 1, key.addressOffset());
+    Unsafe.putLong(bufferAddress, 2, elementSize);
+    Unsafe.putLong(bufferAddress, 3, values.addressOffset());
+    Unsafe.putLong(bufferAddress, 4, count);
+    Unsafe.putLong(bufferAddress, 5, 0);
+    int rc = mdb_cursor_put_address(pointer(), bufferAddress, bufferAddress + 2 * Unsafe.ADDRESS_SIZE,
+      flags | MDB_MULTIPLE);
+    if (rc != MDB_KEYEXIST) {
+      checkErrorCode(rc);
+    }
+    return (int) Unsafe.getLong(bufferAddress, 4);
+  }
+
+  /**
+   * Store longs as duplicates of a key in a single call.
+   *
+   * @param order byte order of the stored longs, the native order for
+   *              {@link org.fusesource.lmdbjni.Constants#INTEGERDUP} databases.
+   * @see org.fusesource.lmdbjni.Cursor#putMultiple(DirectBuffer, DirectBuffer, int, int)
+   */
+  public int putMultiple(DirectBuffer key, long[] values, int offset, int length, ByteOrder order, int flags) {
+    return putMultiple(key, pack(values, offset, length, order), DirectBuffer.SIZE_OF_LONG, flags);
+  }
+
+  /**
+   * Store ints as duplicates of a key in a single call.
+   *
+   * @see org.fusesource.lmdbjni.Cursor#putMultiple(DirectBuffer, long[], int, int, ByteOrder, int)
+   */
+  public int putMultiple(DirectBuffer key, int[] values, int offset, int length, ByteOrder order, int flags) {
+    checkArgNotNull(values, "values");
+    checkBounds(values.length, offset, length);
+    DirectBuffer packed = scratch((long) length * DirectBuffer.SIZE_OF_INT);
+    packed.putInts(0, values, offset, length, order);
+    return putMultiple(key, packed, DirectBuffer.SIZE_OF_INT, flags);
+  }
+
+  /**
+   * Pack longs into the scratch memory of this cursor. The returned buffer
+   * is only valid until the next call that packs values.
+   */
+  DirectBuffer pack(long[] values, int offset, int length, ByteOrder order) {
+    checkArgNotNull(values, "values");
+    checkBounds(values.length, offset, length);
+    DirectBuffer packed = scratch((long) length * DirectBuffer.SIZE_OF_LONG);
+    packed.putLongs(0, values, offset, length, order);
+    return packed;
+  }
+
+  private static void checkBounds(int arrayLength, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > arrayLength - length) {
+      throw new IndexOutOfBoundsException(String.format("offset=%d, length=%d, array length=%d", offset, length, arrayLength));
+    }
+  }
+
+  private DirectBuffer scratch(long size) {
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many values for a single put: " + size + " bytes");
+    }
+    if (scratch == null || scratch.capacity() < size) {
+      if (scratch != null) {
+        scratch.delete();
+        scratch = null;
+      }
+      scratch = NativeBuffer.create(Math.max(size, 1024));
+      scratchBuffer = new DirectBuffer(0, 0);
+    }
+    scratchBuffer.wrap(scratch.pointer(), (int) size);
+    return scratchBuffer;
+  }
+
   public byte[] put(NativeBuffer keyBuffer, NativeBuffer valueBuffer, int flags) {
     return put(new Value(keyBuffer), new Value(valueBuffer), flags);
   }
@@ -308,10 +655,7 @@ public class Cursor extends NativeObject implements Closeable {
     if (key.byteArray() != null || !key.byteBuffer().isDirect()) {
       throw new IllegalArgumentException("Key buffer is not direct.");
     }
-    if (buffer == null) {
-      buffer = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * 4));
-      bufferAddress = buffer.addressOffset();
-    }
+    if (buffer == null) initBuffer();
     Unsafe.putLong(bufferAddress, 0, key.capacity());
     Unsafe.putLong(bufferAddress, 1, key.addressOffset());
     Unsafe.putLong(bufferAddress, 2, size);
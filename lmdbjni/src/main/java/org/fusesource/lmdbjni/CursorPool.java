@@ -0,0 +1,212 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+
+/**
+ * <p>
+ * A pool of read-only cursors of a database that are recycled with
+ * {@link Cursor#renew(Transaction)} instead of being opened and closed for
+ * every read.
+ * </p>
+ *
+ * A renewed cursor keeps its native handle and its scratch buffer, so a
+ * lookup with a pooled cursor in a pooled transaction does not allocate.
+ * Idle cursors are kept in a bounded stack shared by all threads; cursors
+ * given back while it is full are closed.
+ *
+ * <pre>
+ * Transaction tx = env.getReadTransactionPool().borrow();
+ * Cursor cursor = pool.borrow(tx);
+ * try {
+ *   cursor.seekPosition(key, value, SeekOp.KEY);
+ * } finally {
+ *   pool.release(cursor);
+ *   env.getReadTransactionPool().release(tx);
+ * }
+ * </pre>
+ *
+ * A borrowed cursor must be given back with {@link #release(Cursor)} and not be
+ * closed by the borrower. Cursors of write transactions are not pooled, they are
+ * opened as usual and closed on release, which must happen before the transaction
+ * ends.
+ *
+ * @see org.fusesource.lmdbjni.Database#getCursorPool()
+ */
+public class CursorPool implements Closeable {
+  /** Default maximum number of idle cursors of each kind. */
+  public static final int DEFAULT_MAX_IDLE = 64;
+
+  private final Database db;
+  private final Cursor[] idle;
+  private int idleCount;
+  private final BufferCursor[] idleBuffers;
+  private int idleBufferCount;
+  private volatile boolean closed;
+
+  /**
+   * @param db      an open database.
+   * @param maxIdle maximum number of idle cursors and of idle buffer cursors.
+   */
+  public CursorPool(Database db, int maxIdle) {
+    Util.checkArgNotNull(db, "db");
+    if (maxIdle < 1) {
+      throw new IllegalArgumentException("maxIdle must be positive");
+    }
+    this.db = db;
+    this.idle = new Cursor[maxIdle];
+    this.idleBuffers = new BufferCursor[maxIdle];
+  }
+
+  public CursorPool(Database db) {
+    this(db, DEFAULT_MAX_IDLE);
+  }
+
+  /**
+   * @param tx an active transaction.
+   * @return a cursor of the database in the transaction.
+   */
+  public Cursor borrow(Transaction tx) {
+    Util.checkArgNotNull(tx, "tx");
+    if (closed) {
+      throw new LMDBException("Cursor pool is closed.");
+    }
+    if (!tx.isReadOnly()) {
+      return db.openCursor(tx);
+    }
+    Cursor cursor = popCursor();
+    if (cursor == null) {
+      cursor = db.openCursor(tx);
+      cursor.pool = this;
+      return cursor;
+    }
+    try {
+      cursor.renew(tx);
+    } catch (LMDBException e) {
+      discard(cursor);
+      throw e;
+    }
+    return cursor;
+  }
+
+  /**
+   * Give back a cursor obtained from {@link #borrow(Transaction)}.
+   * Cursors that do not belong to the pool are closed.
+   */
+  public void release(Cursor cursor) {
+    if (cursor == null) {
+      return;
+    }
+    if (cursor.pool != this || cursor.self == 0 || !pushCursor(cursor)) {
+      discard(cursor);
+    }
+  }
+
+  /**
+   * @param tx an active transaction.
+   * @return a buffer cursor of the database in the transaction, with a value
+   * buffer of the default size.
+   * @see org.fusesource.lmdbjni.CursorPool#borrow(Transaction)
+   */
+  public BufferCursor borrowBufferCursor(Transaction tx) {
+    Util.checkArgNotNull(tx, "tx");
+    if (closed) {
+      throw new LMDBException("Cursor pool is closed.");
+    }
+    if (!tx.isReadOnly()) {
+      return db.bufferCursor(tx);
+    }
+    BufferCursor cursor = popBufferCursor();
+    if (cursor == null) {
+      cursor = db.bufferCursor(tx);
+      cursor.getCursor().pool = this;
+      return cursor;
+    }
+    try {
+      cursor.renew(tx);
+    } catch (LMDBException e) {
+      discard(cursor.getCursor());
+      throw e;
+    }
+    return cursor;
+  }
+
+  /**
+   * Give back a cursor obtained from {@link #borrowBufferCursor(Transaction)}.
+   * Cursors that do not belong to the pool are closed, the others expose
+   * whole values again for the next borrower.
+   */
+  public void release(BufferCursor cursor) {
+    if (cursor == null) {
+      return;
+    }
+    cursor.fullValues();
+    Cursor handle = cursor.getCursor();
+    if (handle.pool != this || handle.self == 0 || !pushBufferCursor(cursor)) {
+      discard(handle);
+    }
+  }
+
+  /**
+   * @return the number of idle cursors and buffer cursors.
+   */
+  public synchronized int idle() {
+    return idleCount + idleBufferCount;
+  }
+
+  /**
+   * Close all idle cursors. Borrowed cursors are closed when released.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    synchronized (this) {
+      while (idleCount > 0) {
+        discard(idle[--idleCount]);
+        idle[idleCount] = null;
+      }
+      while (idleBufferCount > 0) {
+        discard(idleBuffers[--idleBufferCount].getCursor());
+        idleBuffers[idleBufferCount] = null;
+      }
+    }
+  }
+
+  private void discard(Cursor cursor) {
+    cursor.pool = null;
+    cursor.close();
+  }
+
+  private synchronized Cursor popCursor() {
+    if (idleCount == 0) {
+      return null;
+    }
+    Cursor cursor = idle[--idleCount];
+    idle[idleCount] = null;
+    return cursor;
+  }
+
+  private synchronized boolean pushCursor(Cursor cursor) {
+    if (closed || idleCount == idle.length) {
+      return false;
+    }
+    idle[idleCount++] = cursor;
+    return true;
+  }
+
+  private synchronized BufferCursor popBufferCursor() {
+    if (idleBufferCount == 0) {
+      return null;
+    }
+    BufferCursor cursor = idleBuffers[--idleBufferCount];
+    idleBuffers[idleBufferCount] = null;
+    return cursor;
+  }
+
+  private synchronized boolean pushBufferCursor(BufferCursor cursor) {
+    if (closed || idleBufferCount == idleBuffers.length) {
+      return false;
+    }
+    idleBuffers[idleBufferCount++] = cursor;
+    return true;
+  }
+}
@@ -23,7 +23,8 @@ import org.fusesource.hawtjni.runtime.Callback;
 import org.fusesource.lmdbjni.EntryIterator.IteratorType;
 
 import java.io.Closeable;
-// import java.nio.ByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.Comparator;
 
 import static org.fusesource.lmdbjni.JNI.*;
@@ -37,9 +38,18 @@ import static org.fusesource.lmdbjni.Util.checkErrorCode;
  */
 public class Database extends NativeObject implements Closeable {
 
+  private static final byte[] EMPTY = new byte[0];
+  /** key and data MDB_val at the start of the scratch area */
+  private static final int SCRATCH_VALS = 32;
+  /** largest key and value copied through the scratch area by put */
+  private static final int MAX_SCRATCH_PUT = 64 * 1024;
+  /** native memory of the array calls, reused by every call of a thread */
+  private static final ThreadLocal<DirectBuffer> SCRATCH = new ThreadLocal<DirectBuffer>();
+
   private final Env env;
   private Callback comparatorCallback;
   private Callback directComparatorCallback;
+  private CursorPool cursorPool;
 
   Database(Env env, long self) {
     super(self);
@@ -63,6 +73,12 @@ public class Database extends NativeObject implements Closeable {
    */
   @Override
   public void close() {
+    synchronized (this) {
+      if (cursorPool != null) {
+        cursorPool.close();
+        cursorPool = null;
+      }
+    }
     if (comparatorCallback != null) {
       comparatorCallback.dispose();
       comparatorCallback = null;
@@ -81,12 +97,12 @@ public class Database extends NativeObject implements Closeable {
    * @return Statistics for a database.
    */
   public Stat stat() {
-	Transaction tx = null;
-	try {
-      tx = env.createReadTransaction();
-      return new Stat(stat(tx));
+    ReadTransactionPool pool = env.getReadTransactionPool();
+    Transaction tx = pool.borrow();
+    try {
+      return stat(tx);
     } finally {
-      if (tx != null) tx.close();
+      pool.release(tx);
     }
   }
 
@@ -97,6 +113,17 @@ public class Database extends NativeObject implements Closeable {
     return new Stat(rc);
   }
 
+  /**
+   * @return the flags the database was opened with, e.g.
+   * {@link org.fusesource.lmdbjni.Constants#DUPSORT}.
+   */
+  public int getFlags(Transaction tx) {
+    checkArgNotNull(tx, "tx");
+    long[] flags = new long[1];
+    checkErrorCode(mdb_dbi_flags(tx.pointer(), pointer(), flags));
+    return (int) flags[0];
+  }
+
   /**
    * @see org.fusesource.lmdbjni.Database#drop(Transaction, boolean)
    */
@@ -133,12 +160,12 @@ public class Database extends NativeObject implements Closeable {
    */
   public int get(DirectBuffer key, DirectBuffer value) {
     checkArgNotNull(key, "key");
-    Transaction tx = null;
+    ReadTransactionPool pool = env.getReadTransactionPool();
+    Transaction tx = pool.borrow();
     try {
-      tx = env.createReadTransaction();
       return get(tx, key, value);
     } finally {
-      if (tx != null) tx.close();
+      pool.release(tx);
     }
   }
 
@@ -175,17 +202,129 @@ public class Database extends NativeObject implements Closeable {
     return rc;
   }
 
+  /**
+   * <p>
+   * Get an item from a database into a caller supplied array.
+   * </p>
+   *
+   * At most length bytes of the value are copied from the memory map into
+   * the array, so a prefix of a large value can be read without allocating.
+   *
+   * @param tx     transaction handle
+   * @param key    the key to search for
+   * @param value  array to copy the value into
+   * @param offset start of the value in the array
+   * @param length number of bytes available for the value
+   * @return the length of the value or -1 if the key was not found.
+   */
+  public int get(Transaction tx, DirectBuffer key, byte[] value, int offset, int length) {
+    checkArgNotNull(value, "value");
+    checkBounds(value, offset, length);
+    long address = getAddress(tx, key);
+    if (address == 0) {
+      return -1;
+    }
+    int valSize = (int) Unsafe.getLong(address, 2);
+    Unsafe.UNSAFE.copyMemory(null, Unsafe.getAddress(address, 3), value,
+      Unsafe.ARRAY_BASE_OFFSET + offset, Math.min(valSize, length));
+    return valSize;
+  }
+
+  /**
+   * <p>
+   * Get an item from a database into a caller supplied buffer.
+   * </p>
+   *
+   * The value is copied to the position of the buffer, at most as many bytes
+   * as remain in it, and the position is moved past the bytes copied.
+   *
+   * @param tx    transaction handle
+   * @param key   the key to search for
+   * @param value heap or direct buffer to copy the value into
+   * @return the length of the value or -1 if the key was not found.
+   */
+  public int get(Transaction tx, DirectBuffer key, ByteBuffer value) {
+    checkArgNotNull(value, "value");
+    if (value.isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+    long address = getAddress(tx, key);
+    if (address == 0) {
+      return -1;
+    }
+    int valSize = (int) Unsafe.getLong(address, 2);
+    int count = Math.min(valSize, value.remaining());
+    Unsafe.UNSAFE.copyMemory(null, Unsafe.getAddress(address, 3),
+      value.hasArray() ? value.array() : null, DirectBuffer.addressOf(value) + value.position(), count);
+    value.position(value.position() + count);
+    return valSize;
+  }
+
+  /**
+   * @param tx  transaction handle
+   * @param key the key to search for
+   * @return true if the database holds the key, without copying the value.
+   */
+  public boolean containsKey(Transaction tx, DirectBuffer key) {
+    return getAddress(tx, key) != 0;
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Database#containsKey(Transaction, DirectBuffer)
+   */
+  public boolean containsKey(Transaction tx, byte[] key) {
+    return valueLength(tx, key) >= 0;
+  }
+
+  /**
+   * @param tx  transaction handle
+   * @param key the key to search for
+   * @return the length of the value or -1 if the key was not found.
+   */
+  public int valueLength(Transaction tx, DirectBuffer key) {
+    long address = getAddress(tx, key);
+    return address == 0 ? -1 : (int) Unsafe.getLong(address, 2);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Database#valueLength(Transaction, DirectBuffer)
+   */
+  public int valueLength(Transaction tx, byte[] key) {
+    checkArgNotNull(key, "key");
+    return get(tx, key, 0, key.length, EMPTY, 0, 0);
+  }
+
+  /**
+   * Look up a key with the scratch buffer of the transaction.
+   *
+   * @return the scratch buffer holding the key and value MDB_vals or 0 if
+   * the key was not found.
+   */
+  private long getAddress(Transaction tx, DirectBuffer key) {
+    checkArgNotNull(tx, "tx");
+    checkArgNotNull(key, "key");
+    long address = tx.getBufferAddress();
+    Unsafe.putLong(address, 0, key.capacity());
+    Unsafe.putLong(address, 1, key.addressOffset());
+    int rc = mdb_get_address(tx.pointer(), pointer(), address, address + 2 * Unsafe.ADDRESS_SIZE);
+    if (rc == MDB_NOTFOUND) {
+      return 0;
+    }
+    checkErrorCode(rc);
+    return address;
+  }
+
   /**
    * @see org.fusesource.lmdbjni.Database#get(Transaction, byte[])
    */
   public byte[] get(byte[] key) {
     checkArgNotNull(key, "key");
-    Transaction tx = null;
+    ReadTransactionPool pool = env.getReadTransactionPool();
+    Transaction tx = pool.borrow();
     try {
-      tx = env.createReadTransaction();
       return get(tx, key);
     } finally {
-      if (tx != null) tx.close();
+      pool.release(tx);
     }
   }
 
@@ -216,6 +355,92 @@ public class Database extends NativeObject implements Closeable {
     }
   }
 
+  /**
+   * @see org.fusesource.lmdbjni.Database#get(Transaction, byte[], int, int, byte[], int, int)
+   */
+  public int get(Transaction tx, byte[] key, byte[] value) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    return get(tx, key, 0, key.length, value, 0, value.length);
+  }
+
+  /**
+   * <p>
+   * Get an item from a database into a caller supplied array.
+   * </p>
+   *
+   * The value is copied straight from the memory map into the array, without
+   * allocating. If the value is longer than valueLength only the first
+   * valueLength bytes are copied and the return value tells how large the
+   * array must be. The key is copied into native memory reused by the calling
+   * thread, so no array is pinned while LMDB runs.
+   *
+   * @param tx          transaction handle
+   * @param key         array holding the key
+   * @param keyOffset   start of the key in the array
+   * @param keyLength   length of the key
+   * @param value       array to copy the value into
+   * @param valueOffset start of the value in the array
+   * @param valueLength number of bytes available for the value
+   * @return the length of the value or -1 if the key was not found.
+   */
+  public int get(Transaction tx, byte[] key, int keyOffset, int keyLength,
+                 byte[] value, int valueOffset, int valueLength) {
+    checkArgNotNull(tx, "tx");
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    checkBounds(key, keyOffset, keyLength);
+    checkBounds(value, valueOffset, valueLength);
+    if (Unsafe.UNSAFE != null) {
+      long address = scratch(SCRATCH_VALS + keyLength);
+      long keyData = address + SCRATCH_VALS;
+      Unsafe.UNSAFE.copyMemory(key, Unsafe.ARRAY_BASE_OFFSET + keyOffset, null, keyData, keyLength);
+      Unsafe.putAddress(address, 0, keyLength);
+      Unsafe.putAddress(address, 1, keyData);
+      int rc = mdb_get_address(tx.pointer(), pointer(), address, address + 2 * Unsafe.ADDRESS_SIZE);
+      if (rc == MDB_NOTFOUND) {
+        return -1;
+      }
+      checkErrorCode(rc);
+      long size = Unsafe.getAddress(address, 2);
+      Unsafe.UNSAFE.copyMemory(null, Unsafe.getAddress(address, 3),
+        value, Unsafe.ARRAY_BASE_OFFSET + valueOffset, Math.min(size, valueLength));
+      return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+    NativeBuffer keyBuffer = NativeBuffer.create(key, keyOffset, keyLength);
+    try {
+      Value found = new Value();
+      int rc = mdb_get(tx.pointer(), pointer(), new Value(keyBuffer), found);
+      if (rc == MDB_NOTFOUND) {
+        return -1;
+      }
+      checkErrorCode(rc);
+      JNI.buffer_copy(found.mv_data, 0, value, valueOffset, Math.min(found.mv_size, valueLength));
+      return (int) Math.min(found.mv_size, Integer.MAX_VALUE);
+    } finally {
+      keyBuffer.delete();
+    }
+  }
+
+  /**
+   * @return the scratch area of the calling thread, at least size bytes.
+   */
+  private static long scratch(long size) {
+    DirectBuffer buffer = SCRATCH.get();
+    if (buffer == null || buffer.capacity() < size) {
+      buffer = new DirectBuffer(ByteBuffer.allocateDirect((int) Math.max(size, 1024)));
+      SCRATCH.set(buffer);
+    }
+    return buffer.addressOffset();
+  }
+
+  private static void checkBounds(byte[] array, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > array.length || offset + length < 0) {
+      throw new ArrayIndexOutOfBoundsException("offset " + offset + " and length " + length
+        + " exceed an array of length " + array.length);
+    }
+  }
+
   private byte[] get(Transaction tx, NativeBuffer keyBuffer) {
     return get(tx, new Value(keyBuffer));
   }
@@ -230,6 +455,36 @@ public class Database extends NativeObject implements Closeable {
     return value.toByteArray();
   }
 
+  /**
+   * @see org.fusesource.lmdbjni.Database#getAll(Transaction, GetBatch, boolean)
+   */
+  public int getAll(Transaction tx, GetBatch batch) {
+    return getAll(tx, batch, false);
+  }
+
+  /**
+   * <p>
+   *   Get the values of many keys with a single native call.
+   * </p>
+   *
+   * The keys are looked up with one cursor in database order, so that keys
+   * close to each other are found on the leaf page the cursor is already
+   * positioned on instead of descending the B-tree from the root for every
+   * key. If the database supports duplicate keys the first data item of
+   * each key is returned.
+   *
+   * @param tx transaction handle
+   * @param batch the keys to look up, receives the values found.
+   * @param sorted true if the keys were added in database order, which
+   *               skips sorting them.
+   * @return the number of keys found.
+   */
+  public int getAll(Transaction tx, GetBatch batch, boolean sorted) {
+    checkArgNotNull(tx, "tx");
+    checkArgNotNull(batch, "batch");
+    return batch.execute(tx, this, sorted);
+  }
+
   /**
    * <p>
    *   Creates a forward sequential iterator starting at
@@ -282,6 +537,36 @@ public class Database extends NativeObject implements Closeable {
     return iterate(tx, null, IteratorType.BACKWARD);
   }
 
+  /**
+   * <p>
+   *   Creates a forward sequential iterator over a key range.
+   * </p>
+   *
+   * The iterator stops at the end of the range without copying the
+   * entries past it.
+   *
+   * @param tx transaction handle
+   * @param range the keys to iterate
+   * @return a closable iterator handle.
+   */
+  public EntryIterator iterate(Transaction tx, KeyRange range) {
+    checkArgNotNull(range, "range");
+    return new EntryIterator(openCursor(tx), range, IteratorType.FORWARD);
+  }
+
+  /**
+   * <p>
+   *   Creates a backward sequential iterator over a key range, starting
+   *   at its upper bound.
+   * </p>
+   *
+   * @see org.fusesource.lmdbjni.Database#iterate(Transaction, KeyRange)
+   */
+  public EntryIterator iterateBackward(Transaction tx, KeyRange range) {
+    checkArgNotNull(range, "range");
+    return new EntryIterator(openCursor(tx), range, IteratorType.BACKWARD);
+  }
+
   private EntryIterator iterate(Transaction tx, byte[] key, IteratorType type) {
     Cursor cursor = openCursor(tx);
     return new EntryIterator(cursor, key, type);
@@ -472,6 +757,10 @@ public class Database extends NativeObject implements Closeable {
    *	<li>{@link org.fusesource.lmdbjni.Constants#APPENDDUP} - as above, but for
    *    sorted dup data.
    * </ul>
+   * <p>
+   * Keys and values up to 64 KiB are copied into native memory reused by the
+   * calling thread instead of being allocated for every put.
+   * </p>
    *
    * @return the existing value if it was a dup insert attempt.
    */
@@ -479,6 +768,21 @@ public class Database extends NativeObject implements Closeable {
     checkArgNotNull(tx, "tx");
     checkArgNotNull(key, "key");
     checkArgNotNull(value, "value");
+    if (Unsafe.UNSAFE != null && (flags & (MDB_NOOVERWRITE | MDB_RESERVE)) == 0
+      && (long) key.length + value.length <= MAX_SCRATCH_PUT) {
+      int keySpace = (key.length + 7) & ~7;
+      long address = scratch(SCRATCH_VALS + keySpace + value.length);
+      long keyData = address + SCRATCH_VALS;
+      long valueData = keyData + keySpace;
+      Unsafe.UNSAFE.copyMemory(key, Unsafe.ARRAY_BASE_OFFSET, null, keyData, key.length);
+      Unsafe.UNSAFE.copyMemory(value, Unsafe.ARRAY_BASE_OFFSET, null, valueData, value.length);
+      Unsafe.putAddress(address, 0, key.length);
+      Unsafe.putAddress(address, 1, keyData);
+      Unsafe.putAddress(address, 2, value.length);
+      Unsafe.putAddress(address, 3, valueData);
+      checkErrorCode(mdb_put_address(tx.pointer(), pointer(), address, address + 2 * Unsafe.ADDRESS_SIZE, flags));
+      return null;
+    }
     NativeBuffer keyBuffer = NativeBuffer.create(key);
     try {
       NativeBuffer valueBuffer = NativeBuffer.create(value);
@@ -692,6 +996,22 @@ public class Database extends NativeObject implements Closeable {
     return new Cursor(cursor[0], tx.isReadOnly());
   }
 
+  /**
+   * <p>
+   * Get the pool of read-only cursors of this database.
+   * </p>
+   *
+   * The pool is created on first use and closed when the database is closed.
+   *
+   * @return the cursor pool.
+   */
+  public synchronized CursorPool getCursorPool() {
+    if (cursorPool == null) {
+      cursorPool = new CursorPool(this);
+    }
+    return cursorPool;
+  }
+
   /**
    * <p>
    * Set a custom key comparison function for this database.
@@ -703,7 +1023,9 @@ public class Database extends NativeObject implements Closeable {
    * the keys are compared lexically, with shorter keys collating before longer keys.
    *
    * Keep in mind that the comparator is called a huge number of times in any db operation which
-   * will degrade performance substantially.
+   * will degrade performance substantially. Both keys are copied into new arrays for every
+   * comparison; {@link #setDirectComparator(Transaction, Comparator)} avoids the copies and
+   * {@link #setComparator(Transaction, NativeComparator)} avoids calling into Java at all.
    *
    * <p>
    *   Does not work on Android at the moment (related to hawtjni-callback).
@@ -733,6 +1055,10 @@ public class Database extends NativeObject implements Closeable {
    * Keep in mind that the comparator is called a huge number of times in any db operation which
    * will degrade performance substantially.
    *
+   * The buffers passed to the comparator are flyweights owned by the calling thread that
+   * point to memory of LMDB. They are rewrapped for the next comparison and must not be
+   * kept or modified.
+   *
    * <p>
    *   Does not work on Android at the moment (related to hawtjni-callback).
    * </p>
@@ -748,6 +1074,72 @@ public class Database extends NativeObject implements Closeable {
     JNI.mdb_set_compare(tx.pointer(), this.pointer(), directComparatorCallback.getAddress());
   }
 
+  /**
+   * <p>
+   * Set a native key comparison function for this database.
+   * </p>
+   *
+   * Keys are compared in native code without calling back into the JVM.
+   * The comparator must be set every time the database is opened, before
+   * any data is accessed.
+   *
+   * @param tx Transaction handle.
+   * @param comparator a native comparator
+   */
+  public void setComparator(Transaction tx, NativeComparator comparator) {
+    checkArgNotNull(comparator, "comparator");
+    setCompareFunction(tx, comparator.function(), false);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Database#setComparator(Transaction, NativeComparator)
+   */
+  public void setComparator(Transaction tx, TupleComparator comparator) {
+    checkArgNotNull(comparator, "comparator");
+    setCompareFunction(tx, comparator.function(), false);
+  }
+
+  /**
+   * <p>
+   * Set a native data comparison function for a database opened with
+   * {@link org.fusesource.lmdbjni.Constants#DUPSORT}.
+   * </p>
+   *
+   * @param tx Transaction handle.
+   * @param comparator a native comparator
+   * @see org.fusesource.lmdbjni.Database#setComparator(Transaction, NativeComparator)
+   */
+  public void setDupComparator(Transaction tx, NativeComparator comparator) {
+    checkArgNotNull(comparator, "comparator");
+    setCompareFunction(tx, comparator.function(), true);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.Database#setDupComparator(Transaction, NativeComparator)
+   */
+  public void setDupComparator(Transaction tx, TupleComparator comparator) {
+    checkArgNotNull(comparator, "comparator");
+    setCompareFunction(tx, comparator.function(), true);
+  }
+
+  private void setCompareFunction(Transaction tx, long function, boolean dup) {
+    checkArgNotNull(tx, "tx");
+    if (dup) {
+      checkErrorCode(JNI.mdb_set_dupsort(tx.pointer(), pointer(), function));
+      return;
+    }
+    checkErrorCode(JNI.mdb_set_compare(tx.pointer(), pointer(), function));
+    // the callbacks of a replaced Java comparator are no longer called
+    if (comparatorCallback != null) {
+      comparatorCallback.dispose();
+      comparatorCallback = null;
+    }
+    if (directComparatorCallback != null) {
+      directComparatorCallback.dispose();
+      directComparatorCallback = null;
+    }
+  }
+
   private static final class ByteArrayComparator {
     Comparator<byte[]> comparator;
 
@@ -756,38 +1148,40 @@ public class Database extends NativeObject implements Closeable {
     }
 
     public long compare(long ptr1, long ptr2) {
-      int size = (int) Unsafe.getLong(ptr1, 0);
-      long address = Unsafe.getAddress(ptr1, 1);
-      DirectBuffer key1 = new DirectBuffer();
-      key1.wrap(address, size);
-      byte[] key1Bytes = new byte[size];
-      key1.getBytes(0, key1Bytes);
-      size = (int) Unsafe.getLong(ptr2, 0);
-      address = Unsafe.getAddress(ptr2, 1);
-      DirectBuffer key2 = new DirectBuffer();
-      key2.wrap(address, size);
-      byte[] key2Bytes = new byte[size];
-      key2.getBytes(0, key2Bytes);
-      return comparator.compare(key1Bytes, key2Bytes);
+      return comparator.compare(toBytes(ptr1), toBytes(ptr2));
+    }
+
+    private static byte[] toBytes(long ptr) {
+      byte[] bytes = new byte[(int) Unsafe.getLong(ptr, 0)];
+      Unsafe.getBytes(Unsafe.getAddress(ptr, 1), 0, bytes);
+      return bytes;
     }
   }
 
   private static final class DirectBufferComparator {
     Comparator<DirectBuffer> comparator;
 
+    /**
+     * Flyweights rewrapped for every comparison, a comparator callback is
+     * invoked on the thread of the LMDB operation.
+     */
+    private final ThreadLocal<DirectBuffer[]> keys = new ThreadLocal<DirectBuffer[]>() {
+      @Override
+      protected DirectBuffer[] initialValue() {
+        return new DirectBuffer[]{new DirectBuffer(0, 0), new DirectBuffer(0, 0)};
+      }
+    };
+
     public DirectBufferComparator(Comparator<DirectBuffer> comparator) {
       this.comparator = comparator;
     }
 
     public long compare(long ptr1, long ptr2) {
-      int size = (int) Unsafe.getLong(ptr1, 0);
-      long address = Unsafe.getAddress(ptr1, 1);
-      DirectBuffer key1 = new DirectBuffer();
-      key1.wrap(address, size);
-      size = (int) Unsafe.getLong(ptr2, 0);
-      address = Unsafe.getAddress(ptr2, 1);
-      DirectBuffer key2 = new DirectBuffer();
-      key2.wrap(address, size);
+      DirectBuffer[] buffers = keys.get();
+      DirectBuffer key1 = buffers[0];
+      DirectBuffer key2 = buffers[1];
+      key1.wrap(Unsafe.getAddress(ptr1, 1), (int) Unsafe.getLong(ptr1, 0));
+      key2.wrap(Unsafe.getAddress(ptr2, 1), (int) Unsafe.getLong(ptr2, 0));
       return comparator.compare(key1, key2);
     }
   }
@@ -93,6 +93,8 @@ public class DirectBuffer {
   private static final byte[] NULL_BYTES = GetUTF8Bytes("null");
   private static final ByteOrder NATIVE_BYTE_ORDER = ByteOrder.nativeOrder();
   private static final long ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+  private static final long LONG_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(long[].class);
+  private static final long INT_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
 
   private byte[] byteArray;
   private ByteBuffer byteBuffer;
@@ -164,16 +166,20 @@ public class DirectBuffer {
 
   public void wrap(final ByteBuffer buffer) {
     byteBuffer = buffer;
+    byteArray = buffer.hasArray() ? buffer.array() : null;
+    addressOffset = addressOf(buffer);
+    capacity = buffer.capacity();
+  }
 
+  /**
+   * @return the offset of the first byte of a heap buffer in its array, or
+   * the native address of a direct buffer.
+   */
+  static long addressOf(final ByteBuffer buffer) {
     if (buffer.hasArray()) {
-      byteArray = buffer.array();
-      addressOffset = ARRAY_BASE_OFFSET + buffer.arrayOffset();
-    } else {
-      byteArray = null;
-      addressOffset = ((sun.nio.ch.DirectBuffer) buffer).address();
+      return ARRAY_BASE_OFFSET + buffer.arrayOffset();
     }
-
-    capacity = buffer.capacity();
+    return ((sun.nio.ch.DirectBuffer) buffer).address();
   }
 
   public void wrap(final long address, final int capacity) {
@@ -517,6 +523,105 @@ public class DirectBuffer {
     return count;
   }
 
+  /**
+   * Copy consecutive longs starting at index into an array, e.g. a page of
+   * {@link org.fusesource.lmdbjni.Constants#DUPFIXED} values.
+   *
+   * @param index     position of the first long in the buffer.
+   * @param dst       array to copy into.
+   * @param offset    position of the first long in the array.
+   * @param length    maximum number of longs to copy.
+   * @param byteOrder byte order of the longs in the buffer.
+   * @return the number of longs copied, limited by the buffer and the array.
+   */
+  public int getLongs(final int index, final long[] dst, final int offset, final int length, final ByteOrder byteOrder) {
+    boundsCheck(index, 0);
+    int count = Math.min(length, (capacity - index) / SIZE_OF_LONG);
+    count = Math.min(count, dst.length - offset);
+
+    boundsCheck(index, count * SIZE_OF_LONG);
+
+    if (NATIVE_BYTE_ORDER == byteOrder) {
+      UNSAFE.copyMemory(byteArray, addressOffset + index, dst,
+        LONG_ARRAY_BASE_OFFSET + (long) offset * SIZE_OF_LONG, (long) count * SIZE_OF_LONG);
+    } else {
+      for (int i = 0; i < count; i++) {
+        dst[offset + i] = Long.reverseBytes(UNSAFE.getLong(byteArray, addressOffset + index + (long) i * SIZE_OF_LONG));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Copy consecutive ints starting at index into an array.
+   *
+   * @return the number of ints copied, limited by the buffer and the array.
+   * @see org.fusesource.lmdbjni.DirectBuffer#getLongs(int, long[], int, int, ByteOrder)
+   */
+  public int getInts(final int index, final int[] dst, final int offset, final int length, final ByteOrder byteOrder) {
+    boundsCheck(index, 0);
+    int count = Math.min(length, (capacity - index) / SIZE_OF_INT);
+    count = Math.min(count, dst.length - offset);
+
+    boundsCheck(index, count * SIZE_OF_INT);
+
+    if (NATIVE_BYTE_ORDER == byteOrder) {
+      UNSAFE.copyMemory(byteArray, addressOffset + index, dst,
+        INT_ARRAY_BASE_OFFSET + (long) offset * SIZE_OF_INT, (long) count * SIZE_OF_INT);
+    } else {
+      for (int i = 0; i < count; i++) {
+        dst[offset + i] = Integer.reverseBytes(UNSAFE.getInt(byteArray, addressOffset + index + (long) i * SIZE_OF_INT));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Copy longs from an array into the buffer starting at index.
+   *
+   * @param index     position of the first long in the buffer.
+   * @param src       array to copy from.
+   * @param offset    position of the first long in the array.
+   * @param length    number of longs to copy.
+   * @param byteOrder byte order of the longs in the buffer.
+   */
+  public void putLongs(final int index, final long[] src, final int offset, final int length, final ByteOrder byteOrder) {
+    if (offset < 0 || length < 0 || offset > src.length - length) {
+      throw new IndexOutOfBoundsException(String.format("offset=%d, length=%d, array length=%d", offset, length, src.length));
+    }
+    boundsCheck(index, length * SIZE_OF_LONG);
+
+    if (NATIVE_BYTE_ORDER == byteOrder) {
+      UNSAFE.copyMemory(src, LONG_ARRAY_BASE_OFFSET + (long) offset * SIZE_OF_LONG,
+        byteArray, addressOffset + index, (long) length * SIZE_OF_LONG);
+    } else {
+      for (int i = 0; i < length; i++) {
+        UNSAFE.putLong(byteArray, addressOffset + index + (long) i * SIZE_OF_LONG, Long.reverseBytes(src[offset + i]));
+      }
+    }
+  }
+
+  /**
+   * Copy ints from an array into the buffer starting at index.
+   *
+   * @see org.fusesource.lmdbjni.DirectBuffer#putLongs(int, long[], int, int, ByteOrder)
+   */
+  public void putInts(final int index, final int[] src, final int offset, final int length, final ByteOrder byteOrder) {
+    if (offset < 0 || length < 0 || offset > src.length - length) {
+      throw new IndexOutOfBoundsException(String.format("offset=%d, length=%d, array length=%d", offset, length, src.length));
+    }
+    boundsCheck(index, length * SIZE_OF_INT);
+
+    if (NATIVE_BYTE_ORDER == byteOrder) {
+      UNSAFE.copyMemory(src, INT_ARRAY_BASE_OFFSET + (long) offset * SIZE_OF_INT,
+        byteArray, addressOffset + index, (long) length * SIZE_OF_INT);
+    } else {
+      for (int i = 0; i < length; i++) {
+        UNSAFE.putInt(byteArray, addressOffset + index + (long) i * SIZE_OF_INT, Integer.reverseBytes(src[offset + i]));
+      }
+    }
+  }
+
   public void getBytes(final int index, final DirectBuffer dstBuffer, final int dstIndex, final int length) {
     dstBuffer.putBytes(dstIndex, this, index, length);
   }
@@ -0,0 +1,217 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A batch of entries collected by moving a cursor many times in a single native
+ * call, see {@link Cursor#getBatch(GetOp, GetOp, EntryBatch)} and
+ * {@link BufferCursor#nextBatch(EntryBatch)}.
+ * </p>
+ *
+ * The addresses and sizes of the keys and values are packed off-heap as pairs of
+ * MDB_val structures, no data is copied. Keys and values refer to memory owned by
+ * LMDB and are only valid until the transaction ends or the next update operation.
+ * A fill stops after {@link #capacity()} entries or once the key and value bytes
+ * visited reach the byte budget of the batch.
+ *
+ * <pre>
+ * EntryBatch batch = new EntryBatch(1024);
+ * while (cursor.nextBatch(batch)) {
+ *   for (int i = 0; i &lt; batch.size(); i++) {
+ *     DirectBuffer key = batch.key(i);
+ *     DirectBuffer value = batch.val(i);
+ *   }
+ * }
+ * </pre>
+ *
+ * With {@link #keysOnly()} or {@link #projectValue(int, int)} only the keys or a
+ * slice of every value are collected, which keeps large values out of the scan and
+ * its byte budget.
+ * <p>
+ * The buffers returned by {@link #key(int)} and {@link #val(int)} are flyweights
+ * that are rewrapped on every call. A batch is not thread safe. Not available on
+ * Android.
+ */
+public class EntryBatch {
+  /** words per entry, key size and data pointer followed by value size and data pointer */
+  private static final int ENTRY_WORDS = 4;
+
+  private final ByteBuffer entries;
+  private final long address;
+  private final int capacity;
+  private final long maxBytes;
+  private final DirectBuffer key = new DirectBuffer(0, 0);
+  private final DirectBuffer value = new DirectBuffer(0, 0);
+  private int valueOffset = 0;
+  private int valueLength = -1;
+  private int size;
+  private boolean exhausted;
+
+  /**
+   * @param capacity maximum number of entries per fill.
+   */
+  public EntryBatch(int capacity) {
+    this(capacity, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param capacity maximum number of entries per fill.
+   * @param maxBytes byte budget per fill, a fill stops after the entry whose
+   *                 key and value bytes reach it.
+   */
+  public EntryBatch(int capacity, long maxBytes) {
+    if (capacity < 1 || maxBytes < 1) {
+      throw new IllegalArgumentException("capacity and maxBytes must be positive");
+    }
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+    // one extra word for the count
+    this.entries = ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * (ENTRY_WORDS * capacity + 1));
+    this.address = new DirectBuffer(entries).addressOffset();
+  }
+
+  /**
+   * Collect keys only. Values are empty and, unless the database is
+   * {@link org.fusesource.lmdbjni.Constants#DUPSORT}, not read at all.
+   *
+   * @return this batch.
+   */
+  public EntryBatch keysOnly() {
+    return projectValue(0, 0);
+  }
+
+  /**
+   * Collect a slice of every value instead of the whole value. Values shorter
+   * than the slice are cut short.
+   *
+   * @param offset start of the slice.
+   * @param length maximum length of the slice, 0 for keys only.
+   * @return this batch.
+   */
+  public EntryBatch projectValue(int offset, int length) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("offset and length must not be negative");
+    }
+    this.valueOffset = offset;
+    this.valueLength = length;
+    return this;
+  }
+
+  /**
+   * @return number of entries collected by the last fill.
+   */
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return true if the last fill stopped because the cursor ran out of entries.
+   */
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  public int keyLength(int index) {
+    return (int) Unsafe.getAddress(address, word(index));
+  }
+
+  public int valLength(int index) {
+    return (int) Unsafe.getAddress(address, word(index) + 2);
+  }
+
+  /**
+   * @return a flyweight wrapping the key at the index.
+   */
+  public DirectBuffer key(int index) {
+    key(index, key);
+    return key;
+  }
+
+  /**
+   * @return a flyweight wrapping the value at the index.
+   */
+  public DirectBuffer val(int index) {
+    val(index, value);
+    return value;
+  }
+
+  /**
+   * Wrap the key at the index into the provided buffer.
+   */
+  public void key(int index, DirectBuffer buffer) {
+    int word = word(index);
+    buffer.wrap(Unsafe.getAddress(address, word + 1), (int) Unsafe.getAddress(address, word));
+  }
+
+  /**
+   * Wrap the value at the index into the provided buffer.
+   */
+  public void val(int index, DirectBuffer buffer) {
+    int word = word(index);
+    buffer.wrap(Unsafe.getAddress(address, word + 3), (int) Unsafe.getAddress(address, word + 2));
+  }
+
+  /**
+   * @return a copy of the key at the index.
+   */
+  public byte[] keyBytes(int index) {
+    int word = word(index);
+    byte[] bytes = new byte[(int) Unsafe.getAddress(address, word)];
+    Unsafe.getBytes(Unsafe.getAddress(address, word + 1), 0, bytes);
+    return bytes;
+  }
+
+  /**
+   * @return a copy of the value at the index.
+   */
+  public byte[] valBytes(int index) {
+    int word = word(index);
+    byte[] bytes = new byte[(int) Unsafe.getAddress(address, word + 2)];
+    Unsafe.getBytes(Unsafe.getAddress(address, word + 3), 0, bytes);
+    return bytes;
+  }
+
+  /**
+   * Move the cursor and collect the entries.
+   *
+   * @return the number of entries collected.
+   */
+  int fill(long cursor, int firstOp, int op) {
+    long countAddress = address + (long) Unsafe.ADDRESS_SIZE * ENTRY_WORDS * capacity;
+    int rc = JNI.lmdbjni_cursor_scan(cursor, firstOp, op, capacity, maxBytes, valueOffset, valueLength, address, countAddress);
+    size = (int) Unsafe.getAddress(countAddress, 0);
+    exhausted = rc == JNI.MDB_NOTFOUND;
+    if (!exhausted) {
+      Util.checkErrorCode(rc);
+    }
+    return size;
+  }
+
+  /**
+   * Seek the key, then move the cursor and collect the entries.
+   *
+   * @return the number of entries collected.
+   */
+  int fill(long cursor, int firstOp, int op, DirectBuffer key) {
+    // the first seek reads its input key from the first entry
+    Unsafe.putAddress(address, 0, key.capacity());
+    Unsafe.putAddress(address, 1, key.addressOffset());
+    return fill(cursor, firstOp, op);
+  }
+
+  private int word(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+    }
+    return ENTRY_WORDS * index;
+  }
+}
@@ -1,6 +1,7 @@
 package org.fusesource.lmdbjni;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -16,23 +17,143 @@ import java.util.NoSuchElementException;
  * }
  * }
  * </pre>
+ * <p>
+ * By default every entry holds a copy of its key and value. Large scans can avoid
+ * the copies with {@link #flyweight()}, which reuses a single {@link BufferEntry}
+ * pointing into the memory map, or {@link #lazy()}, which only copies a key or value
+ * when it is asked for. Scans that need only the keys, or a few bytes of every
+ * value, can skip the rest with {@link #keysOnly()} or {@link #projectValue(int, int)}.
+ * </p>
  */
 public class EntryIterator implements Iterator<Entry>, Closeable {
   private final Cursor cursor;
   private final IteratorType type;
   private final byte[] key;
+  private final KeyRange range;
   private State state = State.NOT_READY;
+  private Mode mode = Mode.COPY;
+  private BufferEntry flyweight;
+  private boolean keysOnly;
+  private int valueOffset = 0;
+  private int valueLength = -1;
 
   EntryIterator(Cursor cursor, byte[] key, IteratorType type) {
     this.cursor = cursor;
     this.type = type;
     this.key = key;
+    this.range = null;
+  }
+
+  EntryIterator(Cursor cursor, KeyRange range, IteratorType type) {
+    this.cursor = cursor;
+    this.type = type;
+    this.key = null;
+    this.range = range;
   }
 
   private enum State {
     READY, NOT_READY, DONE, FAILED,
   }
 
+  private enum Mode {
+    COPY, FLYWEIGHT, LAZY
+  }
+
+  /**
+   * <p>
+   * Return the same {@link BufferEntry} for every entry, with buffers pointing
+   * into the memory map.
+   * </p>
+   *
+   * The entry is only valid until the next call to {@link #hasNext()} or
+   * {@link #next()}. Must be called before iterating.
+   *
+   * <pre>
+   * {@code
+   * try (EntryIterator it = db.iterate(tx).flyweight()) {
+   *   for (Entry next : it.iterable()) {
+   *     DirectBuffer key = ((BufferEntry) next).keyBuffer();
+   *   }
+   * }
+   * }
+   * </pre>
+   *
+   * @return this iterator.
+   */
+  public EntryIterator flyweight() {
+    setMode(Mode.FLYWEIGHT);
+    flyweight = new BufferEntry();
+    return this;
+  }
+
+  /**
+   * <p>
+   * Return entries that copy their key and value out of the memory map when
+   * {@link Entry#getKey()} or {@link Entry#getValue()} is first called.
+   * </p>
+   *
+   * Entries must be read before the transaction ends or, in a write transaction,
+   * before the next update. Must be called before iterating.
+   *
+   * @return this iterator.
+   */
+  public EntryIterator lazy() {
+    setMode(Mode.LAZY);
+    flyweight = new BufferEntry();
+    return this;
+  }
+
+  /**
+   * <p>
+   * Return entries with empty values.
+   * </p>
+   *
+   * Unless the database is {@link org.fusesource.lmdbjni.Constants#DUPSORT} the
+   * values are not read at all, so a scan costs about the same whatever the size
+   * of the values. Can be combined with {@link #flyweight()} and {@link #lazy()}.
+   * Must be called before iterating.
+   *
+   * @return this iterator.
+   */
+  public EntryIterator keysOnly() {
+    checkNotStarted();
+    keysOnly = true;
+    valueLength = 0;
+    return this;
+  }
+
+  /**
+   * Return entries whose value is a slice of at most length bytes starting at
+   * offset of the stored value, e.g. a type tag or timestamp. Values shorter than
+   * the slice are cut short. Can be combined with {@link #flyweight()} and
+   * {@link #lazy()}. Must be called before iterating.
+   *
+   * @param offset start of the slice.
+   * @param length maximum length of the slice.
+   * @return this iterator.
+   */
+  public EntryIterator projectValue(int offset, int length) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("offset and length must not be negative");
+    }
+    checkNotStarted();
+    keysOnly = false;
+    valueOffset = offset;
+    valueLength = length;
+    return this;
+  }
+
+  private void setMode(Mode mode) {
+    checkNotStarted();
+    this.mode = mode;
+  }
+
+  private void checkNotStarted() {
+    if (!first) {
+      throw new IllegalStateException("Iteration has already started");
+    }
+  }
+
   private Entry entry;
   private boolean first = true;
 
@@ -49,7 +170,22 @@ public class EntryIterator implements Iterator<Entry>, Closeable {
   }
 
   private boolean tryToComputeNext() {
-    if (first) {
+    if (mode != Mode.COPY || valueLength >= 0) {
+      return positionNext();
+    }
+    if (range != null) {
+      boolean forward = type == IteratorType.FORWARD;
+      if (first) {
+        this.entry = cursor.get(range, forward ? GetOp.FIRST : GetOp.LAST);
+        first = false;
+      } else {
+        this.entry = cursor.get(range, forward ? GetOp.NEXT : GetOp.PREV);
+      }
+      if (entry == null) {
+        state = State.DONE;
+        return false;
+      }
+    } else if (first) {
       if (key != null) {
         this.entry = cursor.seek(SeekOp.RANGE, key);
       } else {
@@ -79,6 +215,54 @@ public class EntryIterator implements Iterator<Entry>, Closeable {
     return true;
   }
 
+  /**
+   * Move the cursor without copying, into the buffers of the flyweight entry.
+   */
+  private boolean positionNext() {
+    if (flyweight == null) {
+      flyweight = new BufferEntry();
+    }
+    DirectBuffer k = flyweight.keyBuffer();
+    DirectBuffer v = flyweight.valBuffer();
+    boolean forward = type == IteratorType.FORWARD;
+    int rc;
+    if (keysOnly && (key == null || !first)) {
+      GetOp op = first ? (forward ? GetOp.FIRST : GetOp.LAST) : (forward ? GetOp.NEXT : GetOp.PREV);
+      rc = cursor.positionKey(k, range != null ? range : KeyRange.all(), op);
+      v.wrap(0, 0);
+    } else if (range != null) {
+      rc = cursor.position(k, v, range, first ? (forward ? GetOp.FIRST : GetOp.LAST) : (forward ? GetOp.NEXT : GetOp.PREV));
+    } else if (!first) {
+      rc = cursor.position(k, v, forward ? GetOp.NEXT : GetOp.PREV);
+    } else if (key != null) {
+      k.wrap(ByteBuffer.allocateDirect(key.length));
+      k.putBytes(0, key);
+      rc = cursor.seekPosition(k, v, SeekOp.RANGE);
+    } else {
+      rc = cursor.position(k, v, forward ? GetOp.FIRST : GetOp.LAST);
+    }
+    first = false;
+    if (rc != 0) {
+      state = State.DONE;
+      return false;
+    }
+    if (valueLength >= 0) {
+      Cursor.projectValue(v, valueOffset, valueLength);
+    }
+    switch (mode) {
+      case LAZY:
+        entry = new LazyEntry(k, v);
+        break;
+      case FLYWEIGHT:
+        entry = flyweight;
+        break;
+      default:
+        entry = new Entry(BufferEntry.copy(k), BufferEntry.copy(v));
+    }
+    state = State.READY;
+    return true;
+  }
+
   @Override
   public Entry next() throws NoSuchElementException {
     if (!hasNext()) {
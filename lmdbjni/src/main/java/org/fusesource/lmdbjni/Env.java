@@ -19,6 +19,10 @@
 package org.fusesource.lmdbjni;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.fusesource.lmdbjni.JNI.*;
 import static org.fusesource.lmdbjni.Util.*;
 
@@ -33,6 +37,13 @@ public class Env extends NativeObject implements Closeable {
     return string(JNI.MDB_VERSION_STRING);
   }
   private boolean open = false;
+  private volatile MapGrowthPolicy mapGrowthPolicy;
+  /** number of top level transactions of this process that hold a snapshot */
+  private final AtomicInteger activeTransactions = new AtomicInteger();
+  private final Object resizeLock = new Object();
+  private volatile boolean resizing = false;
+  private ReadTransactionPool readTransactionPool;
+  private volatile SyncScheduler syncScheduler;
 
   /**
    * Create an environment handle and open it at the same time with
@@ -205,6 +216,16 @@ public class Env extends NativeObject implements Closeable {
    */
   @Override
   public void close() {
+    SyncScheduler scheduler = syncScheduler;
+    if (scheduler != null) {
+      scheduler.close();
+    }
+    synchronized (this) {
+      if (readTransactionPool != null) {
+        readTransactionPool.close();
+        readTransactionPool = null;
+      }
+    }
     if (self != 0) {
       mdb_env_close(self);
       self = 0;
@@ -244,7 +265,7 @@ public class Env extends NativeObject implements Closeable {
    */
   public void copyCompact(String path) {
     checkArgNotNull(path, "path");
-    checkErrorCode(mdb_env_copy2(pointer(), path, 1));
+    checkErrorCode(mdb_env_copy2(pointer(), path, MDB_CP_COMPACT));
   }
 
   /**
@@ -266,6 +287,31 @@ public class Env extends NativeObject implements Closeable {
     checkErrorCode(mdb_env_sync(pointer(), force ? 1 : 0));
   }
 
+  /**
+   * @return the scheduler flushing this environment, or null.
+   * @see org.fusesource.lmdbjni.SyncScheduler#start()
+   */
+  public SyncScheduler getSyncScheduler() {
+    return syncScheduler;
+  }
+
+  synchronized void setSyncScheduler(SyncScheduler scheduler) {
+    if (scheduler != null && syncScheduler != null) {
+      throw new IllegalStateException("Environment already has a sync scheduler");
+    }
+    this.syncScheduler = scheduler;
+  }
+
+  /**
+   * Report a commit of a top level write transaction to the sync scheduler.
+   */
+  void committed(long txnId) {
+    SyncScheduler scheduler = syncScheduler;
+    if (scheduler != null) {
+      scheduler.committed(txnId);
+    }
+  }
+
   /**
    * <p>
    *   Set the size of the memory map to use for this environment.
@@ -306,6 +352,147 @@ public class Env extends NativeObject implements Closeable {
     checkErrorCode(mdb_env_set_mapsize(pointer(), unit.toBytes(size)));
   }
 
+  /**
+   * <p>
+   *   Set the policy used to grow the memory map when a write transaction
+   *   executed through {@link #executeWrite(TransactionWork)} fails with
+   *   {@link org.fusesource.lmdbjni.LMDBException#MAP_FULL}.
+   * </p>
+   *
+   * Growing the map requires that no transactions of this process are active.
+   * Transactions created through this environment are tracked; a resize waits
+   * for the active ones to complete and holds back new ones until the map has
+   * been resized.
+   *
+   * @param policy the growth policy or null to disable automatic growth.
+   */
+  public void setMapGrowthPolicy(MapGrowthPolicy policy) {
+    this.mapGrowthPolicy = policy;
+  }
+
+  public MapGrowthPolicy getMapGrowthPolicy() {
+    return mapGrowthPolicy;
+  }
+
+  /**
+   * <p>
+   *   Execute a unit of work in a write transaction and commit it.
+   * </p>
+   *
+   * If a put or the commit fails with {@link org.fusesource.lmdbjni.LMDBException#MAP_FULL}
+   * and a {@link org.fusesource.lmdbjni.MapGrowthPolicy} is set, the transaction is aborted,
+   * the memory map is grown and the work is replayed in a new transaction. The work
+   * must not commit or abort the transaction itself.
+   *
+   * @param work the unit of work, possibly invoked several times.
+   * @return the result of the last invocation of the work.
+   */
+  public <T> T executeWrite(TransactionWork<T> work) {
+    checkArgNotNull(work, "work");
+    while (true) {
+      Transaction tx = createWriteTransaction();
+      try {
+        T result = work.execute(tx);
+        tx.commit();
+        return result;
+      } catch (LMDBException e) {
+        if (e.getErrorCode() != LMDBException.MAP_FULL || mapGrowthPolicy == null) {
+          throw e;
+        }
+        long failedSize = info().getMapSize();
+        tx.abort();
+        growMapSize(failedSize, e);
+      } finally {
+        tx.abort();
+      }
+    }
+  }
+
+  private void growMapSize(long failedSize, LMDBException cause) {
+    MapGrowthPolicy policy = mapGrowthPolicy;
+    if (policy == null) {
+      throw cause;
+    }
+    synchronized (resizeLock) {
+      long current = info().getMapSize();
+      if (current > failedSize) {
+        // another thread already grew the map
+        return;
+      }
+      long size = policy.nextSize(current, stat().ms_psize);
+      if (size <= current) {
+        throw cause;
+      }
+      resize(size, policy.getQuiesceTimeoutMillis(), cause);
+    }
+  }
+
+  /**
+   * Adopt a map size that was increased by another process.
+   */
+  void adoptMapSize() {
+    MapGrowthPolicy policy = mapGrowthPolicy;
+    long timeout = policy == null ? MapGrowthPolicy.DEFAULT_QUIESCE_TIMEOUT_MILLIS : policy.getQuiesceTimeoutMillis();
+    synchronized (resizeLock) {
+      resize(0, timeout, new LMDBException("Timed out waiting for transactions to complete before adopting the new map size",
+        LMDBException.MAP_RESIZED));
+    }
+  }
+
+  private void resize(long size, long timeoutMillis, LMDBException timeout) {
+    resizing = true;
+    try {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      while (activeTransactions.get() > 0) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw timeout;
+        }
+        try {
+          resizeLock.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw timeout;
+        }
+      }
+      checkErrorCode(mdb_env_set_mapsize(pointer(), size));
+    } finally {
+      resizing = false;
+      resizeLock.notifyAll();
+    }
+  }
+
+  void enterTransaction() {
+    while (true) {
+      activeTransactions.incrementAndGet();
+      if (!resizing) {
+        return;
+      }
+      leaveTransaction();
+      synchronized (resizeLock) {
+        boolean interrupted = false;
+        while (resizing) {
+          try {
+            resizeLock.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  void leaveTransaction() {
+    if (activeTransactions.decrementAndGet() == 0 && resizing) {
+      synchronized (resizeLock) {
+        resizeLock.notifyAll();
+      }
+    }
+  }
+
   /**
    * <p>
    *  Set the maximum number of named databases for the environment.
@@ -445,12 +632,52 @@ public class Env extends NativeObject implements Closeable {
    * If {@link org.fusesource.lmdbjni.Constants#NOTLS} is in use, this does not apply to
    * read-only transactions.
    * @note Cursors may not span transactions.
+   * <p>
+   * If the map size was increased by another process, the new size is
+   * adopted transparently instead of failing with
+   * {@link org.fusesource.lmdbjni.LMDBException#MAP_RESIZED}.
+   * </p>
    */
   public Transaction createTransaction(Transaction parent, boolean readOnly) {
     checkOpen();
+    if (parent != null) {
+      long txpointer[] = new long[1];
+      checkErrorCode(mdb_txn_begin(pointer(), parent.pointer(), readOnly ? MDB_RDONLY : 0, txpointer));
+      return new Transaction(this, txpointer[0], readOnly, false);
+    }
     long txpointer[] = new long[1];
-    checkErrorCode(mdb_txn_begin(pointer(), parent == null ? 0 : parent.pointer(), readOnly ? MDB_RDONLY : 0, txpointer));
-    return new Transaction(txpointer[0], readOnly);
+    enterTransaction();
+    int rc = mdb_txn_begin(pointer(), 0, readOnly ? MDB_RDONLY : 0, txpointer);
+    if (rc == LMDBException.MAP_RESIZED) {
+      leaveTransaction();
+      adoptMapSize();
+      enterTransaction();
+      rc = mdb_txn_begin(pointer(), 0, readOnly ? MDB_RDONLY : 0, txpointer);
+    }
+    if (rc != 0) {
+      leaveTransaction();
+    }
+    checkErrorCode(rc);
+    return new Transaction(this, txpointer[0], readOnly, true);
+  }
+
+  /**
+   * <p>
+   * Get the pool of read-only transactions of this environment.
+   * </p>
+   *
+   * The pool is created on first use and closed when the environment is closed.
+   * It is used by the convenience read methods of {@link org.fusesource.lmdbjni.Database}
+   * that do not take a transaction argument.
+   *
+   * @return the read transaction pool.
+   */
+  public synchronized ReadTransactionPool getReadTransactionPool() {
+    checkOpen();
+    if (readTransactionPool == null) {
+      readTransactionPool = new ReadTransactionPool(this);
+    }
+    return readTransactionPool;
   }
 
   /**
@@ -573,6 +800,35 @@ public class Env extends NativeObject implements Closeable {
     return staleSlots[0];
   }
 
+  /**
+   * <p>
+   * List the readers holding a slot in the reader lock table, including the
+   * readers of other processes.
+   * </p>
+   *
+   * A reader on an old snapshot keeps the pages freed since then from being
+   * reused, so a large {@link ReaderInfo#getLag()} points at a stuck read
+   * transaction that lets the data file grow.
+   *
+   * @return the readers in slot order.
+   */
+  public List<ReaderInfo> readerList() {
+    EnvInfo info = info();
+    int[] count = new int[1];
+    long[] entries = new long[3 * (int) info.getNumReaders()];
+    checkErrorCode(lmdbjni_reader_list(pointer(), entries, entries.length / 3, count));
+    while (count[0] > entries.length / 3) {
+      // readers were added after the environment info was read
+      entries = new long[3 * count[0] + 24];
+      checkErrorCode(lmdbjni_reader_list(pointer(), entries, entries.length / 3, count));
+    }
+    List<ReaderInfo> readers = new ArrayList<ReaderInfo>(count[0]);
+    for (int i = 0; i < count[0]; i++) {
+      readers.add(new ReaderInfo(entries[3 * i], entries[3 * i + 1], entries[3 * i + 2], info.getLastTxnId()));
+    }
+    return readers;
+  }
+
   private void checkOpen() {
     if (!open) {
       throw new LMDBException("Environment not open yet.");
@@ -0,0 +1,232 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A batch of keys that are looked up with a single native call using
+ * {@link Database#getAll(Transaction, GetBatch)}.
+ * </p>
+ *
+ * The keys are packed off-heap as an array of MDB_val structures. Keys added as
+ * byte arrays are copied into the batch while keys added as DirectBuffer are only
+ * referenced and must stay valid until the lookup is done. After the lookup, values
+ * refer to memory owned by LMDB and are only valid until the transaction ends or
+ * the next update operation. An empty key is reported as not found.
+ *
+ * <pre>
+ * GetBatch batch = new GetBatch();
+ * batch.add(key1).add(key2);
+ * db.getAll(tx, batch);
+ * for (int i = 0; i &lt; batch.size(); i++) {
+ *   if (batch.isFound(i)) {
+ *     batch.getValue(i, value);
+ *   }
+ * }
+ * </pre>
+ *
+ * A batch may be reused after {@link #clear()} but must not be used by several
+ * threads concurrently. Not available on Android.
+ */
+public class GetBatch {
+  /** words per MDB_val, size and data pointer */
+  private static final int VAL_WORDS = 2;
+
+  private ByteBuffer entries;
+  private long address;
+  private int capacity;
+  private int size;
+  private long found;
+
+  private ByteBuffer keyData;
+  private long keyDataAddress;
+  private int keyDataPosition;
+  /** offset of a copied key in keyData or -1 if the key is referenced */
+  private int[] keyOffsets;
+
+  public GetBatch() {
+    this(64);
+  }
+
+  /**
+   * @param capacity initial number of keys, the batch grows as needed.
+   */
+  public GetBatch(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    allocate(capacity);
+    keyOffsets = new int[capacity];
+  }
+
+  /**
+   * Add a key that is referenced, not copied.
+   */
+  public GetBatch add(DirectBuffer key) {
+    Util.checkArgNotNull(key, "key");
+    int index = next();
+    keyOffsets[index] = -1;
+    setKey(index, key.capacity(), key.addressOffset());
+    return this;
+  }
+
+  /**
+   * Add a key that is copied into the batch.
+   */
+  public GetBatch add(byte[] key) {
+    Util.checkArgNotNull(key, "key");
+    ensureKeyData(key.length);
+    int index = next();
+    Unsafe.UNSAFE.copyMemory(key, Unsafe.ARRAY_BASE_OFFSET, null, keyDataAddress + keyDataPosition, key.length);
+    keyOffsets[index] = keyDataPosition;
+    setKey(index, key.length, keyDataAddress + keyDataPosition);
+    keyDataPosition += key.length;
+    return this;
+  }
+
+  /**
+   * @return number of keys in the batch.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove all keys from the batch.
+   */
+  public void clear() {
+    size = 0;
+    found = 0;
+    keyDataPosition = 0;
+  }
+
+  /**
+   * @return number of keys found by the last lookup.
+   */
+  public int foundCount() {
+    return (int) found;
+  }
+
+  /**
+   * @return true if the key at the index was found by the last lookup.
+   */
+  public boolean isFound(int index) {
+    return valueAddress(index) != 0;
+  }
+
+  /**
+   * @return size of the value of the key at the index or -1 if it was not found.
+   */
+  public int valueSize(int index) {
+    if (!isFound(index)) {
+      return -1;
+    }
+    return (int) Unsafe.getAddress(address, valueWord(index));
+  }
+
+  /**
+   * Wrap the value of the key at the index without copying it.
+   *
+   * @return false if the key was not found.
+   */
+  public boolean getValue(int index, DirectBuffer value) {
+    long data = valueAddress(index);
+    if (data == 0) {
+      return false;
+    }
+    value.wrap(data, (int) Unsafe.getAddress(address, valueWord(index)));
+    return true;
+  }
+
+  /**
+   * @return a copy of the value of the key at the index or null if it was not found.
+   */
+  public byte[] getValue(int index) {
+    long data = valueAddress(index);
+    if (data == 0) {
+      return null;
+    }
+    byte[] value = new byte[(int) Unsafe.getAddress(address, valueWord(index))];
+    Unsafe.getBytes(data, 0, value);
+    return value;
+  }
+
+  int execute(Transaction tx, Database db, boolean sorted) {
+    int count = size;
+    long keys = address;
+    long values = address + (long) Unsafe.ADDRESS_SIZE * VAL_WORDS * capacity;
+    long order = sorted ? 0 : address + (long) Unsafe.ADDRESS_SIZE * 2 * VAL_WORDS * capacity;
+    long foundAddress = address + (long) Unsafe.ADDRESS_SIZE * (2 * VAL_WORDS + 1) * capacity;
+    int rc = JNI.lmdbjni_get_multi(tx.pointer(), db.pointer(), keys, values, count, order, foundAddress);
+    found = rc == 0 ? Unsafe.getAddress(foundAddress, 0) : 0;
+    Util.checkErrorCode(rc);
+    return (int) found;
+  }
+
+  private long valueAddress(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+    }
+    return Unsafe.getAddress(address, valueWord(index) + 1);
+  }
+
+  private int valueWord(int index) {
+    return VAL_WORDS * (capacity + index);
+  }
+
+  private void setKey(int index, long length, long data) {
+    Unsafe.putAddress(address, VAL_WORDS * index, length);
+    Unsafe.putAddress(address, VAL_WORDS * index + 1, data);
+    // forget the value of an earlier lookup
+    Unsafe.putAddress(address, valueWord(index) + 1, 0);
+  }
+
+  private int next() {
+    if (size == capacity) {
+      grow(capacity * 2);
+    }
+    return size++;
+  }
+
+  /**
+   * Layout in words: keys[capacity], values[capacity], order[capacity], found.
+   */
+  private void allocate(int capacity) {
+    this.capacity = capacity;
+    this.entries = ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * ((2 * VAL_WORDS + 1) * capacity + 1));
+    this.address = new DirectBuffer(entries).addressOffset();
+  }
+
+  private void grow(int newCapacity) {
+    // keep the old buffer reachable until its keys have been copied
+    ByteBuffer oldEntries = entries;
+    long oldAddress = address;
+    allocate(newCapacity);
+    Unsafe.UNSAFE.copyMemory(oldAddress, address, (long) Unsafe.ADDRESS_SIZE * VAL_WORDS * size);
+    oldEntries.clear();
+    int[] offsets = new int[newCapacity];
+    System.arraycopy(keyOffsets, 0, offsets, 0, size);
+    keyOffsets = offsets;
+  }
+
+  private void ensureKeyData(int length) {
+    int required = keyDataPosition + length;
+    if (keyData != null && required <= keyData.capacity()) {
+      return;
+    }
+    int newCapacity = Math.max(required, keyData == null ? 1024 : keyData.capacity() * 2);
+    ByteBuffer newKeyData = ByteBuffer.allocateDirect(newCapacity);
+    long newAddress = new DirectBuffer(newKeyData).addressOffset();
+    if (keyData != null) {
+      Unsafe.UNSAFE.copyMemory(keyDataAddress, newAddress, keyDataPosition);
+      // rebase the copied keys
+      for (int i = 0; i < size; i++) {
+        if (keyOffsets[i] >= 0) {
+          Unsafe.putAddress(address, VAL_WORDS * i + 1, newAddress + keyOffsets[i]);
+        }
+      }
+    }
+    keyData = newKeyData;
+    keyDataAddress = newAddress;
+  }
+}
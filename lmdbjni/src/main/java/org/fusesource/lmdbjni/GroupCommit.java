@@ -0,0 +1,389 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+
+/**
+ * <p>
+ * Coordinates writes from many threads by running them on a dedicated writer
+ * thread, grouping the queued requests into one write transaction per batch
+ * and committing each batch once.
+ * </p>
+ *
+ * A batch is closed when it holds {@code maxBatchSize} requests, when the
+ * estimated bytes of its requests reach {@code maxBatchBytes}, or when
+ * {@code maxDelayMicros} have passed since its first request was taken. With
+ * a delay of zero a batch holds the requests that queued up while the previous
+ * batch was committing.
+ * <p>
+ * Each request runs in a nested transaction, so a request that throws is
+ * rolled back and completes exceptionally without affecting the rest of its
+ * batch. Nested transactions are not supported with
+ * {@link org.fusesource.lmdbjni.Constants#WRITEMAP}; in that case a failing request
+ * causes the batch to be replayed without it. Requests may therefore be executed
+ * more than once and, like any {@link TransactionWork}, should only have side effects
+ * through the given transaction. The futures complete once the batch has been
+ * committed. Batches are run through {@link Env#executeWrite(TransactionWork)} and
+ * are replayed if the memory map grows.
+ * </p>
+ *
+ * <pre>
+ * GroupCommit writer = new GroupCommit(env);
+ * writer.start();
+ * Future&lt;Integer&gt; done = writer.submit(batch);
+ * done.get();
+ * writer.close();
+ * </pre>
+ */
+public class GroupCommit implements Closeable {
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+  public static final long DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+  public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+  private final Env env;
+  private final int maxBatchSize;
+  private final long maxBatchBytes;
+  private final long maxDelayMicros;
+  private final BlockingQueue<Request<?>> queue;
+  private final boolean nested;
+  private final Thread writer;
+  private volatile boolean closed;
+
+  /**
+   * Create a coordinator with default limits and no delay.
+   */
+  public GroupCommit(Env env) {
+    this(env, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_BYTES, 0, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * @param env            an open environment.
+   * @param maxBatchSize   maximum number of requests per transaction.
+   * @param maxBatchBytes  maximum estimated bytes per transaction.
+   * @param maxDelayMicros maximum time to wait for more requests after the first
+   *                       request of a batch has been taken.
+   * @param queueCapacity  maximum number of pending requests, submitters block when
+   *                       the queue is full.
+   */
+  public GroupCommit(Env env, int maxBatchSize, long maxBatchBytes, long maxDelayMicros, int queueCapacity) {
+    checkArgNotNull(env, "env");
+    if (maxBatchSize < 1 || maxBatchBytes < 1 || maxDelayMicros < 0 || queueCapacity < 1) {
+      throw new IllegalArgumentException("Invalid batch limits");
+    }
+    this.env = env;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.maxDelayMicros = maxDelayMicros;
+    this.queue = new LinkedBlockingQueue<Request<?>>(queueCapacity);
+    this.nested = (env.getFlags() & Constants.WRITEMAP) == 0;
+    this.writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        runWriter();
+      }
+    }, "lmdbjni-group-commit");
+    this.writer.setDaemon(true);
+  }
+
+  /**
+   * Start the writer thread.
+   */
+  public void start() {
+    writer.start();
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.GroupCommit#submit(TransactionWork, long)
+   */
+  public <T> Future<T> submit(TransactionWork<T> work) {
+    return submit(work, 0);
+  }
+
+  /**
+   * Queue a unit of work for the next batch.
+   *
+   * @param work  the work, which must not commit or abort the transaction.
+   * @param bytes estimated number of bytes written by the work, counted
+   *              against the byte limit of a batch.
+   * @return a future that completes when the batch of the work is committed.
+   */
+  public <T> Future<T> submit(TransactionWork<T> work, long bytes) {
+    checkArgNotNull(work, "work");
+    Request<T> request = new Request<T>(work, bytes);
+    enqueue(request);
+    return request;
+  }
+
+  /**
+   * Queue a write batch for the next batch.
+   *
+   * @return a future with the number of operations of the batch that succeeded.
+   */
+  public Future<Integer> submit(final WriteBatch batch) {
+    checkArgNotNull(batch, "batch");
+    return submit(new TransactionWork<Integer>() {
+      @Override
+      public Integer execute(Transaction tx) {
+        return batch.apply(tx);
+      }
+    }, batch.byteSize());
+  }
+
+  /**
+   * @return the number of requests waiting for a batch.
+   */
+  public int pending() {
+    return queue.size();
+  }
+
+  /**
+   * Stop accepting requests, commit the pending ones and stop the writer thread.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    boolean interrupted = false;
+    if (writer.isAlive()) {
+      // the writer commits what was queued before the stop marker and exits
+      while (true) {
+        try {
+          queue.put(STOP);
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      while (writer.isAlive()) {
+        try {
+          writer.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    // fail requests that raced with close, enqueue checks closed again after its put
+    Request<?> request;
+    while ((request = queue.poll()) != null) {
+      if (request != STOP) {
+        request.fail(new RejectedExecutionException("Group commit is closed"));
+      }
+    }
+  }
+
+  private void enqueue(Request<?> request) {
+    if (closed) {
+      throw new RejectedExecutionException("Group commit is closed");
+    }
+    try {
+      queue.put(request);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for the queue", e);
+    }
+    // a request queued after the writer and close drained the queue is never taken,
+    // unless close already failed it or the writer is still draining
+    if (closed && !writer.isAlive() && queue.remove(request)) {
+      throw new RejectedExecutionException("Group commit is closed");
+    }
+  }
+
+  private void runWriter() {
+    List<Request<?>> batch = new ArrayList<Request<?>>();
+    boolean stopping = false;
+    while (true) {
+      Request<?> first;
+      if (stopping) {
+        first = queue.poll();
+        if (first == null) {
+          return;
+        }
+      } else {
+        try {
+          first = queue.take();
+        } catch (InterruptedException e) {
+          continue;
+        }
+      }
+      if (first == STOP) {
+        stopping = true;
+        continue;
+      }
+      batch.add(first);
+      long bytes = first.bytes;
+      long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+      while (batch.size() < maxBatchSize && bytes < maxBatchBytes) {
+        Request<?> next = queue.poll();
+        if (next == null && maxDelayMicros > 0 && !stopping) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            break;
+          }
+          try {
+            next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          } catch (InterruptedException e) {
+            next = null;
+          }
+        }
+        if (next == STOP) {
+          stopping = true;
+          break;
+        }
+        if (next == null) {
+          break;
+        }
+        batch.add(next);
+        bytes += next.bytes;
+      }
+      commit(batch);
+      batch.clear();
+    }
+  }
+
+  private void commit(final List<Request<?>> batch) {
+    TransactionWork<Void> work = new TransactionWork<Void>() {
+      @Override
+      public Void execute(Transaction tx) {
+        for (Request<?> request : batch) {
+          request.reset();
+        }
+        if (nested) {
+          for (Request<?> request : batch) {
+            if (!request.isCancelled()) {
+              executeNested(tx, request);
+            }
+          }
+        } else {
+          executeFlat(tx, batch);
+        }
+        return null;
+      }
+    };
+    while (true) {
+      try {
+        env.executeWrite(work);
+        break;
+      } catch (Replay replay) {
+        // the failed request is skipped when the batch runs again
+      } catch (Throwable e) {
+        for (Request<?> request : batch) {
+          request.fail(e);
+        }
+        return;
+      }
+    }
+    for (Request<?> request : batch) {
+      request.complete();
+    }
+  }
+
+  private void executeNested(Transaction tx, Request<?> request) {
+    Transaction child = env.createTransaction(tx);
+    try {
+      request.execute(child);
+      child.commit();
+    } catch (LMDBException e) {
+      if (e.getErrorCode() == LMDBException.MAP_FULL) {
+        throw e;
+      }
+      request.error = e;
+    } catch (RuntimeException e) {
+      request.error = e;
+    } finally {
+      child.abort();
+    }
+  }
+
+  /**
+   * Without nested transactions a failing request poisons the transaction, so
+   * the batch is replayed without it.
+   */
+  private void executeFlat(Transaction tx, List<Request<?>> batch) {
+    for (Request<?> request : batch) {
+      if (request.error != null || request.isCancelled()) {
+        continue;
+      }
+      try {
+        request.execute(tx);
+      } catch (LMDBException e) {
+        if (e.getErrorCode() == LMDBException.MAP_FULL) {
+          throw e;
+        }
+        throw new Replay(request, e);
+      } catch (RuntimeException e) {
+        throw new Replay(request, e);
+      }
+    }
+  }
+
+  /**
+   * Signals that a request failed and the remaining requests must be replayed.
+   */
+  private static final class Replay extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Replay(Request<?> request, RuntimeException cause) {
+      super(cause);
+      request.failed = cause;
+    }
+  }
+
+  private static final Callable<Object> NOOP = new Callable<Object>() {
+    @Override
+    public Object call() throws Exception {
+      throw new IllegalStateException();
+    }
+  };
+
+  /** queued by close to stop the writer once the requests before it are committed */
+  private static final Request<Object> STOP = new Request<Object>(null, 0);
+
+  private static final class Request<T> extends FutureTask<T> {
+    final TransactionWork<T> work;
+    final long bytes;
+    T result;
+    RuntimeException error;
+    /** failure that survives replays of the batch */
+    RuntimeException failed;
+
+    @SuppressWarnings("unchecked")
+    Request(TransactionWork<T> work, long bytes) {
+      super((Callable<T>) NOOP);
+      this.work = work;
+      this.bytes = bytes;
+    }
+
+    void reset() {
+      result = null;
+      error = failed;
+    }
+
+    void execute(Transaction tx) {
+      result = work.execute(tx);
+    }
+
+    void complete() {
+      if (error != null) {
+        setException(error);
+      } else {
+        set(result);
+      }
+    }
+
+    void fail(Throwable e) {
+      setException(e);
+    }
+  }
+}
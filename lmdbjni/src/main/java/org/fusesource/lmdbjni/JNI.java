@@ -67,6 +67,21 @@ class JNI {
   public static final native void free(
     @JniArg(cast = "void *") long self);
 
+  // Pipes used by Backup to stream a copy of the environment.
+  @JniMethod(conditional = "!defined(_WIN32)")
+  public static final native int pipe(
+    @JniArg(cast = "int *", flags = {NO_IN}) int[] fds);
+
+  @JniMethod(cast = "ssize_t", conditional = "!defined(_WIN32)")
+  public static final native long read(
+    int fd,
+    @JniArg(cast = "void *") long buffer,
+    @JniArg(cast = "size_t") long count);
+
+  @JniMethod(conditional = "!defined(_WIN32)")
+  public static final native int close(
+    int fd);
+
   ///////////////////////////////////////////////////////////////////////
   //
   // Additional Helpers
@@ -86,6 +101,104 @@ class JNI {
     @JniArg(cast = "size_t") long destPos,
     @JniArg(cast = "size_t") long length);
 
+  /**
+   * Look up many keys with a single cursor, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_get_multi(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int ") long dbi,
+    @JniArg(cast = "const MDB_val *") long keys,
+    @JniArg(cast = "MDB_val *") long values,
+    @JniArg(cast = "size_t") long count,
+    @JniArg(cast = "size_t *") long order,
+    @JniArg(cast = "size_t *") long found);
+
+  /**
+   * Apply the operations packed by WriteBatch, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_write_batch(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "const char *") long ops,
+    @JniArg(cast = "size_t") long length,
+    @JniArg(cast = "int *") long results,
+    @JniArg(cast = "size_t *") long applied);
+
+  /**
+   * Move a cursor many times and collect the entries, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_cursor_scan(
+    @JniArg(cast = "MDB_cursor *") long cursor,
+    int firstOp,
+    int op,
+    @JniArg(cast = "size_t") long maxEntries,
+    @JniArg(cast = "size_t") long maxBytes,
+    @JniArg(cast = "size_t") long valueOffset,
+    @JniArg(cast = "size_t") long valueLength,
+    @JniArg(cast = "MDB_val *") long entries,
+    @JniArg(cast = "size_t *") long count);
+
+  /**
+   * Move a cursor within a key range, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_cursor_range(
+    @JniArg(cast = "MDB_cursor *") long cursor,
+    @JniArg(cast = "MDB_val *") long key,
+    @JniArg(cast = "MDB_val *") long data,
+    @JniArg(cast = "const MDB_val *") long bounds,
+    int flags);
+
+  /**
+   * Fetch a page of fixed size duplicates, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_cursor_multiple(
+    @JniArg(cast = "MDB_cursor *") long cursor,
+    @JniArg(cast = "MDB_val *") long key,
+    @JniArg(cast = "MDB_val *") long data,
+    int op);
+
+  /**
+   * Sort the records of a BulkLoader run, see src/batch.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_sort_records(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int ") long dbi,
+    int dup,
+    @JniArg(cast = "const char *") long records,
+    @JniArg(cast = "size_t") long count,
+    @JniArg(cast = "MDB_val *") long entries);
+
+  /**
+   * Address of a built-in key comparator, see src/compare.c.
+   */
+  @JniMethod(cast = "void *")
+  public static final native long lmdbjni_compare_function(int id);
+
+  /**
+   * Define the fields of a tuple comparator slot and return the address
+   * of its comparator, see src/compare.c.
+   */
+  @JniMethod(cast = "void *")
+  public static final native long lmdbjni_tuple_compare_function(
+    int slot,
+    @JniArg(cast = "const int *", flags = {NO_OUT}) int[] fields,
+    int count);
+
+  /**
+   * Parse the reader lock table reported by mdb_reader_list, see src/reader.c.
+   */
+  @JniMethod
+  public static final native int lmdbjni_reader_list(
+    @JniArg(cast = "MDB_env *") long env,
+    @JniArg(cast = "jlong *", flags = {NO_IN}) long[] entries,
+    int capacity,
+    @JniArg(cast = "int *", flags = {NO_IN}) int[] count);
+
   ///////////////////////////////////////////////////////////////////////
   //
   // The lmdb API
@@ -171,6 +284,12 @@ class JNI {
   @JniField(flags = {CONSTANT})
   static public int MDB_MULTIPLE;
 
+  //====================================================//
+  // Copy Flags
+  //====================================================//
+  @JniField(flags = {CONSTANT})
+  static public int MDB_CP_COMPACT;
+
   //====================================================//
   // enum MDB_cursor_op:
   //====================================================//
@@ -369,6 +488,20 @@ class JNI {
     @JniArg(cast = "const char *") String path,
     @JniArg(cast = "unsigned int") int flags);
 
+  /**
+   * <a href="http://symas.com/mdb/doc/group__mdb.html#ga5d51d6130325f7353db0955dbedbc378">details</a>
+   */
+  @JniMethod
+  public static final native int mdb_env_copyfd(
+    @JniArg(cast = "MDB_env *") long env,
+    @JniArg(cast = "mdb_filehandle_t") long fd);
+
+  @JniMethod
+  public static final native int mdb_env_copyfd2(
+    @JniArg(cast = "MDB_env *") long env,
+    @JniArg(cast = "mdb_filehandle_t") long fd,
+    @JniArg(cast = "unsigned int") int flags);
+
 
   /**
    * <a href="http://symas.com/mdb/doc/group__mdb.html#gaf881dca452050efbd434cd16e4bae255">details</a>
@@ -515,6 +648,15 @@ class JNI {
     @JniArg(cast = "unsigned int") long flags,
     @JniArg(cast = "unsigned int *") long[] dbi);
 
+  /**
+   * <a href="http://symas.com/mdb/doc/group__mdb.html#">details</a>
+   */
+  @JniMethod
+  public static final native int mdb_dbi_flags(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int") long dbi,
+    @JniArg(cast = "unsigned int *") long[] flags);
+
   /**
    * <a href="http://symas.com/mdb/doc/group__mdb.html#">details</a>
    */
@@ -607,6 +749,13 @@ class JNI {
     @JniArg(cast = "MDB_val *", flags = {NO_OUT}) MDB_val key,
     @JniArg(cast = "MDB_val *", flags = {NO_OUT}) MDB_val data);
 
+  @JniMethod(accessor = "mdb_del")
+  public static final native int mdb_del_address(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int ") long dbi,
+    @JniArg(cast = "MDB_val *") long key,
+    @JniArg(cast = "MDB_val *") long data);
+
   /**
    * <a href="http://symas.com/mdb/doc/group__mdb.html#">details</a>
    */
@@ -757,6 +906,20 @@ class JNI {
     @JniArg(cast = "MDB_val *", flags = {NO_OUT}) MDB_val a,
     @JniArg(cast = "MDB_val *", flags = {NO_OUT}) MDB_val b);
 
+  @JniMethod(accessor = "mdb_cmp")
+  public static final native int mdb_cmp_address(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int") long dbi,
+    @JniArg(cast = "MDB_val *") long a,
+    @JniArg(cast = "MDB_val *") long b);
+
+  @JniMethod(accessor = "mdb_dcmp")
+  public static final native int mdb_dcmp_address(
+    @JniArg(cast = "MDB_txn *") long txn,
+    @JniArg(cast = "unsigned int") long dbi,
+    @JniArg(cast = "MDB_val *") long a,
+    @JniArg(cast = "MDB_val *") long b);
+
   @JniMethod
   public static final native int mdb_env_get_maxkeysize(
     @JniArg(cast = "MDB_env *") long env);
@@ -0,0 +1,152 @@
+package org.fusesource.lmdbjni;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Decodes keys written by {@link KeyEncoder}.
+ * </p>
+ *
+ * The decoder reads straight from the memory the buffer points to, such as a key
+ * of a {@link BufferCursor} in the memory map, without copying the key first.
+ * Values must be read in the order they were written. A decoder is not thread
+ * safe and may be pointed at another key with {@link #wrap(DirectBuffer)}.
+ *
+ * @see org.fusesource.lmdbjni.KeyEncoder
+ */
+public class KeyDecoder {
+  private DirectBuffer buffer;
+  private int position;
+
+  public KeyDecoder() {
+  }
+
+  public KeyDecoder(DirectBuffer buffer) {
+    wrap(buffer);
+  }
+
+  /**
+   * Start decoding the key the buffer points to.
+   */
+  public KeyDecoder wrap(DirectBuffer buffer) {
+    Util.checkArgNotNull(buffer, "buffer");
+    this.buffer = buffer;
+    this.position = 0;
+    return this;
+  }
+
+  public int readInt() {
+    int value = buffer.getInt(position, ByteOrder.BIG_ENDIAN) ^ Integer.MIN_VALUE;
+    position += 4;
+    return value;
+  }
+
+  public long readLong() {
+    long value = buffer.getLong(position, ByteOrder.BIG_ENDIAN) ^ Long.MIN_VALUE;
+    position += 8;
+    return value;
+  }
+
+  public float readFloat() {
+    int bits = readInt();
+    return Float.intBitsToFloat(bits ^ ((bits >> 31) & Integer.MAX_VALUE));
+  }
+
+  public double readDouble() {
+    long bits = readLong();
+    return Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+  }
+
+  public boolean readBoolean() {
+    return buffer.getByte(position++) != 0;
+  }
+
+  /**
+   * Read an escaped and terminated byte array.
+   */
+  public byte[] readBytes() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int b;
+    while ((b = nextEscaped()) >= 0) {
+      out.write(b);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Read an escaped and terminated UTF-8 string.
+   */
+  public String readString() {
+    StringBuilder sb = new StringBuilder();
+    int b;
+    while ((b = nextEscaped()) >= 0) {
+      int c;
+      if (b < 0x80) {
+        c = b;
+      } else if (b < 0xe0) {
+        c = ((b & 0x1f) << 6) | continuation();
+      } else if (b < 0xf0) {
+        c = ((b & 0x0f) << 12) | (continuation() << 6) | continuation();
+      } else {
+        c = ((b & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+      }
+      sb.appendCodePoint(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Skip an escaped and terminated string or byte array.
+   */
+  public KeyDecoder skipBytes() {
+    while (nextEscaped() >= 0) {
+      // skip
+    }
+    return this;
+  }
+
+  /**
+   * Skip a number of bytes, e.g. 8 for a long.
+   */
+  public KeyDecoder skip(int length) {
+    position += length;
+    return this;
+  }
+
+  /**
+   * @return the number of bytes read.
+   */
+  public int position() {
+    return position;
+  }
+
+  /**
+   * @return the number of bytes left in the key.
+   */
+  public int remaining() {
+    return buffer.capacity() - position;
+  }
+
+  /**
+   * @return the next unescaped byte or -1 at the terminator.
+   */
+  private int nextEscaped() {
+    byte b = buffer.getByte(position++);
+    if (b != KeyEncoder.ESCAPE) {
+      return b & 0xff;
+    }
+    byte next = buffer.getByte(position++);
+    if (next == KeyEncoder.ESCAPED_ZERO) {
+      return 0;
+    }
+    if (next != KeyEncoder.TERMINATOR) {
+      throw new IllegalStateException("Invalid escape sequence at " + (position - 2));
+    }
+    return -1;
+  }
+
+  private int continuation() {
+    return buffer.getByte(position++) & 0x3f;
+  }
+}
@@ -0,0 +1,191 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Encodes values into keys whose byte order, as compared by the default memcmp
+ * ordering of LMDB, equals the logical order of the values.
+ * </p>
+ *
+ * Values are appended one after another, so a key may hold a tuple of values that
+ * sorts by its first value, then by its second and so on.
+ * <ul>
+ *   <li>Integers are written big-endian with the sign bit flipped.</li>
+ *   <li>Floats and doubles are written big-endian with the sign bit flipped for
+ *   positive values and all bits flipped for negative values, which gives the order
+ *   of {@link Double#compare(double, double)}.</li>
+ *   <li>Strings are written as UTF-8 and byte arrays as is, in both cases with 0x00
+ *   escaped as 0x00 0xFF and terminated by 0x00 0x01, so that a value sorts before
+ *   any longer value it is a prefix of. Strings sort by code point.</li>
+ * </ul>
+ *
+ * <pre>
+ * KeyEncoder encoder = new KeyEncoder();
+ * encoder.writeString("orders").writeLong(-42L).writeDouble(1.5);
+ * db.put(tx, encoder.key(), value);
+ *
+ * KeyDecoder decoder = new KeyDecoder(cursor.keyBuffer());
+ * String table = decoder.readString();
+ * long id = decoder.readLong();
+ * </pre>
+ *
+ * An encoder is not thread safe and may be reused after {@link #reset()}.
+ *
+ * @see org.fusesource.lmdbjni.KeyDecoder
+ */
+public class KeyEncoder {
+  static final byte ESCAPE = 0x00;
+  static final byte ESCAPED_ZERO = (byte) 0xff;
+  static final byte TERMINATOR = 0x01;
+
+  private final DirectBuffer buffer;
+  private final DirectBuffer key = new DirectBuffer(0, 0);
+  private int position;
+
+  /**
+   * Create an encoder with a direct buffer that holds the largest key
+   * LMDB supports by default.
+   */
+  public KeyEncoder() {
+    this(new DirectBuffer(ByteBuffer.allocateDirect(511)));
+  }
+
+  /**
+   * Create an encoder that writes into an off-heap buffer, starting at index 0.
+   */
+  public KeyEncoder(DirectBuffer buffer) {
+    Util.checkArgNotNull(buffer, "buffer");
+    if (buffer.byteArray() != null) {
+      throw new IllegalArgumentException("Buffer must be off-heap.");
+    }
+    this.buffer = buffer;
+  }
+
+  public KeyEncoder writeInt(int value) {
+    buffer.putInt(position, value ^ Integer.MIN_VALUE, ByteOrder.BIG_ENDIAN);
+    position += 4;
+    return this;
+  }
+
+  public KeyEncoder writeLong(long value) {
+    buffer.putLong(position, value ^ Long.MIN_VALUE, ByteOrder.BIG_ENDIAN);
+    position += 8;
+    return this;
+  }
+
+  public KeyEncoder writeFloat(float value) {
+    int bits = Float.floatToIntBits(value);
+    return writeInt(bits ^ ((bits >> 31) & Integer.MAX_VALUE));
+  }
+
+  public KeyEncoder writeDouble(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return writeLong(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+  }
+
+  public KeyEncoder writeBoolean(boolean value) {
+    buffer.putByte(position++, (byte) (value ? 1 : 0));
+    return this;
+  }
+
+  /**
+   * Write a byte array with escaping and a terminator.
+   */
+  public KeyEncoder writeBytes(byte[] value) {
+    Util.checkArgNotNull(value, "value");
+    for (byte b : value) {
+      writeEscaped(b);
+    }
+    return terminate();
+  }
+
+  /**
+   * Write a string as UTF-8 with escaping and a terminator.
+   */
+  public KeyEncoder writeString(String value) {
+    Util.checkArgNotNull(value, "value");
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      int c = value.charAt(i);
+      if (Character.isHighSurrogate((char) c) && i + 1 < length
+        && Character.isLowSurrogate(value.charAt(i + 1))) {
+        c = Character.toCodePoint((char) c, value.charAt(++i));
+      }
+      if (c < 0x80) {
+        writeEscaped((byte) c);
+      } else if (c < 0x800) {
+        buffer.putByte(position++, (byte) (0xc0 | (c >> 6)));
+        buffer.putByte(position++, (byte) (0x80 | (c & 0x3f)));
+      } else if (c < 0x10000) {
+        buffer.putByte(position++, (byte) (0xe0 | (c >> 12)));
+        buffer.putByte(position++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+        buffer.putByte(position++, (byte) (0x80 | (c & 0x3f)));
+      } else {
+        buffer.putByte(position++, (byte) (0xf0 | (c >> 18)));
+        buffer.putByte(position++, (byte) (0x80 | ((c >> 12) & 0x3f)));
+        buffer.putByte(position++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+        buffer.putByte(position++, (byte) (0x80 | (c & 0x3f)));
+      }
+    }
+    return terminate();
+  }
+
+  /**
+   * Write bytes as is, without escaping. Only safe as the last value of a key
+   * or for values of a fixed length.
+   */
+  public KeyEncoder writeRaw(byte[] value) {
+    Util.checkArgNotNull(value, "value");
+    buffer.putBytes(position, value);
+    position += value.length;
+    return this;
+  }
+
+  /**
+   * @return the number of bytes written.
+   */
+  public int position() {
+    return position;
+  }
+
+  /**
+   * Start a new key.
+   */
+  public KeyEncoder reset() {
+    position = 0;
+    return this;
+  }
+
+  /**
+   * @return a flyweight over the bytes written, valid until the next write
+   * or {@link #reset()}.
+   */
+  public DirectBuffer key() {
+    key.wrap(buffer.addressOffset(), position);
+    return key;
+  }
+
+  /**
+   * @return a copy of the bytes written.
+   */
+  public byte[] toBytes() {
+    byte[] bytes = new byte[position];
+    buffer.getBytes(0, bytes);
+    return bytes;
+  }
+
+  private void writeEscaped(byte b) {
+    buffer.putByte(position++, b);
+    if (b == ESCAPE) {
+      buffer.putByte(position++, ESCAPED_ZERO);
+    }
+  }
+
+  private KeyEncoder terminate() {
+    buffer.putByte(position++, ESCAPE);
+    buffer.putByte(position++, TERMINATOR);
+    return this;
+  }
+}
@@ -0,0 +1,220 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A range of keys with optional inclusive or exclusive bounds, or all keys
+ * sharing a prefix.
+ * </p>
+ *
+ * Bounds are given in database key order and apply to both directions. The end
+ * of the range is checked in native code before an entry is returned, so entries
+ * past the range are never copied. Bounds are compared with the comparator of
+ * the database while prefixes are compared byte by byte and assume the default
+ * lexicographic key order. LMDB keys are never empty, so an empty start key
+ * or prefix does not bound the range, and a range ending at an empty key holds
+ * no keys.
+ *
+ * <pre>
+ * try (EntryIterator it = db.iterate(tx, KeyRange.closedOpen(bytes("a"), bytes("c")))) {
+ *   for (Entry next : it.iterable()) {
+ *   }
+ * }
+ * </pre>
+ *
+ * A range is immutable and may be shared between threads. Not available on
+ * Android.
+ *
+ * @see org.fusesource.lmdbjni.Database#iterate(Transaction, KeyRange)
+ * @see org.fusesource.lmdbjni.BufferCursor#first(KeyRange)
+ */
+public class KeyRange {
+  static final int BACKWARD = 1;
+  static final int FIRST = 2;
+  static final int HAS_START = 4;
+  static final int START_EXCLUSIVE = 8;
+  static final int HAS_END = 16;
+  static final int END_EXCLUSIVE = 32;
+  static final int PREFIX = 64;
+  static final int KEYS_ONLY = 128;
+
+  private static final KeyRange ALL = new KeyRange(null, false, null, false, null);
+
+  private final DirectBuffer lower;
+  private final boolean lowerExclusive;
+  private final DirectBuffer upper;
+  private final boolean upperExclusive;
+  private final DirectBuffer prefix;
+  /** no key is at or below an empty upper bound */
+  private final boolean empty;
+
+  private KeyRange(byte[] lower, boolean lowerExclusive, byte[] upper, boolean upperExclusive, byte[] prefix) {
+    // an empty key cannot be used with MDB_SET_RANGE and is below all keys
+    boolean unbounded = lower != null && lower.length == 0;
+    this.lower = unbounded ? null : copy(lower);
+    this.lowerExclusive = !unbounded && lowerExclusive;
+    this.upper = copy(upper);
+    this.upperExclusive = upperExclusive;
+    this.prefix = prefix != null && prefix.length == 0 ? null : copy(prefix);
+    this.empty = upper != null && upper.length == 0;
+  }
+
+  /**
+   * @return all keys.
+   */
+  public static KeyRange all() {
+    return ALL;
+  }
+
+  /**
+   * @return keys greater than or equal to start.
+   */
+  public static KeyRange atLeast(byte[] start) {
+    return new KeyRange(notNull(start, "start"), false, null, false, null);
+  }
+
+  /**
+   * @return keys greater than start.
+   */
+  public static KeyRange greaterThan(byte[] start) {
+    return new KeyRange(notNull(start, "start"), true, null, false, null);
+  }
+
+  /**
+   * @return keys less than or equal to end.
+   */
+  public static KeyRange atMost(byte[] end) {
+    return new KeyRange(null, false, notNull(end, "end"), false, null);
+  }
+
+  /**
+   * @return keys less than end.
+   */
+  public static KeyRange lessThan(byte[] end) {
+    return new KeyRange(null, false, notNull(end, "end"), true, null);
+  }
+
+  /**
+   * @return keys greater than or equal to start and less than or equal to end.
+   */
+  public static KeyRange closed(byte[] start, byte[] end) {
+    return new KeyRange(notNull(start, "start"), false, notNull(end, "end"), false, null);
+  }
+
+  /**
+   * @return keys greater than or equal to start and less than end.
+   */
+  public static KeyRange closedOpen(byte[] start, byte[] end) {
+    return new KeyRange(notNull(start, "start"), false, notNull(end, "end"), true, null);
+  }
+
+  /**
+   * @return keys greater than start and less than or equal to end.
+   */
+  public static KeyRange openClosed(byte[] start, byte[] end) {
+    return new KeyRange(notNull(start, "start"), true, notNull(end, "end"), false, null);
+  }
+
+  /**
+   * @return keys greater than start and less than end.
+   */
+  public static KeyRange open(byte[] start, byte[] end) {
+    return new KeyRange(notNull(start, "start"), true, notNull(end, "end"), true, null);
+  }
+
+  /**
+   * @return keys that start with the prefix.
+   */
+  public static KeyRange prefix(byte[] prefix) {
+    notNull(prefix, "prefix");
+    // the smallest key after all keys with the prefix, if there is one
+    int length = prefix.length;
+    while (length > 0 && prefix[length - 1] == (byte) 0xff) {
+      length--;
+    }
+    byte[] successor = null;
+    if (length > 0) {
+      successor = new byte[length];
+      System.arraycopy(prefix, 0, successor, 0, length);
+      successor[length - 1]++;
+    }
+    return new KeyRange(prefix, false, successor, true, prefix);
+  }
+
+  /**
+   * @return a range with the given lower bound and the upper bound of this range.
+   */
+  KeyRange withLower(byte[] lower, boolean exclusive) {
+    return new KeyRange(lower, exclusive, bytes(upper), upperExclusive, null);
+  }
+
+  /**
+   * @return a range with the lower bound of this range and the given upper bound.
+   */
+  KeyRange withUpper(byte[] upper, boolean exclusive) {
+    return new KeyRange(bytes(lower), lowerExclusive, upper, exclusive, null);
+  }
+
+  /**
+   * @return true if the range cannot hold any key.
+   */
+  boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Write the start and end bounds of an iteration in the given direction as
+   * two MDB_val structures at the address.
+   *
+   * @return the flags of the range for lmdbjni_cursor_range.
+   */
+  int write(long address, boolean backward) {
+    DirectBuffer start = backward ? upper : lower;
+    DirectBuffer end = prefix != null ? prefix : backward ? lower : upper;
+    int flags = backward ? BACKWARD : 0;
+    if (start != null) {
+      flags |= HAS_START;
+      if (backward ? upperExclusive : lowerExclusive) {
+        flags |= START_EXCLUSIVE;
+      }
+      Unsafe.putAddress(address, 0, start.capacity());
+      Unsafe.putAddress(address, 1, start.addressOffset());
+    }
+    if (end != null) {
+      flags |= HAS_END;
+      if (prefix != null) {
+        flags |= PREFIX;
+      } else if (backward ? lowerExclusive : upperExclusive) {
+        flags |= END_EXCLUSIVE;
+      }
+      Unsafe.putAddress(address, 2, end.capacity());
+      Unsafe.putAddress(address, 3, end.addressOffset());
+    }
+    return flags;
+  }
+
+  private static byte[] notNull(byte[] key, String name) {
+    Util.checkArgNotNull(key, name);
+    return key;
+  }
+
+  private static byte[] bytes(DirectBuffer buffer) {
+    if (buffer == null) {
+      return null;
+    }
+    byte[] bytes = new byte[buffer.capacity()];
+    buffer.getBytes(0, bytes);
+    return bytes;
+  }
+
+  private static DirectBuffer copy(byte[] key) {
+    if (key == null) {
+      return null;
+    }
+    // direct memory keeps the address stable for native code
+    DirectBuffer buffer = new DirectBuffer(ByteBuffer.allocateDirect(key.length));
+    buffer.putBytes(0, key);
+    return buffer;
+  }
+}
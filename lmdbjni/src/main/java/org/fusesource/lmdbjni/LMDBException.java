@@ -99,6 +99,11 @@ public class LMDBException extends RuntimeException {
     errorCode = -1;
   }
 
+  public LMDBException(String message, Throwable cause) {
+    super(message, cause);
+    errorCode = -1;
+  }
+
   public LMDBException(String message, int errorCode) {
     super(message);
     this.errorCode = errorCode;
@@ -0,0 +1,40 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * An entry that copies its key and value out of the memory map on first
+ * access, see {@link EntryIterator#lazy()}.
+ */
+class LazyEntry extends Entry {
+  private final long keyAddress;
+  private final int keySize;
+  private final long valueAddress;
+  private final int valueSize;
+  private byte[] key;
+  private byte[] value;
+
+  LazyEntry(DirectBuffer key, DirectBuffer value) {
+    super(null, null);
+    this.keyAddress = key.addressOffset();
+    this.keySize = key.capacity();
+    this.valueAddress = value.addressOffset();
+    this.valueSize = value.capacity();
+  }
+
+  @Override
+  public byte[] getKey() {
+    if (key == null) {
+      key = new byte[keySize];
+      Unsafe.getBytes(keyAddress, 0, key);
+    }
+    return key;
+  }
+
+  @Override
+  public byte[] getValue() {
+    if (value == null) {
+      value = new byte[valueSize];
+      Unsafe.getBytes(valueAddress, 0, value);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,257 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.fusesource.lmdbjni.JNI.MDB_NOTFOUND;
+
+/**
+ * <p>
+ * A cursor over a {@link LongKeyDatabase} or {@link LongDupDatabase}.
+ * </p>
+ *
+ * Keys are returned as primitive longs and values are wrapped in place, so
+ * moving the cursor does not allocate. A range given to {@link #first(long, long)}
+ * or {@link #last(long, long)} bounds the following calls of {@link #next()} and
+ * {@link #prev()}, the other positioning methods clear it. Bounds are inclusive
+ * and compared as unsigned numbers, like the keys in the database.
+ *
+ * A cursor is not thread safe. Cursors of read only transactions may be reused
+ * with {@link #renew(Transaction)}.
+ */
+public class LongCursor implements Closeable {
+  private final Cursor cursor;
+  private final DirectBuffer key = new DirectBuffer(0, 0);
+  private final DirectBuffer value = new DirectBuffer(0, 0);
+  private final DirectBuffer scratch = new DirectBuffer(ByteBuffer.allocateDirect(2 * DirectBuffer.SIZE_OF_LONG));
+  private boolean bounded;
+  private long lower;
+  private long upper;
+
+  LongCursor(Cursor cursor) {
+    this.cursor = cursor;
+  }
+
+  /**
+   * Position at the first key.
+   *
+   * @return true if the database is not empty.
+   */
+  public boolean first() {
+    bounded = false;
+    return move(GetOp.FIRST);
+  }
+
+  /**
+   * Position at the last key.
+   *
+   * @return true if the database is not empty.
+   */
+  public boolean last() {
+    bounded = false;
+    return move(GetOp.LAST);
+  }
+
+  /**
+   * Position at the first key in the range and bound the following moves by it.
+   *
+   * @param from the smallest key of the range.
+   * @param to   the largest key of the range.
+   * @return true if the range holds a key.
+   */
+  public boolean first(long from, long to) {
+    bound(from, to);
+    return seek(from, SeekOp.RANGE) && inRange();
+  }
+
+  /**
+   * Position at the last key in the range and bound the following moves by it.
+   *
+   * @see org.fusesource.lmdbjni.LongCursor#first(long, long)
+   */
+  public boolean last(long from, long to) {
+    bound(from, to);
+    boolean found;
+    if (!seek(to, SeekOp.RANGE)) {
+      found = move(GetOp.LAST);
+    } else if (key() == to) {
+      // move to the last value of the key
+      found = move(GetOp.NEXT_NODUP) ? move(GetOp.PREV) : move(GetOp.LAST);
+    } else {
+      found = move(GetOp.PREV);
+    }
+    return found && inRange();
+  }
+
+  /**
+   * Position at the first key greater than or equal to the given key.
+   *
+   * @return true if there is such a key.
+   */
+  public boolean seek(long key) {
+    bounded = false;
+    return seek(key, SeekOp.RANGE);
+  }
+
+  /**
+   * Position at the given key.
+   *
+   * @return true if the key was found.
+   */
+  public boolean seekKey(long key) {
+    bounded = false;
+    return seek(key, SeekOp.KEY);
+  }
+
+  /**
+   * Position at a value of a key in a {@link LongDupDatabase}.
+   *
+   * @return true if the key has the value.
+   */
+  public boolean seek(long key, long value) {
+    bounded = false;
+    scratch.putLong(0, key);
+    scratch.putLong(DirectBuffer.SIZE_OF_LONG, value);
+    this.key.wrap(scratch.addressOffset(), DirectBuffer.SIZE_OF_LONG);
+    this.value.wrap(scratch.addressOffset() + DirectBuffer.SIZE_OF_LONG, DirectBuffer.SIZE_OF_LONG);
+    return cursor.seekPosition(this.key, this.value, SeekOp.BOTH) == 0;
+  }
+
+  /**
+   * Move to the next key or value.
+   *
+   * @return false at the end of the database or the range.
+   */
+  public boolean next() {
+    return move(GetOp.NEXT) && inRange();
+  }
+
+  /**
+   * Move to the previous key or value.
+   *
+   * @return false at the start of the database or the range.
+   */
+  public boolean prev() {
+    return move(GetOp.PREV) && inRange();
+  }
+
+  /**
+   * Move to the first value of the next key.
+   *
+   * @see org.fusesource.lmdbjni.LongCursor#next()
+   */
+  public boolean nextKey() {
+    return move(GetOp.NEXT_NODUP) && inRange();
+  }
+
+  /**
+   * Move to the next value of the current key.
+   *
+   * @return false after the last value of the key.
+   */
+  public boolean nextDup() {
+    return move(GetOp.NEXT_DUP);
+  }
+
+  /**
+   * @return the current key.
+   */
+  public long key() {
+    return key.getLong(0);
+  }
+
+  /**
+   * @return the current value, valid until the cursor moves or the transaction ends.
+   */
+  public DirectBuffer valBuffer() {
+    return value;
+  }
+
+  /**
+   * @return the current value as a long in native byte order.
+   */
+  public long valLong() {
+    return value.getLong(0);
+  }
+
+  /**
+   * @return the number of values of the current key.
+   */
+  public long count() {
+    return cursor.count();
+  }
+
+  /**
+   * <p>
+   * Copy the values of the current key of a {@link LongDupDatabase}.
+   * </p>
+   *
+   * The values are read a page at a time, starting with the first value of
+   * the key. The cursor is left on the last value of the last page read.
+   *
+   * @param dst    array to copy the values into.
+   * @param offset position of the first value in the array.
+   * @return the number of values copied, limited by the length of the array.
+   */
+  public int values(long[] dst, int offset) {
+    Util.checkArgNotNull(dst, "dst");
+    if (cursor.position(key, value, GetOp.FIRST_DUP) != 0) {
+      return 0;
+    }
+    int copied = 0;
+    int rc = cursor.positionMultiple(key, value, GetOp.GET_MULTIPLE);
+    while (rc == 0 && offset + copied < dst.length) {
+      copied += value.getLongs(0, dst, offset + copied, dst.length - offset - copied, ByteOrder.nativeOrder());
+      rc = cursor.positionMultiple(key, value, GetOp.NEXT_MULTIPLE);
+    }
+    return copied;
+  }
+
+  /**
+   * Delete the current value.
+   */
+  public void delete() {
+    cursor.delete();
+  }
+
+  /**
+   * Use the cursor with a new read only transaction.
+   */
+  public void renew(Transaction tx) {
+    cursor.renew(tx);
+  }
+
+  @Override
+  public void close() {
+    cursor.close();
+  }
+
+  Cursor getCursor() {
+    return cursor;
+  }
+
+  private void bound(long from, long to) {
+    bounded = true;
+    lower = from;
+    upper = to;
+  }
+
+  private boolean inRange() {
+    return !bounded || (!lessThan(key(), lower) && !lessThan(upper, key()));
+  }
+
+  private boolean seek(long key, SeekOp op) {
+    scratch.putLong(0, key);
+    this.key.wrap(scratch.addressOffset(), DirectBuffer.SIZE_OF_LONG);
+    return cursor.seekPosition(this.key, value, op) == 0;
+  }
+
+  private boolean move(GetOp op) {
+    return cursor.position(key, value, op) != MDB_NOTFOUND;
+  }
+
+  private static boolean lessThan(long a, long b) {
+    return a + Long.MIN_VALUE < b + Long.MIN_VALUE;
+  }
+}
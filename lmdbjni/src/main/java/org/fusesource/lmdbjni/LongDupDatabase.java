@@ -0,0 +1,89 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * A multimap of primitive long keys to sorted sets of long values.
+ * </p>
+ *
+ * The database is opened with {@link org.fusesource.lmdbjni.Constants#INTEGERKEY},
+ * {@link org.fusesource.lmdbjni.Constants#DUPSORT}, {@link org.fusesource.lmdbjni.Constants#DUPFIXED}
+ * and {@link org.fusesource.lmdbjni.Constants#INTEGERDUP}, so the values of a key are
+ * stored back to back in native byte order and ordered as unsigned numbers.
+ * Use {@link LongCursor#values(long[], int)} to read all values of a key.
+ *
+ * @see org.fusesource.lmdbjni.LongKeyDatabase
+ */
+public class LongDupDatabase extends LongKeyDatabase {
+  private static final int DUP_FLAGS = Constants.DUPSORT | Constants.DUPFIXED | Constants.INTEGERDUP;
+
+  /**
+   * Open or create a database with the given name.
+   */
+  public LongDupDatabase(Env env, String name) {
+    this(env, name, Constants.CREATE);
+  }
+
+  /**
+   * Open a database with the given name, the integer and duplicate flags are
+   * added to the flags.
+   */
+  public LongDupDatabase(Env env, String name, int flags) {
+    super(env, name, flags | DUP_FLAGS);
+  }
+
+  /**
+   * Add a value to a key.
+   *
+   * @return false if the key already had the value.
+   */
+  public boolean add(Transaction tx, long key, long value) {
+    return putLong(tx, key, value, Constants.NODUPDATA);
+  }
+
+  /**
+   * <p>
+   * Add many values to a key with a single put.
+   * </p>
+   *
+   * Values the key already has are skipped.
+   *
+   * @return the number of values added.
+   * @see org.fusesource.lmdbjni.Cursor#putMultiple(DirectBuffer, long[], int, int, ByteOrder, int)
+   */
+  public int addAll(Transaction tx, long key, long[] values, int offset, int length) {
+    long address = setKey(tx, key);
+    DirectBuffer keyBuffer = new DirectBuffer(address + 4 * Unsafe.ADDRESS_SIZE, DirectBuffer.SIZE_OF_LONG);
+    Cursor cursor = db.openCursor(tx);
+    try {
+      DirectBuffer packed = cursor.pack(values, offset, length, ByteOrder.nativeOrder());
+      long next = packed.addressOffset();
+      int added = 0;
+      while (length > 0) {
+        // stops at the first value that exists, which is skipped
+        int n = cursor.putMultiple(keyBuffer, packed, DirectBuffer.SIZE_OF_LONG, Constants.NODUPDATA);
+        added += n;
+        next += (long) (n + 1) * DirectBuffer.SIZE_OF_LONG;
+        length -= n + 1;
+        if (length > 0) {
+          packed.wrap(next, length * DirectBuffer.SIZE_OF_LONG);
+        }
+      }
+      return added;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Remove a value from a key.
+   *
+   * @return true if the key had the value.
+   */
+  public boolean remove(Transaction tx, long key, long value) {
+    long address = setKey(tx, key);
+    setValue(address, value);
+    return delete(tx, address, address + 2 * Unsafe.ADDRESS_SIZE);
+  }
+}
@@ -0,0 +1,213 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+
+import static org.fusesource.lmdbjni.JNI.*;
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+import static org.fusesource.lmdbjni.Util.checkErrorCode;
+
+/**
+ * <p>
+ * A database keyed by primitive longs.
+ * </p>
+ *
+ * The database is opened with {@link org.fusesource.lmdbjni.Constants#INTEGERKEY}
+ * and keys are stored in native byte order, so they are neither boxed into
+ * arrays nor converted to big-endian. The key is written into the scratch
+ * buffer of the transaction and values are wrapped in place, so the methods
+ * taking a transaction do not allocate. Keys are ordered as unsigned numbers,
+ * negative keys sort after all positive ones.
+ *
+ * <pre>
+ * LongKeyDatabase records = new LongKeyDatabase(env, "records");
+ * records.put(tx, 42, value);
+ * if (records.get(tx, 42, value) == 0) {
+ * }
+ * try (LongCursor cursor = records.openCursor(tx)) {
+ *   for (boolean found = cursor.first(100, 200); found; found = cursor.next()) {
+ *     long id = cursor.key();
+ *   }
+ * }
+ * </pre>
+ *
+ * Needs a 64 bit platform where LMDB compares 8 byte integer keys.
+ *
+ * @see org.fusesource.lmdbjni.LongDupDatabase
+ */
+public class LongKeyDatabase implements Closeable {
+  final Database db;
+
+  /**
+   * Open or create a database with the given name.
+   */
+  public LongKeyDatabase(Env env, String name) {
+    this(env, name, Constants.CREATE);
+  }
+
+  /**
+   * Open a database with the given name, {@link org.fusesource.lmdbjni.Constants#INTEGERKEY}
+   * is added to the flags.
+   */
+  public LongKeyDatabase(Env env, String name, int flags) {
+    checkArgNotNull(env, "env");
+    if (Unsafe.ADDRESS_SIZE != 8) {
+      throw new UnsupportedOperationException("Long keys need a 64 bit platform");
+    }
+    this.db = env.openDatabase(name, flags | Constants.INTEGERKEY);
+  }
+
+  /**
+   * @return the underlying database.
+   */
+  public Database getDatabase() {
+    return db;
+  }
+
+  @Override
+  public void close() {
+    db.close();
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param tx    transaction handle.
+   * @param key   the key.
+   * @param value buffer to wrap the value into.
+   * @return the response code, {@link org.fusesource.lmdbjni.JNI#MDB_NOTFOUND} if
+   * the key was not found.
+   */
+  public int get(Transaction tx, long key, DirectBuffer value) {
+    checkArgNotNull(value, "value");
+    long address = getAddress(tx, key);
+    if (address == 0) {
+      return MDB_NOTFOUND;
+    }
+    value.wrap(Unsafe.getAddress(address, 3), (int) Unsafe.getLong(address, 2));
+    return 0;
+  }
+
+  /**
+   * Get a value stored by {@link #putLong(Transaction, long, long)}.
+   *
+   * @return the value or defaultValue if the key was not found.
+   */
+  public long getLong(Transaction tx, long key, long defaultValue) {
+    long address = getAddress(tx, key);
+    if (address == 0) {
+      return defaultValue;
+    }
+    if (Unsafe.getLong(address, 2) != DirectBuffer.SIZE_OF_LONG) {
+      throw new IllegalStateException("Value of key " + key + " is not a long");
+    }
+    return Unsafe.UNSAFE.getLong(Unsafe.getAddress(address, 3));
+  }
+
+  public boolean containsKey(Transaction tx, long key) {
+    return getAddress(tx, key) != 0;
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.LongKeyDatabase#put(Transaction, long, DirectBuffer, int)
+   */
+  public void put(Transaction tx, long key, DirectBuffer value) {
+    put(tx, key, value, 0);
+  }
+
+  /**
+   * Store a value.
+   *
+   * @param flags put flags, e.g. {@link org.fusesource.lmdbjni.Constants#APPEND} for
+   *              increasing keys.
+   * @return false if the key or pair already existed and the flags
+   *         {@link org.fusesource.lmdbjni.Constants#NOOVERWRITE} or
+   *         {@link org.fusesource.lmdbjni.Constants#NODUPDATA} were given.
+   */
+  public boolean put(Transaction tx, long key, DirectBuffer value, int flags) {
+    checkArgNotNull(value, "value");
+    long address = setKey(tx, key);
+    Unsafe.putLong(address, 2, value.capacity());
+    Unsafe.putLong(address, 3, value.addressOffset());
+    return put(tx, address, flags);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.LongKeyDatabase#putLong(Transaction, long, long, int)
+   */
+  public void putLong(Transaction tx, long key, long value) {
+    putLong(tx, key, value, 0);
+  }
+
+  /**
+   * Store a long value in native byte order.
+   *
+   * @see org.fusesource.lmdbjni.LongKeyDatabase#put(Transaction, long, DirectBuffer, int)
+   */
+  public boolean putLong(Transaction tx, long key, long value, int flags) {
+    long address = setKey(tx, key);
+    setValue(address, value);
+    return put(tx, address, flags);
+  }
+
+  /**
+   * Delete a key and all its values.
+   *
+   * @return true if the key was found.
+   */
+  public boolean delete(Transaction tx, long key) {
+    return delete(tx, setKey(tx, key), 0);
+  }
+
+  /**
+   * Open a cursor that moves over the keys without allocating.
+   */
+  public LongCursor openCursor(Transaction tx) {
+    return new LongCursor(db.openCursor(tx));
+  }
+
+  long setKey(Transaction tx, long key) {
+    checkArgNotNull(tx, "tx");
+    long address = tx.getBufferAddress();
+    Unsafe.putLong(address, 4, key);
+    Unsafe.putLong(address, 0, DirectBuffer.SIZE_OF_LONG);
+    Unsafe.putLong(address, 1, address + 4 * Unsafe.ADDRESS_SIZE);
+    return address;
+  }
+
+  void setValue(long address, long value) {
+    Unsafe.putLong(address, 5, value);
+    Unsafe.putLong(address, 2, DirectBuffer.SIZE_OF_LONG);
+    Unsafe.putLong(address, 3, address + 5 * Unsafe.ADDRESS_SIZE);
+  }
+
+  boolean put(Transaction tx, long address, int flags) {
+    int rc = mdb_put_address(tx.pointer(), db.pointer(), address, address + 2 * Unsafe.ADDRESS_SIZE, flags);
+    if (rc == MDB_KEYEXIST) {
+      return false;
+    }
+    checkErrorCode(rc);
+    return true;
+  }
+
+  boolean delete(Transaction tx, long address, long data) {
+    int rc = mdb_del_address(tx.pointer(), db.pointer(), address, data);
+    if (rc == MDB_NOTFOUND) {
+      return false;
+    }
+    checkErrorCode(rc);
+    return true;
+  }
+
+  /**
+   * @return the address of the scratch buffer holding the value or 0 if not found.
+   */
+  private long getAddress(Transaction tx, long key) {
+    long address = setKey(tx, key);
+    int rc = mdb_get_address(tx.pointer(), db.pointer(), address, address + 2 * Unsafe.ADDRESS_SIZE);
+    if (rc == MDB_NOTFOUND) {
+      return 0;
+    }
+    checkErrorCode(rc);
+    return address;
+  }
+}
@@ -0,0 +1,121 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * Describes how the memory map of an {@link org.fusesource.lmdbjni.Env} grows
+ * when a write transaction fails with {@link org.fusesource.lmdbjni.LMDBException#MAP_FULL}.
+ * <p>
+ * The next size is the larger of {@code current + step} and {@code current * ratio},
+ * rounded up to a whole number of pages and capped at the ceiling. Once the map has
+ * reached the ceiling the original MAP_FULL error is propagated to the caller.
+ * </p>
+ *
+ * @see org.fusesource.lmdbjni.Env#setMapGrowthPolicy(MapGrowthPolicy)
+ * @see org.fusesource.lmdbjni.Env#executeWrite(TransactionWork)
+ */
+public class MapGrowthPolicy {
+  /** Default time to wait for other transactions of the process to finish before resizing. */
+  public static final long DEFAULT_QUIESCE_TIMEOUT_MILLIS = 30000;
+
+  private final long step;
+  private final double ratio;
+  private final long ceiling;
+  private long quiesceTimeoutMillis = DEFAULT_QUIESCE_TIMEOUT_MILLIS;
+
+  /**
+   * @param step    minimum number of bytes to add on each growth, may be 0.
+   * @param ratio   minimum growth factor applied to the current size, 1.0 disables it.
+   * @param ceiling maximum size in bytes the map may grow to.
+   */
+  public MapGrowthPolicy(long step, double ratio, long ceiling) {
+    if (step < 0) {
+      throw new IllegalArgumentException("step must not be negative");
+    }
+    if (ratio < 1.0) {
+      throw new IllegalArgumentException("ratio must be at least 1.0");
+    }
+    if (step == 0 && ratio == 1.0) {
+      throw new IllegalArgumentException("either step or ratio must allow growth");
+    }
+    if (ceiling <= 0) {
+      throw new IllegalArgumentException("ceiling must be positive");
+    }
+    this.step = step;
+    this.ratio = ratio;
+    this.ceiling = ceiling;
+  }
+
+  /**
+   * Grow by a fixed number of bytes.
+   */
+  public static MapGrowthPolicy step(long step, long ceiling) {
+    return new MapGrowthPolicy(step, 1.0, ceiling);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.MapGrowthPolicy#step(long, long)
+   */
+  public static MapGrowthPolicy step(long step, ByteUnit stepUnit, long ceiling, ByteUnit ceilingUnit) {
+    return step(stepUnit.toBytes(step), ceilingUnit.toBytes(ceiling));
+  }
+
+  /**
+   * Grow by a factor of the current size.
+   */
+  public static MapGrowthPolicy ratio(double ratio, long ceiling) {
+    return new MapGrowthPolicy(0, ratio, ceiling);
+  }
+
+  public long getStep() {
+    return step;
+  }
+
+  public double getRatio() {
+    return ratio;
+  }
+
+  public long getCeiling() {
+    return ceiling;
+  }
+
+  public long getQuiesceTimeoutMillis() {
+    return quiesceTimeoutMillis;
+  }
+
+  /**
+   * Set how long a resize waits for the other transactions of this process
+   * to complete. If they do not complete in time the resize is abandoned and
+   * the original error is thrown.
+   */
+  public void setQuiesceTimeoutMillis(long quiesceTimeoutMillis) {
+    if (quiesceTimeoutMillis < 0) {
+      throw new IllegalArgumentException("quiesceTimeoutMillis must not be negative");
+    }
+    this.quiesceTimeoutMillis = quiesceTimeoutMillis;
+  }
+
+  /**
+   * @param current  the current map size in bytes.
+   * @param pageSize the page size of the environment.
+   * @return the size to grow to, or a value not greater than
+   * {@code current} if the ceiling has been reached.
+   */
+  public long nextSize(long current, long pageSize) {
+    if (current >= ceiling) {
+      return current;
+    }
+    long grown = Math.max(current + step, (long) (current * ratio));
+    if (pageSize > 0 && grown % pageSize != 0) {
+      grown += pageSize - grown % pageSize;
+    }
+    return Math.min(grown, ceiling);
+  }
+
+  @Override
+  public String toString() {
+    return "MapGrowthPolicy{" +
+      "step=" + step +
+      ", ratio=" + ratio +
+      ", ceiling=" + ceiling +
+      '}';
+  }
+}
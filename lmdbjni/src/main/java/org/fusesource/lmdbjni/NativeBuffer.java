@@ -20,6 +20,10 @@ package org.fusesource.lmdbjni;
 
 import org.fusesource.hawtjni.runtime.PointerMath;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -27,6 +31,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  * creating sub slices/views of that buffer and manages reference tracking
  * so that the the native buffer is freed once all NativeBuffer views
  * are deleted.
+ * <p>
+ * Small allocations are recycled through a per thread cache of free chunks in
+ * power of two size classes, so that creating and deleting short lived buffers
+ * does not call malloc and free. A chunk is returned to the cache of the thread
+ * that deletes the last view of it, and the chunks cached by a thread that has
+ * terminated are freed. The cache is enabled by default and can be disabled with
+ * the system property <code>lmdbjni.slab=false</code>. Counters are kept per thread
+ * and summed by {@link #slabStats()}.
+ * </p>
  *
  * @author <a href="http://hiramchirino.com">Hiram Chirino</a>
  */
@@ -34,9 +47,23 @@ public class NativeBuffer extends NativeObject {
 
   private static class Allocation extends NativeObject {
     private final AtomicInteger retained = new AtomicInteger(0);
+    private final int sizeClass;
 
-    private Allocation(long size) {
-      super(JNI.malloc(size));
+    private Allocation(long self, int sizeClass) {
+      super(self);
+      this.sizeClass = sizeClass;
+    }
+
+    static Allocation allocate(long size) {
+      Slab slab = Slab.current();
+      slab.live++;
+      if (Slab.ENABLED) {
+        int sizeClass = Slab.sizeClass(size);
+        if (sizeClass >= 0) {
+          return new Allocation(slab.allocate(sizeClass), sizeClass);
+        }
+      }
+      return new Allocation(JNI.malloc(size), -1);
     }
 
     void retain() {
@@ -50,9 +77,175 @@ public class NativeBuffer extends NativeObject {
       if (r < 0) {
         throw new Error("The object has already been deleted.");
       } else if (r == 0) {
-        JNI.free(self);
+        Slab slab = Slab.current();
+        if (sizeClass >= 0) {
+          slab.recycle(self, sizeClass);
+        } else {
+          JNI.free(self);
+        }
         self = 0;
+        slab.live--;
+      }
+    }
+  }
+
+  /**
+   * Free chunks and counters of one thread, a stack per size class.
+   * Counters of a slab may go negative when chunks are freed by another
+   * thread than the one that allocated them, only their sum is meaningful.
+   */
+  static class Slab {
+    static final boolean ENABLED = !"false".equals(System.getProperty("lmdbjni.slab"));
+    /** smallest size class, 16 bytes */
+    static final int MIN_SHIFT = 4;
+    /** largest size class, 64 KiB */
+    static final int MAX_SHIFT = 16;
+    /** maximum number of free chunks per size class */
+    static final int MAX_CHUNKS = 64;
+    /** maximum number of bytes in free chunks per thread */
+    static final long MAX_CACHED = 1024 * 1024;
+
+    private static final ThreadLocal<Slab> CURRENT = new ThreadLocal<Slab>();
+    /** slabs of all threads, also the lock of the counters below */
+    private static final List<Slab> SLABS = new ArrayList<Slab>();
+    /** counters of the slabs that have been removed */
+    private static long retiredReserved;
+    private static long retiredLive;
+    private static long retiredHits;
+    private static long retiredMisses;
+
+    private final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+    private final long[][] free = new long[MAX_SHIFT - MIN_SHIFT + 1][];
+    private final int[] count = new int[MAX_SHIFT - MIN_SHIFT + 1];
+    private long cached;
+    /** counters below are only written by the owner */
+    volatile long reserved;
+    volatile long live;
+    volatile long hits;
+    volatile long misses;
+
+    static Slab current() {
+      Slab slab = CURRENT.get();
+      if (slab == null) {
+        slab = new Slab();
+        synchronized (SLABS) {
+          removeDeadSlabs();
+          SLABS.add(slab);
+        }
+        CURRENT.set(slab);
+      }
+      return slab;
+    }
+
+    /**
+     * Free the chunks of the calling thread and stop tracking its slab.
+     */
+    static void release() {
+      Slab slab = CURRENT.get();
+      if (slab != null) {
+        slab.clear();
+        synchronized (SLABS) {
+          SLABS.remove(slab);
+          slab.retire();
+        }
+        CURRENT.remove();
+      }
+    }
+
+    static SlabStats stats() {
+      synchronized (SLABS) {
+        removeDeadSlabs();
+        long reserved = retiredReserved;
+        long live = retiredLive;
+        long hits = retiredHits;
+        long misses = retiredMisses;
+        for (Slab slab : SLABS) {
+          reserved += slab.reserved;
+          live += slab.live;
+          hits += slab.hits;
+          misses += slab.misses;
+        }
+        return new SlabStats(reserved, live, hits, misses);
+      }
+    }
+
+    /**
+     * Free the chunks of threads that have terminated, no other thread
+     * uses their slabs. Must hold the lock of SLABS.
+     */
+    private static void removeDeadSlabs() {
+      Iterator<Slab> it = SLABS.iterator();
+      while (it.hasNext()) {
+        Slab slab = it.next();
+        Thread thread = slab.owner.get();
+        if (thread == null || !thread.isAlive()) {
+          it.remove();
+          slab.clear();
+          slab.retire();
+        }
+      }
+    }
+
+    private void retire() {
+      retiredReserved += reserved;
+      retiredLive += live;
+      retiredHits += hits;
+      retiredMisses += misses;
+    }
+
+    /**
+     * @return the size class of an allocation or -1 if it is too large.
+     */
+    static int sizeClass(long size) {
+      if (size <= 1L << MIN_SHIFT) {
+        return 0;
       }
+      if (size > 1L << MAX_SHIFT) {
+        return -1;
+      }
+      return 64 - Long.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    static long chunkSize(int sizeClass) {
+      return 1L << (sizeClass + MIN_SHIFT);
+    }
+
+    long allocate(int sizeClass) {
+      if (count[sizeClass] > 0) {
+        hits++;
+        cached -= chunkSize(sizeClass);
+        return free[sizeClass][--count[sizeClass]];
+      }
+      misses++;
+      long address = JNI.malloc(chunkSize(sizeClass));
+      if (address != 0) {
+        reserved += chunkSize(sizeClass);
+      }
+      return address;
+    }
+
+    void recycle(long address, int sizeClass) {
+      long size = chunkSize(sizeClass);
+      if (count[sizeClass] == MAX_CHUNKS || cached + size > MAX_CACHED) {
+        JNI.free(address);
+        reserved -= size;
+        return;
+      }
+      if (free[sizeClass] == null) {
+        free[sizeClass] = new long[MAX_CHUNKS];
+      }
+      free[sizeClass][count[sizeClass]++] = address;
+      cached += size;
+    }
+
+    void clear() {
+      for (int i = 0; i < count.length; i++) {
+        while (count[i] > 0) {
+          JNI.free(free[i][--count[i]]);
+          reserved -= chunkSize(i);
+        }
+      }
+      cached = 0;
     }
   }
 
@@ -70,7 +263,7 @@ public class NativeBuffer extends NativeObject {
 
     NativeBuffer create(long size) {
       if (size >= chunk) {
-        Allocation allocation = new Allocation(size);
+        Allocation allocation = Allocation.allocate(size);
         return new NativeBuffer(allocation, allocation.self, size);
       }
 
@@ -89,7 +282,7 @@ public class NativeBuffer extends NativeObject {
     }
 
     private void allocate() {
-      allocation = new NativeBuffer.Allocation(chunk);
+      allocation = NativeBuffer.Allocation.allocate(chunk);
       allocation.retain();
       remaining = chunk;
       pos = allocation.self;
@@ -111,7 +304,7 @@ public class NativeBuffer extends NativeObject {
   static public NativeBuffer create(long capacity) {
     Pool pool = CURRENT_POOL.get();
     if (pool == null) {
-      Allocation allocation = new Allocation(capacity);
+      Allocation allocation = Allocation.allocate(capacity);
       return new NativeBuffer(allocation, allocation.self, capacity);
     } else {
       return pool.create(capacity);
@@ -135,6 +328,22 @@ public class NativeBuffer extends NativeObject {
     }
   }
 
+  /**
+   * @return counters of the chunk cache of all threads.
+   */
+  public static SlabStats slabStats() {
+    return Slab.stats();
+  }
+
+  /**
+   * Free the chunks cached by the calling thread, e.g. when a pooled thread
+   * goes idle. Chunks of threads that have terminated are freed the next time
+   * a thread starts using the cache or the counters are read.
+   */
+  public static void releaseSlabs() {
+    Slab.release();
+  }
+
   static public NativeBuffer create(byte[] data) {
     if (data == null) {
       return null;
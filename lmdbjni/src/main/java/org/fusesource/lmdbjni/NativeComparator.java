@@ -0,0 +1,61 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * <p>
+ * Key comparators implemented in native code, installed with
+ * {@link Database#setComparator(Transaction, NativeComparator)} or
+ * {@link Database#setDupComparator(Transaction, NativeComparator)}.
+ * </p>
+ *
+ * Unlike comparators written in Java they do not call back into the JVM for
+ * every comparison. Numeric keys are stored big-endian, e.g. with
+ * {@link DirectBuffer#putLong(int, long, java.nio.ByteOrder)} and
+ * {@link java.nio.ByteOrder#BIG_ENDIAN}. Bytes following the compared field are
+ * compared lexicographically, so a key may carry a suffix.
+ *
+ * Like any comparator, the same one must be installed every time the database is
+ * opened, before it is read or written.
+ *
+ * @see org.fusesource.lmdbjni.TupleComparator
+ */
+public enum NativeComparator {
+  /** Signed 64 bit integer keys. */
+  LONG(1),
+
+  /** Signed 32 bit integer keys. */
+  INT(2),
+
+  /** IEEE 754 double keys, in the order of {@link Double#compare(double, double)}. */
+  DOUBLE(3),
+
+  /**
+   * Descending lexicographic order. To compare keys starting from their last
+   * byte use {@link org.fusesource.lmdbjni.Constants#REVERSEKEY} instead.
+   */
+  REVERSE_LEXICOGRAPHIC(4),
+
+  /**
+   * Modified UTF-8 strings prefixed by their length as an unsigned 16 bit integer,
+   * the format of {@link java.io.DataOutput#writeUTF(String)}. The encoded bytes
+   * are compared lexicographically, which is the order of {@link String#compareTo(String)}
+   * except for U+0000: it is written as two bytes and sorts after U+007F.
+   */
+  UTF8(5);
+
+  private final int id;
+  private long function;
+
+  NativeComparator(int id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the address of the native comparison function.
+   */
+  synchronized long function() {
+    if (function == 0) {
+      function = JNI.lmdbjni_compare_function(id);
+    }
+    return function;
+  }
+}
@@ -0,0 +1,373 @@
+package org.fusesource.lmdbjni;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Scans a key range of a database with several threads, each reading its own
+ * partition of the range in its own read transaction.
+ * </p>
+ *
+ * The range is split at keys found by interpolating between its first and last
+ * key and positioning a cursor at each candidate, see
+ * {@link #split(Transaction, KeyRange, int)}. The split can be applied again to a
+ * partition, so tasks may subdivide their work further. Interpolation assumes the
+ * default lexicographic key order and partitions are only as even as the keys are
+ * spread over the key space. With a custom key order the split keys are still kept
+ * in the order of the database, but there may be fewer and less even partitions.
+ * <p>
+ * All partitions read the same snapshot. With {@link org.fusesource.lmdbjni.Constants#NOTLS}
+ * the transactions are opened back to back by the calling thread and handed to the
+ * workers. Otherwise every worker opens its own transaction and waits for the others.
+ * In both cases the transaction ids are compared and the transactions are opened again
+ * if a write was committed in between.
+ * </p>
+ *
+ * <pre>
+ * ParallelScan scan = new ParallelScan(env, db, 8);
+ * List&lt;Long&gt; counts = scan.scan(KeyRange.all(), new ParallelScan.Task&lt;Long&gt;() {
+ *   public Long scan(Transaction tx, KeyRange range) {
+ *     long count = 0;
+ *     try (BufferCursor cursor = db.bufferCursor(tx)) {
+ *       for (boolean found = cursor.first(range); found; found = cursor.next(range)) {
+ *         count++;
+ *       }
+ *     }
+ *     return count;
+ *   }
+ * });
+ * </pre>
+ *
+ * Without NOTLS the calling thread must not hold a read transaction of its own
+ * while splitting. Not available on Android.
+ */
+public class ParallelScan {
+  /** attempts to open transactions of the same snapshot */
+  public static final int MAX_SNAPSHOT_ATTEMPTS = 100;
+  /** number of key bytes used for interpolation */
+  private static final int INTERPOLATION_BYTES = 16;
+
+  private final Env env;
+  private final Database db;
+  private final int partitions;
+
+  /**
+   * A unit of work run for every partition of a scan.
+   */
+  public interface Task<T> {
+    /**
+     * @param tx    a read transaction of the snapshot shared by all partitions,
+     *              owned by the scan and aborted when the task returns.
+     * @param range the keys of the partition.
+     * @return the result of the partition.
+     */
+    T scan(Transaction tx, KeyRange range);
+  }
+
+  /**
+   * @param env        the environment of the database.
+   * @param db         the database to scan.
+   * @param partitions maximum number of partitions and threads.
+   */
+  public ParallelScan(Env env, Database db, int partitions) {
+    Util.checkArgNotNull(env, "env");
+    Util.checkArgNotNull(db, "db");
+    if (partitions < 1) {
+      throw new IllegalArgumentException("partitions must be positive");
+    }
+    this.env = env;
+    this.db = db;
+    this.partitions = partitions;
+  }
+
+  /**
+   * <p>
+   * Split a key range into at most n partitions that cover it in key order.
+   * </p>
+   *
+   * Fewer partitions are returned if the range holds few distinct keys.
+   *
+   * @param tx    a read transaction.
+   * @param range the range to split.
+   * @param n     maximum number of partitions.
+   * @return the partitions in key order.
+   */
+  public List<KeyRange> split(Transaction tx, KeyRange range, int n) {
+    Util.checkArgNotNull(tx, "tx");
+    Util.checkArgNotNull(range, "range");
+    List<KeyRange> result = new ArrayList<KeyRange>();
+    Cursor cursor = db.openCursor(tx);
+    try {
+      DirectBuffer key = new DirectBuffer(0, 0);
+      DirectBuffer value = new DirectBuffer(0, 0);
+      if (n < 2 || cursor.position(key, value, range, GetOp.FIRST) != 0) {
+        result.add(range);
+        return result;
+      }
+      byte[] first = copy(key);
+      cursor.position(key, value, range, GetOp.LAST);
+      byte[] last = copy(key);
+
+      int width = Math.min(Math.max(first.length, last.length), INTERPOLATION_BYTES);
+      BigInteger low = toNumber(first, width);
+      BigInteger distance = toNumber(last, width).subtract(low);
+      List<byte[]> splits = new ArrayList<byte[]>();
+      byte[] previous = first;
+      for (int i = 1; i < n; i++) {
+        BigInteger candidate = low.add(distance.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)));
+        key.wrap(ByteBuffer.allocateDirect(width));
+        key.putBytes(0, toBytes(candidate, width));
+        // the first key at or after the candidate starts the next partition
+        if (cursor.seekPosition(key, value, SeekOp.RANGE) != 0) {
+          continue;
+        }
+        // candidates increase byte-wise only, keep the splits that increase in database order
+        byte[] split = copy(key);
+        if (compare(tx, split, previous) > 0 && compare(tx, split, last) <= 0) {
+          splits.add(split);
+          previous = split;
+        }
+      }
+      if (splits.isEmpty()) {
+        result.add(range);
+        return result;
+      }
+      result.add(range.withUpper(splits.get(0), true));
+      for (int i = 1; i < splits.size(); i++) {
+        result.add(KeyRange.closedOpen(splits.get(i - 1), splits.get(i)));
+      }
+      result.add(range.withLower(splits.get(splits.size() - 1), false));
+      return result;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.ParallelScan#scan(KeyRange, Task)
+   */
+  public <T> List<T> scan(Task<T> task) {
+    return scan(KeyRange.all(), task);
+  }
+
+  /**
+   * <p>
+   * Split a range and run the task for every partition on its own thread.
+   * </p>
+   *
+   * @param range the keys to scan.
+   * @param task  the work for every partition.
+   * @return the results of the partitions in key order.
+   */
+  public <T> List<T> scan(KeyRange range, final Task<T> task) {
+    Util.checkArgNotNull(range, "range");
+    Util.checkArgNotNull(task, "task");
+    final boolean notls = (env.getFlags() & Constants.NOTLS) != 0;
+    final List<KeyRange> ranges;
+    Transaction[] pinned = null;
+    Transaction tx = env.createReadTransaction();
+    try {
+      ranges = split(tx, range, partitions);
+      if (notls) {
+        pinned = openSnapshot(tx, ranges.size());
+        tx = null;
+      }
+    } finally {
+      if (tx != null) {
+        tx.abort();
+      }
+    }
+
+    final int count = ranges.size();
+    final List<T> results = new ArrayList<T>(count);
+    for (int i = 0; i < count; i++) {
+      results.add(null);
+    }
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final Transaction[] transactions = pinned;
+    final AtomicLongArray ids = new AtomicLongArray(count);
+    final CyclicBarrier barrier = new CyclicBarrier(count);
+    Thread[] threads = new Thread[count];
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Transaction tx = transactions != null ? transactions[index] : openShared(index, ids, barrier, error);
+          if (tx == null) {
+            return;
+          }
+          try {
+            T result = task.scan(tx, ranges.get(index));
+            synchronized (results) {
+              results.set(index, result);
+            }
+          } catch (Throwable e) {
+            error.compareAndSet(null, e);
+          } finally {
+            tx.abort();
+          }
+        }
+      }, "lmdbjni-scan-" + i);
+      threads[i].start();
+    }
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw new LMDBException("Scan failed: " + e, e);
+    }
+    synchronized (results) {
+      return results;
+    }
+  }
+
+  /**
+   * Open transactions for all partitions on the calling thread, keeping the
+   * given one, until they share a snapshot.
+   */
+  private Transaction[] openSnapshot(Transaction first, int count) {
+    Transaction[] transactions = new Transaction[count];
+    transactions[0] = first;
+    try {
+      for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++) {
+        boolean consistent = true;
+        for (int i = 1; i < count; i++) {
+          if (transactions[i] == null) {
+            transactions[i] = env.createReadTransaction();
+          } else {
+            transactions[i].renew();
+          }
+          consistent &= transactions[i].getId() == first.getId();
+        }
+        if (consistent) {
+          Transaction[] result = transactions;
+          transactions = null;
+          return result;
+        }
+        // move the first transaction to the latest snapshot too
+        first.reset();
+        first.renew();
+        for (int i = 1; i < count; i++) {
+          transactions[i].reset();
+        }
+      }
+      throw new LMDBException("Could not open transactions of the same snapshot");
+    } finally {
+      if (transactions != null) {
+        for (Transaction tx : transactions) {
+          if (tx != null) {
+            tx.abort();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Open a transaction on a worker thread and wait for the other workers until
+   * all transactions share a snapshot. Every worker sees the same ids after a
+   * barrier and so takes the same decision.
+   *
+   * @return the transaction or null if the scan failed.
+   */
+  private Transaction openShared(int index, AtomicLongArray ids, CyclicBarrier barrier,
+                                 AtomicReference<Throwable> error) {
+    for (int attempt = 0; ; attempt++) {
+      Transaction tx = null;
+      long id = -1;
+      try {
+        tx = env.createReadTransaction();
+        id = tx.getId();
+      } catch (RuntimeException e) {
+        error.compareAndSet(null, e);
+      }
+      ids.set(index, id);
+      boolean consistent = await(barrier, error) && error.get() == null;
+      for (int i = 0; consistent && i < ids.length(); i++) {
+        consistent = ids.get(i) == ids.get(0);
+      }
+      if (consistent) {
+        return tx;
+      }
+      if (tx != null) {
+        tx.abort();
+      }
+      if (error.get() != null) {
+        return null;
+      }
+      if (attempt + 1 >= MAX_SNAPSHOT_ATTEMPTS) {
+        error.compareAndSet(null, new LMDBException("Could not open transactions of the same snapshot"));
+        return null;
+      }
+      // nobody opens a transaction again before all ids have been compared
+      if (!await(barrier, error)) {
+        return null;
+      }
+    }
+  }
+
+  private static boolean await(CyclicBarrier barrier, AtomicReference<Throwable> error) {
+    try {
+      barrier.await();
+      return true;
+    } catch (InterruptedException e) {
+      error.compareAndSet(null, e);
+      Thread.currentThread().interrupt();
+    } catch (BrokenBarrierException e) {
+      error.compareAndSet(null, e);
+    }
+    return false;
+  }
+
+  private int compare(Transaction tx, byte[] a, byte[] b) {
+    DirectBuffer left = new DirectBuffer(ByteBuffer.allocateDirect(a.length));
+    left.putBytes(0, a);
+    DirectBuffer right = new DirectBuffer(ByteBuffer.allocateDirect(b.length));
+    right.putBytes(0, b);
+    return JNI.mdb_cmp(tx.pointer(), db.pointer(),
+      new Value(left.addressOffset(), a.length), new Value(right.addressOffset(), b.length));
+  }
+
+  private static byte[] copy(DirectBuffer buffer) {
+    byte[] bytes = new byte[buffer.capacity()];
+    buffer.getBytes(0, bytes);
+    return bytes;
+  }
+
+  private static BigInteger toNumber(byte[] key, int width) {
+    byte[] bytes = new byte[width];
+    System.arraycopy(key, 0, bytes, 0, Math.min(key.length, width));
+    return new BigInteger(1, bytes);
+  }
+
+  private static byte[] toBytes(BigInteger number, int width) {
+    byte[] bytes = number.toByteArray();
+    byte[] result = new byte[width];
+    int length = Math.min(bytes.length, width);
+    System.arraycopy(bytes, bytes.length - length, result, width - length, length);
+    return result;
+  }
+}
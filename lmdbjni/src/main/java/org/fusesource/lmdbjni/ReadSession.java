@@ -0,0 +1,239 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+
+/**
+ * <p>
+ * A long lived read transaction that moves to a newer snapshot once it
+ * gets too old.
+ * </p>
+ *
+ * A read transaction pins the pages of its snapshot, so a scanner that keeps
+ * one open for long makes writers grow the data file instead of reusing freed
+ * pages. A session tracks the age of its snapshot and how many transactions
+ * were committed since. Calling {@link #checkpoint()} at a safe point, e.g.
+ * between two batches of a scan, resets and renews the transaction once the
+ * snapshot is older than maxAge or lags more than maxLag transactions, and
+ * renews the cursors opened through the session.
+ *
+ * Renewed cursors are unpositioned, so a scan seeks again from the last key
+ * it saw, which was copied before the checkpoint. A cursor that is no longer
+ * needed is given back with {@link #release(Closeable)}; cursors closed by the
+ * caller are dropped by the session as well.
+ *
+ * <pre>
+ * try (ReadSession session = new ReadSession(env, 1, TimeUnit.SECONDS, 1000)) {
+ *   BufferCursor cursor = session.bufferCursor(db);
+ *   boolean found = cursor.first();
+ *   while (found) {
+ *     for (int i = 0; found &amp;&amp; i &lt; 1000; i++) {
+ *       process(cursor);
+ *       found = cursor.next();
+ *     }
+ *     if (found) {
+ *       byte[] last = cursor.keyBytes();
+ *       if (session.checkpoint()) {
+ *         found = cursor.seekRange(last);
+ *       }
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * A session is not thread safe. Without {@link org.fusesource.lmdbjni.Constants#NOTLS}
+ * it must stay on the thread that created it.
+ */
+public class ReadSession implements Closeable {
+  private final Env env;
+  private final Transaction tx;
+  private final long maxAgeNanos;
+  private final long maxLag;
+  private final List<Closeable> cursors = new ArrayList<Closeable>();
+  private long started;
+  private long refreshes;
+
+  /**
+   * @param env    an open environment.
+   * @param maxAge age of the snapshot that triggers a refresh, 0 for no limit.
+   * @param unit   unit of maxAge.
+   * @param maxLag number of commits since the snapshot that triggers a
+   *               refresh, 0 for no limit.
+   */
+  public ReadSession(Env env, long maxAge, TimeUnit unit, long maxLag) {
+    checkArgNotNull(env, "env");
+    checkArgNotNull(unit, "unit");
+    if (maxAge < 0 || maxLag < 0) {
+      throw new IllegalArgumentException("maxAge and maxLag must not be negative");
+    }
+    this.env = env;
+    this.maxAgeNanos = unit.toNanos(maxAge);
+    this.maxLag = maxLag;
+    this.tx = env.createReadTransaction();
+    this.started = System.nanoTime();
+  }
+
+  /**
+   * @return the transaction of the session, renewed in place on refresh.
+   */
+  public Transaction getTransaction() {
+    return tx;
+  }
+
+  /**
+   * Open a cursor that is renewed with the session and closed with it.
+   */
+  public Cursor openCursor(Database db) {
+    return register(db.openCursor(tx));
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.ReadSession#openCursor(Database)
+   */
+  public BufferCursor bufferCursor(Database db) {
+    return register(db.bufferCursor(tx));
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.ReadSession#openCursor(Database)
+   */
+  public BufferCursor bufferCursor(Database db, int maxValueSize) {
+    return register(db.bufferCursor(tx, maxValueSize));
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.ReadSession#openCursor(Database)
+   */
+  public LongCursor openCursor(LongKeyDatabase db) {
+    return register(db.openCursor(tx));
+  }
+
+  /**
+   * Close a cursor opened through the session and stop renewing it.
+   *
+   * @param cursor a cursor returned by this session.
+   */
+  public void release(Closeable cursor) {
+    for (Iterator<Closeable> it = cursors.iterator(); it.hasNext(); ) {
+      if (it.next() == cursor) {
+        it.remove();
+        handle(cursor).close();
+        return;
+      }
+    }
+    throw new IllegalArgumentException("Cursor not opened by this session");
+  }
+
+  /**
+   * @return time since the snapshot was taken.
+   */
+  public long getAge(TimeUnit unit) {
+    return unit.convert(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return number of transactions committed since the snapshot was taken.
+   */
+  public long getLag() {
+    return Math.max(0, env.info().getLastTxnId() - tx.getId());
+  }
+
+  /**
+   * @return number of times the session moved to a newer snapshot.
+   */
+  public long getRefreshes() {
+    return refreshes;
+  }
+
+  /**
+   * @return true if the snapshot is older than maxAge or lags more than maxLag.
+   */
+  public boolean isStale() {
+    if (maxAgeNanos > 0 && System.nanoTime() - started > maxAgeNanos) {
+      return true;
+    }
+    return maxLag > 0 && getLag() > maxLag;
+  }
+
+  /**
+   * Refresh the session if it is stale. Call it only where the data read so
+   * far is no longer referenced.
+   *
+   * @return true if the session moved to a newer snapshot and the cursors
+   * need to be positioned again.
+   */
+  public boolean checkpoint() {
+    if (!isStale()) {
+      return false;
+    }
+    refresh();
+    return true;
+  }
+
+  /**
+   * Move to the latest snapshot and renew the cursors of the session.
+   */
+  public void refresh() {
+    tx.reset();
+    tx.renew();
+    removeClosed();
+    for (Closeable cursor : cursors) {
+      if (cursor instanceof Cursor) {
+        ((Cursor) cursor).renew(tx);
+      } else if (cursor instanceof BufferCursor) {
+        ((BufferCursor) cursor).renew(tx);
+      } else {
+        ((LongCursor) cursor).renew(tx);
+      }
+    }
+    started = System.nanoTime();
+    refreshes++;
+  }
+
+  /**
+   * Close the cursors of the session and abort its transaction.
+   */
+  @Override
+  public void close() {
+    for (Closeable cursor : cursors) {
+      try {
+        cursor.close();
+      } catch (IOException ignored) {
+      }
+    }
+    cursors.clear();
+    tx.abort();
+  }
+
+  private <T extends Closeable> T register(T cursor) {
+    removeClosed();
+    cursors.add(cursor);
+    return cursor;
+  }
+
+  /**
+   * Drop the cursors the caller closed, their handles are freed.
+   */
+  private void removeClosed() {
+    for (Iterator<Closeable> it = cursors.iterator(); it.hasNext(); ) {
+      if (!handle(it.next()).isAllocated()) {
+        it.remove();
+      }
+    }
+  }
+
+  private static Cursor handle(Closeable cursor) {
+    if (cursor instanceof Cursor) {
+      return (Cursor) cursor;
+    } else if (cursor instanceof BufferCursor) {
+      return ((BufferCursor) cursor).getCursor();
+    }
+    return ((LongCursor) cursor).getCursor();
+  }
+}
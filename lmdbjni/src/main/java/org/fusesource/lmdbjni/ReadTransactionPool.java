@@ -0,0 +1,227 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * A pool of read-only transaction handles that are recycled with
+ * {@link Transaction#reset()} and {@link Transaction#renew()} instead of
+ * being created and aborted for every read.
+ * </p>
+ *
+ * Without {@link org.fusesource.lmdbjni.Constants#NOTLS} a reader lock table slot
+ * is tied to a thread, so each thread keeps its own reset handle and a handle must
+ * only be used by the thread that borrowed it. The handles of threads that have
+ * died are aborted the next time a thread borrows for the first time. With NOTLS the
+ * slot is tied to the handle and reset handles are shared between all threads.
+ * The number of pooled handles is bounded by {@link Env#getMaxReaders()}; once the
+ * bound is reached additional transactions are created and aborted as usual.
+ *
+ * <pre>
+ * Transaction tx = pool.borrow();
+ * try {
+ *   db.get(tx, key);
+ * } finally {
+ *   pool.release(tx);
+ * }
+ * </pre>
+ *
+ * A borrowed transaction must be given back with {@link #release(Transaction)} and
+ * not be closed, reset or committed by the borrower. Cursors opened in a borrowed
+ * transaction must be closed before it is released.
+ *
+ * @see org.fusesource.lmdbjni.Env#getReadTransactionPool()
+ */
+public class ReadTransactionPool implements Closeable {
+  private final Env env;
+  private final boolean threadLocal;
+  private final int maxSize;
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile boolean closed;
+
+  /** per thread idle handle, used without NOTLS */
+  private final ThreadLocal<Slot> slot = new ThreadLocal<Slot>() {
+    @Override
+    protected Slot initialValue() {
+      Slot slot = new Slot(Thread.currentThread());
+      synchronized (slots) {
+        removeDeadSlots();
+        slots.add(slot);
+      }
+      return slot;
+    }
+  };
+  private final List<Slot> slots = new ArrayList<Slot>();
+
+  /** shared idle handles, used with NOTLS */
+  private final Transaction[] idle;
+  private int idleCount;
+
+  /**
+   * @param env     an open environment.
+   * @param maxSize maximum number of pooled handles, bounded by the
+   *                maximum number of readers of the environment.
+   */
+  public ReadTransactionPool(Env env, int maxSize) {
+    Util.checkArgNotNull(env, "env");
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.env = env;
+    this.maxSize = (int) Math.min(maxSize, env.getMaxReaders());
+    this.threadLocal = (env.getFlags() & Constants.NOTLS) == 0;
+    this.idle = threadLocal ? null : new Transaction[this.maxSize];
+  }
+
+  public ReadTransactionPool(Env env) {
+    this(env, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return an active read-only transaction.
+   */
+  public Transaction borrow() {
+    if (closed) {
+      throw new LMDBException("Transaction pool is closed.");
+    }
+    Transaction tx = threadLocal ? slot.get().tx.getAndSet(null) : pop();
+    if (tx == null) {
+      tx = env.createReadTransaction();
+      if (size.incrementAndGet() <= maxSize) {
+        tx.pool = this;
+      } else {
+        size.decrementAndGet();
+      }
+      return tx;
+    }
+    try {
+      tx.renew();
+    } catch (LMDBException e) {
+      giveBack(tx);
+      throw e;
+    }
+    return tx;
+  }
+
+  /**
+   * Give back a transaction obtained from {@link #borrow()}.
+   * Transactions that do not belong to the pool are aborted.
+   */
+  public void release(Transaction tx) {
+    if (tx == null) {
+      return;
+    }
+    if (tx.pool != this || tx.self == 0 || closed) {
+      discard(tx);
+      return;
+    }
+    tx.reset();
+    giveBack(tx);
+  }
+
+  /**
+   * @return the number of handles owned by the pool, idle or borrowed.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Abort all idle handles. Borrowed handles are aborted when released.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (threadLocal) {
+      synchronized (slots) {
+        for (Slot s : slots) {
+          discard(s.tx.getAndSet(null));
+        }
+        slots.clear();
+      }
+    } else {
+      synchronized (this) {
+        while (idleCount > 0) {
+          discard(idle[--idleCount]);
+          idle[idleCount] = null;
+        }
+      }
+    }
+  }
+
+  private void giveBack(Transaction tx) {
+    if (threadLocal) {
+      Slot s = slot.get();
+      if (!s.tx.compareAndSet(null, tx)) {
+        discard(tx);
+      } else if (closed) {
+        discard(s.tx.getAndSet(null));
+      }
+    } else if (!push(tx)) {
+      discard(tx);
+    }
+  }
+
+  private void discard(Transaction tx) {
+    if (tx != null) {
+      if (tx.pool == this) {
+        tx.pool = null;
+        size.decrementAndGet();
+      }
+      tx.abort();
+    }
+  }
+
+  private synchronized Transaction pop() {
+    if (idleCount == 0) {
+      return null;
+    }
+    Transaction tx = idle[--idleCount];
+    idle[idleCount] = null;
+    return tx;
+  }
+
+  private synchronized boolean push(Transaction tx) {
+    if (closed || idleCount == idle.length) {
+      return false;
+    }
+    idle[idleCount++] = tx;
+    return true;
+  }
+
+  /**
+   * Drop the slots of threads that have died. A reset handle no longer refers
+   * to its thread's reader slot, so aborting it only frees the handle even if
+   * LMDB has given the reader slot to another thread meanwhile.
+   */
+  private void removeDeadSlots() {
+    Iterator<Slot> it = slots.iterator();
+    while (it.hasNext()) {
+      Slot s = it.next();
+      Thread owner = s.owner.get();
+      if (owner == null || !owner.isAlive()) {
+        it.remove();
+        discard(s.tx.getAndSet(null));
+      }
+    }
+  }
+
+  private static final class Slot {
+    final AtomicReference<Transaction> tx = new AtomicReference<Transaction>();
+    final WeakReference<Thread> owner;
+
+    Slot(Thread owner) {
+      this.owner = new WeakReference<Thread>(owner);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * A slot of the reader lock table.
+ *
+ * @see org.fusesource.lmdbjni.Env#readerList()
+ */
+public class ReaderInfo {
+  private final long pid;
+  private final long thread;
+  private final long txnId;
+  private final long lastTxnId;
+
+  ReaderInfo(long pid, long thread, long txnId, long lastTxnId) {
+    this.pid = pid;
+    this.thread = thread;
+    this.txnId = txnId;
+    this.lastTxnId = lastTxnId;
+  }
+
+  /**
+   * @return ID of the process owning the slot.
+   */
+  public long getPid() {
+    return pid;
+  }
+
+  /**
+   * @return native ID of the thread owning the slot.
+   */
+  public long getThread() {
+    return thread;
+  }
+
+  /**
+   * @return ID of the snapshot read, -1 if the slot holds no read transaction.
+   */
+  public long getTxnId() {
+    return txnId;
+  }
+
+  /**
+   * @return true if the slot holds a read transaction.
+   */
+  public boolean isActive() {
+    return txnId != -1;
+  }
+
+  /**
+   * @return number of transactions committed since the snapshot was read,
+   * 0 if the slot holds no read transaction.
+   */
+  public long getLag() {
+    // a reader may start on a newer snapshot while the table is listed
+    return isActive() ? Math.max(0, lastTxnId - txnId) : 0;
+  }
+
+  @Override
+  public String toString() {
+    return "ReaderInfo{" +
+      "pid=" + pid +
+      ", thread=" + Long.toHexString(thread) +
+      ", txnId=" + txnId +
+      ", lag=" + getLag() +
+      '}';
+  }
+}
@@ -0,0 +1,165 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+
+/**
+ * <p>
+ * Periodically clears stale slots of the reader lock table and reports
+ * readers that fall behind.
+ * </p>
+ *
+ * Slots of processes that died are cleared with {@link Env#readerCheck()}.
+ * Readers whose snapshot is more than maxLag transactions older than the last
+ * commit are passed to the listener, since the pages they pin cannot be
+ * reused and the data file grows instead. The reaper does not abort them.
+ *
+ * <pre>
+ * ReaderReaper reaper = new ReaderReaper(env, 10000, listener).start(1, TimeUnit.MINUTES);
+ * </pre>
+ *
+ * Close the reaper before the environment.
+ */
+public class ReaderReaper implements Closeable {
+
+  /**
+   * Receives the result of a check.
+   */
+  public interface Listener {
+    /**
+     * Called after a check that cleared stale slots or found lagging readers.
+     *
+     * @param staleSlots number of slots of dead processes cleared.
+     * @param lagging    readers more than maxLag transactions behind.
+     */
+    void checked(int staleSlots, List<ReaderInfo> lagging);
+
+    /**
+     * Called when a background check failed, including failures of
+     * {@link #checked(int, List)}. The checks go on.
+     *
+     * @param e the failure.
+     */
+    void failed(RuntimeException e);
+  }
+
+  private final Env env;
+  private final long maxLag;
+  private final Listener listener;
+  private Thread thread;
+  private boolean closed;
+
+  /**
+   * @param env      the environment to check.
+   * @param maxLag   number of transactions a reader may fall behind.
+   * @param listener receives stale and lagging readers.
+   */
+  public ReaderReaper(Env env, long maxLag, Listener listener) {
+    checkArgNotNull(env, "env");
+    checkArgNotNull(listener, "listener");
+    if (maxLag < 0) {
+      throw new IllegalArgumentException("maxLag must not be negative");
+    }
+    this.env = env;
+    this.maxLag = maxLag;
+    this.listener = listener;
+  }
+
+  /**
+   * Check the reader lock table once.
+   *
+   * @return the readers more than maxLag transactions behind.
+   */
+  public List<ReaderInfo> check() {
+    int staleSlots = env.readerCheck();
+    List<ReaderInfo> lagging = new ArrayList<ReaderInfo>();
+    for (ReaderInfo reader : env.readerList()) {
+      if (reader.getLag() > maxLag) {
+        lagging.add(reader);
+      }
+    }
+    if (staleSlots > 0 || !lagging.isEmpty()) {
+      listener.checked(staleSlots, lagging);
+    }
+    return lagging;
+  }
+
+  /**
+   * Check the reader lock table from a daemon thread until closed. A check
+   * that fails is reported to {@link Listener#failed(RuntimeException)}
+   * and retried after the next interval.
+   */
+  public synchronized ReaderReaper start(long interval, TimeUnit unit) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    if (thread != null || closed) {
+      throw new IllegalStateException("Reaper already started");
+    }
+    final long millis = Math.max(1, unit.toMillis(interval));
+    thread = new Thread("lmdbjni-reader-reaper") {
+      @Override
+      public void run() {
+        while (await(millis)) {
+          try {
+            check();
+          } catch (RuntimeException e) {
+            report(e);
+          }
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    return this;
+  }
+
+  /**
+   * Stop the checks, waiting for a running check to finish.
+   */
+  @Override
+  public void close() {
+    Thread running;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+      running = thread;
+    }
+    if (running != null && running != Thread.currentThread()) {
+      try {
+        running.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void report(RuntimeException e) {
+    try {
+      listener.failed(e);
+    } catch (RuntimeException ignored) {
+      // keep the thread running
+    }
+  }
+
+  private synchronized boolean await(long millis) {
+    long deadline = System.currentTimeMillis() + millis;
+    long wait = millis;
+    while (!closed && wait > 0) {
+      try {
+        wait(wait);
+      } catch (InterruptedException e) {
+        return false;
+      }
+      wait = deadline - System.currentTimeMillis();
+    }
+    return !closed;
+  }
+}
@@ -0,0 +1,67 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * Counters of the chunk cache behind {@link NativeBuffer#create(long)}, summed
+ * over all threads.
+ *
+ * @see org.fusesource.lmdbjni.NativeBuffer#slabStats()
+ */
+public class SlabStats {
+  private final long bytesReserved;
+  private final long liveBuffers;
+  private final long hits;
+  private final long misses;
+
+  SlabStats(long bytesReserved, long liveBuffers, long hits, long misses) {
+    this.bytesReserved = bytesReserved;
+    this.liveBuffers = liveBuffers;
+    this.hits = hits;
+    this.misses = misses;
+  }
+
+  /**
+   * @return bytes of native memory held in cached chunks, in use or free.
+   */
+  public long getBytesReserved() {
+    return bytesReserved;
+  }
+
+  /**
+   * @return native allocations that have not been deleted yet.
+   */
+  public long getLiveBuffers() {
+    return liveBuffers;
+  }
+
+  /**
+   * @return allocations served from a free chunk.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return allocations of a chunk size class that needed a malloc.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the share of chunk allocations served without malloc, 0 if none.
+   */
+  public double getHitRate() {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "SlabStats{" +
+      "bytesReserved=" + bytesReserved +
+      ", liveBuffers=" + liveBuffers +
+      ", hits=" + hits +
+      ", misses=" + misses +
+      '}';
+  }
+}
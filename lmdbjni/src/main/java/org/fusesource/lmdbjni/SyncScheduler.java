@@ -0,0 +1,356 @@
+package org.fusesource.lmdbjni;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+
+/**
+ * <p>
+ * Flushes an environment opened with {@link org.fusesource.lmdbjni.Constants#NOSYNC}
+ * or {@link org.fusesource.lmdbjni.Constants#MAPASYNC} from a background thread.
+ * </p>
+ *
+ * A flush runs once the interval has passed, or earlier after a number of
+ * commits or once the data file grew by a number of bytes. Many commits share
+ * a single {@link Env#sync(boolean)}, and a writer that needs its commit on disk
+ * waits for it with {@link #whenDurable(long)} instead of syncing itself.
+ *
+ * <pre>
+ * SyncScheduler scheduler = new SyncScheduler(env, 100, TimeUnit.MILLISECONDS)
+ *   .syncAfterTransactions(1000)
+ *   .start();
+ *
+ * long id = tx.getId();
+ * tx.commit();
+ * scheduler.whenDurable(id).get();
+ * </pre>
+ *
+ * Commits of write transactions of this process are counted through a hook in
+ * {@link Transaction#commit()}; commits of other processes are made durable by the
+ * next flush but do not trigger one. The growth of the data file is sampled by the
+ * flush thread, not by the committing threads. Closing the scheduler, or the
+ * environment, flushes once more.
+ */
+public class SyncScheduler implements Closeable {
+  private final Env env;
+  private final long intervalMillis;
+
+  /** state below is guarded by this */
+  private long maxTransactions;
+  private long maxBytes;
+  private Thread thread;
+  private boolean closed;
+  private boolean finished;
+  private long lastCommitted;
+  private long lastDurable;
+  private long pendingTransactions;
+  private long basePages;
+  private long pageSize;
+  private boolean due;
+  private boolean sampleRequested;
+  private LMDBException failure;
+
+  /**
+   * @param env      an open environment.
+   * @param interval time between flushes, 0 to flush on the other triggers only.
+   * @param unit     unit of the interval.
+   */
+  public SyncScheduler(Env env, long interval, TimeUnit unit) {
+    checkArgNotNull(env, "env");
+    checkArgNotNull(unit, "unit");
+    if (interval < 0) {
+      throw new IllegalArgumentException("interval must not be negative");
+    }
+    this.env = env;
+    this.intervalMillis = unit.toMillis(interval);
+  }
+
+  /**
+   * Flush after a number of commits, 0 to disable.
+   */
+  public synchronized SyncScheduler syncAfterTransactions(long transactions) {
+    if (transactions < 0) {
+      throw new IllegalArgumentException("transactions must not be negative");
+    }
+    this.maxTransactions = transactions;
+    return this;
+  }
+
+  /**
+   * Flush once the data file grew by a number of bytes, 0 to disable. Pages
+   * reused from the free list do not grow the file, so combine it with a
+   * transaction or time trigger when records are updated in place.
+   */
+  public synchronized SyncScheduler syncAfterBytes(long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("bytes must not be negative");
+    }
+    this.maxBytes = bytes;
+    return this;
+  }
+
+  /**
+   * Install the scheduler on the environment and start flushing.
+   *
+   * @throws IllegalStateException if the environment already has a scheduler.
+   */
+  public synchronized SyncScheduler start() {
+    if (thread != null || closed) {
+      throw new IllegalStateException("Scheduler already started");
+    }
+    if (intervalMillis == 0 && maxTransactions == 0 && maxBytes == 0) {
+      throw new IllegalArgumentException("No flush trigger configured");
+    }
+    EnvInfo info = env.info();
+    lastCommitted = info.getLastTxnId();
+    basePages = info.getLastPgNo();
+    pageSize = env.stat().ms_psize;
+    env.setSyncScheduler(this);
+    thread = new Thread("lmdbjni-sync") {
+      @Override
+      public void run() {
+        while (awaitFlush()) {
+          flush(false);
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    return this;
+  }
+
+  /**
+   * @return ID of the last transaction known to be on disk.
+   */
+  public synchronized long getLastDurableTxnId() {
+    return lastDurable;
+  }
+
+  /**
+   * A future completing with the last durable transaction ID once the given
+   * transaction is on disk. It fails if the flush fails or the scheduler is
+   * closed before. The future of a transaction that is already on disk, or that
+   * committed without changes and so has nothing to write, is done at once.
+   *
+   * @param txnId ID of a committed transaction, see {@link Transaction#getId()}.
+   */
+  public Future<Long> whenDurable(long txnId) {
+    synchronized (this) {
+      if (txnId <= lastDurable) {
+        return new Durable(txnId, true);
+      }
+    }
+    // an empty commit does not advance the last transaction ID
+    return new Durable(txnId, txnId > env.info().getLastTxnId());
+  }
+
+  /**
+   * Flush now from the calling thread.
+   *
+   * @return ID of the last durable transaction.
+   */
+  public long sync() {
+    flush(true);
+    synchronized (this) {
+      if (failure != null) {
+        throw failure;
+      }
+      return lastDurable;
+    }
+  }
+
+  /**
+   * Stop the scheduler and flush once more.
+   */
+  @Override
+  public void close() {
+    Thread running;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+      running = thread;
+    }
+    boolean interrupted = false;
+    while (running != null && running.isAlive() && running != Thread.currentThread()) {
+      try {
+        running.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    try {
+      flush(false);
+    } finally {
+      if (running != null) {
+        env.setSyncScheduler(null);
+      }
+      synchronized (this) {
+        finished = true;
+        notifyAll();
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Called by {@link Transaction#commit()} after a write transaction committed.
+   */
+  synchronized void committed(long txnId) {
+    lastCommitted = Math.max(lastCommitted, txnId);
+    pendingTransactions++;
+    if (maxTransactions > 0 && pendingTransactions >= maxTransactions) {
+      due = true;
+      notifyAll();
+    } else if (maxBytes > 0 && !sampleRequested) {
+      // the flush thread checks the size of the data file
+      sampleRequested = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Wait for the next flush to become due, sampling the growth of the data
+   * file after commits.
+   *
+   * @return false once closed.
+   */
+  private boolean awaitFlush() {
+    long deadline = System.currentTimeMillis() + intervalMillis;
+    while (true) {
+      long base;
+      synchronized (this) {
+        while (!closed && !due && !sampleRequested) {
+          long wait = intervalMillis == 0 ? 0 : deadline - System.currentTimeMillis();
+          if (intervalMillis > 0 && wait <= 0) {
+            return true;
+          }
+          try {
+            wait(wait);
+          } catch (InterruptedException e) {
+            return false;
+          }
+        }
+        if (closed) {
+          return false;
+        }
+        if (due) {
+          return true;
+        }
+        sampleRequested = false;
+        base = basePages;
+      }
+      if ((env.info().getLastPgNo() - base) * pageSize >= maxBytes) {
+        return true;
+      }
+    }
+  }
+
+  private void flush(boolean force) {
+    synchronized (this) {
+      due = false;
+      if (!force && lastCommitted <= lastDurable && failure == null) {
+        return;
+      }
+      pendingTransactions = 0;
+    }
+    // everything committed before the sync starts is written by it
+    EnvInfo info = env.info();
+    long target = info.getLastTxnId();
+    LMDBException error = null;
+    boolean pending;
+    synchronized (this) {
+      pending = target > lastDurable || failure != null;
+    }
+    if (force || pending) {
+      try {
+        env.sync(true);
+      } catch (LMDBException e) {
+        error = e;
+      }
+    }
+    synchronized (this) {
+      if (error == null) {
+        lastDurable = Math.max(lastDurable, target);
+        basePages = info.getLastPgNo();
+        if (pendingTransactions == 0) {
+          // commits reported before the flush that did not reach target were empty
+          lastCommitted = lastDurable;
+        } else {
+          lastCommitted = Math.max(lastCommitted, target);
+        }
+      }
+      failure = error;
+      notifyAll();
+    }
+  }
+
+  private class Durable implements Future<Long> {
+    private final long txnId;
+    /** nothing to wait for */
+    private final boolean done;
+
+    Durable(long txnId, boolean done) {
+      this.txnId = txnId;
+      this.done = done;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public boolean isDone() {
+      synchronized (SyncScheduler.this) {
+        return done || lastDurable >= txnId || failure != null || finished;
+      }
+    }
+
+    @Override
+    public Long get() throws InterruptedException, ExecutionException {
+      try {
+        return get(0, null);
+      } catch (TimeoutException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      long deadline = unit == null ? 0 : System.currentTimeMillis() + unit.toMillis(timeout);
+      synchronized (SyncScheduler.this) {
+        while (!done && lastDurable < txnId) {
+          if (failure != null) {
+            throw new ExecutionException(failure);
+          }
+          if (finished) {
+            throw new ExecutionException(new IllegalStateException("Scheduler closed"));
+          }
+          long wait = 0;
+          if (unit != null) {
+            wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+              throw new TimeoutException();
+            }
+          }
+          SyncScheduler.this.wait(wait);
+        }
+        return lastDurable;
+      }
+    }
+  }
+}
@@ -30,12 +30,19 @@ import static org.fusesource.lmdbjni.Util.checkErrorCode;
  * @author <a href="http://hiramchirino.com">Hiram Chirino</a>
  */
 public class Transaction extends NativeObject implements Closeable {
+  private final Env env;
   private DirectBuffer buffer;
   private boolean readOnly;
+  /** true if this is a top level transaction counted as active by the env */
+  private boolean tracked;
+  /** the pool this handle is recycled by, if any */
+  ReadTransactionPool pool;
 
-  Transaction(long self, boolean readOnly) {
+  Transaction(Env env, long self, boolean readOnly, boolean tracked) {
     super(self);
+    this.env = env;
     this.readOnly = readOnly;
+    this.tracked = tracked;
   }
 
   /**
@@ -63,7 +70,25 @@ public class Transaction extends NativeObject implements Closeable {
    * may be used again.
    */
   public void renew() {
-    checkErrorCode(mdb_txn_renew(pointer()));
+    checkAllocated();
+    if (tracked) {
+      // not reset, let lmdb report the misuse
+      checkErrorCode(mdb_txn_renew(pointer()));
+      return;
+    }
+    env.enterTransaction();
+    int rc = mdb_txn_renew(pointer());
+    if (rc == LMDBException.MAP_RESIZED) {
+      env.leaveTransaction();
+      env.adoptMapSize();
+      env.enterTransaction();
+      rc = mdb_txn_renew(pointer());
+    }
+    if (rc != 0) {
+      env.leaveTransaction();
+    }
+    checkErrorCode(rc);
+    tracked = true;
   }
 
   /**
@@ -79,8 +104,16 @@ public class Transaction extends NativeObject implements Closeable {
    */
   public void commit() {
     if (self != 0) {
-      checkErrorCode(mdb_txn_commit(self));
+      boolean write = tracked && !readOnly;
+      long id = write ? mdb_txn_id(self) : 0;
+      // the handle is freed even if the commit fails
+      int rc = mdb_txn_commit(self);
       self = 0;
+      release();
+      checkErrorCode(rc);
+      if (write) {
+        env.committed(id);
+      }
     }
   }
 
@@ -106,6 +139,7 @@ public class Transaction extends NativeObject implements Closeable {
   public void reset() {
     checkAllocated();
     mdb_txn_reset(pointer());
+    release();
   }
 
   /**
@@ -122,6 +156,7 @@ public class Transaction extends NativeObject implements Closeable {
     if (self != 0) {
       mdb_txn_abort(self);
       self = 0;
+      release();
     }
   }
 
@@ -129,9 +164,21 @@ public class Transaction extends NativeObject implements Closeable {
     return readOnly;
   }
 
+  Env getEnv() {
+    return env;
+  }
+
+  private void release() {
+    if (tracked) {
+      tracked = false;
+      env.leaveTransaction();
+    }
+  }
+
   long getBufferAddress() {
     if (buffer == null) {
-      buffer = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * 4));
+      // key and value followed by room for a primitive key and value
+      buffer = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE * 6));
     }
     return buffer.addressOffset();
   }
@@ -0,0 +1,23 @@
+package org.fusesource.lmdbjni;
+
+/**
+ * A unit of work executed within a transaction.
+ * <p>
+ * Implementations may be invoked more than once: if the transaction fails with
+ * {@link org.fusesource.lmdbjni.LMDBException#MAP_FULL} it is aborted and the work
+ * is replayed in a fresh transaction after the memory map has grown. The work
+ * should therefore only have side effects through the given transaction.
+ * </p>
+ *
+ * @param <T> the type of the result.
+ * @see org.fusesource.lmdbjni.Env#executeWrite(TransactionWork)
+ */
+public interface TransactionWork<T> {
+
+  /**
+   * @param tx the transaction to do the work in. It must not be committed
+   *           or aborted by the work itself.
+   * @return the result of the work.
+   */
+  T execute(Transaction tx);
+}
@@ -0,0 +1,129 @@
+package org.fusesource.lmdbjni;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * A native comparator for keys composed of several fields, compared one after
+ * another. Installed with {@link Database#setComparator(Transaction, TupleComparator)}.
+ * </p>
+ *
+ * Fields are stored as described for {@link NativeComparator}. Bytes following the
+ * last field are compared lexicographically.
+ *
+ * <pre>
+ * // a long, followed by a string and 16 bytes
+ * TupleComparator comparator = new TupleComparator()
+ *   .addLong().addUtf8().addBytes(16);
+ * db.setComparator(tx, comparator);
+ * </pre>
+ *
+ * The native comparison function of a tuple has no context, so every distinct
+ * tuple occupies one of {@link #MAX_TUPLES} global slots for the lifetime of the
+ * process. Tuples with the same fields share a slot. Not available on Android.
+ */
+public class TupleComparator {
+  /** number of distinct tuples that may be installed */
+  public static final int MAX_TUPLES = 8;
+  /** maximum number of fields of a tuple */
+  public static final int MAX_FIELDS = 16;
+
+  private static final int FIELD_LONG = 1;
+  private static final int FIELD_INT = 2;
+  private static final int FIELD_DOUBLE = 3;
+  private static final int FIELD_BYTES = 4;
+  private static final int FIELD_UTF8 = 5;
+
+  private static final List<int[]> slots = new ArrayList<int[]>();
+  private static final List<Long> functions = new ArrayList<Long>();
+
+  /** (type, width) pairs */
+  private int[] fields = new int[0];
+
+  /**
+   * Add a signed 64 bit integer field.
+   */
+  public TupleComparator addLong() {
+    return add(FIELD_LONG, 8);
+  }
+
+  /**
+   * Add a signed 32 bit integer field.
+   */
+  public TupleComparator addInt() {
+    return add(FIELD_INT, 4);
+  }
+
+  /**
+   * Add an IEEE 754 double field.
+   */
+  public TupleComparator addDouble() {
+    return add(FIELD_DOUBLE, 8);
+  }
+
+  /**
+   * Add a fixed width field compared lexicographically.
+   */
+  public TupleComparator addBytes(int width) {
+    if (width < 1) {
+      throw new IllegalArgumentException("width must be positive");
+    }
+    return add(FIELD_BYTES, width);
+  }
+
+  /**
+   * Add a UTF-8 string prefixed by its length as an unsigned 16 bit integer.
+   */
+  public TupleComparator addUtf8() {
+    return add(FIELD_UTF8, 0);
+  }
+
+  /**
+   * @return the number of fields.
+   */
+  public int size() {
+    return fields.length / 2;
+  }
+
+  /**
+   * @return the address of the native comparison function, defining a slot
+   * for the fields if needed.
+   */
+  long function() {
+    if (fields.length == 0) {
+      throw new IllegalStateException("A tuple needs at least one field");
+    }
+    synchronized (slots) {
+      for (int i = 0; i < slots.size(); i++) {
+        if (Arrays.equals(slots.get(i), fields)) {
+          return functions.get(i);
+        }
+      }
+      if (slots.size() == MAX_TUPLES) {
+        throw new LMDBException("All " + MAX_TUPLES + " tuple comparator slots are in use");
+      }
+      int[] copy = fields.clone();
+      long function = JNI.lmdbjni_tuple_compare_function(slots.size(), copy, size());
+      if (function == 0) {
+        throw new LMDBException("Invalid tuple comparator");
+      }
+      slots.add(copy);
+      functions.add(function);
+      return function;
+    }
+  }
+
+  private TupleComparator add(int type, int width) {
+    if (size() == MAX_FIELDS) {
+      throw new IllegalStateException("A tuple has at most " + MAX_FIELDS + " fields");
+    }
+    int[] grown = new int[fields.length + 2];
+    System.arraycopy(fields, 0, grown, 0, fields.length);
+    grown[fields.length] = type;
+    grown[fields.length + 1] = width;
+    fields = grown;
+    return this;
+  }
+}
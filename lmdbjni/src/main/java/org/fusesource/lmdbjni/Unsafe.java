@@ -42,6 +42,13 @@ class Unsafe {
     UNSAFE.putLong(null, address + Unsafe.ADDRESS_SIZE * offset, value);
   }
 
+  /**
+   * Store a native word (size_t or pointer) at the given word offset.
+   */
+  public static void putAddress(long address, int offset, long value) {
+    UNSAFE.putAddress(address + Unsafe.ADDRESS_SIZE * offset, value);
+  }
+
   public static void getBytes(long address, int index, byte[] key) {
     UNSAFE.copyMemory(null, address + index, key, ARRAY_BASE_OFFSET, key.length);
   }
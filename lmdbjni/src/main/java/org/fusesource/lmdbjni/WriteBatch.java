@@ -0,0 +1,273 @@
+package org.fusesource.lmdbjni;
+
+import java.nio.ByteBuffer;
+
+import static org.fusesource.lmdbjni.Util.checkArgNotNull;
+
+/**
+ * <p>
+ * A batch of puts and deletes that is applied in a write transaction with a
+ * single native call.
+ * </p>
+ *
+ * Operations may target different databases of the same environment and carry
+ * their own flags, e.g. {@link org.fusesource.lmdbjni.Constants#NOOVERWRITE} or
+ * {@link org.fusesource.lmdbjni.Constants#APPEND}. Keys and values are copied into
+ * a growable off-heap buffer when they are added, so a batch can be built on any
+ * thread before a transaction is opened. A batch is not thread safe.
+ *
+ * <pre>
+ * WriteBatch batch = new WriteBatch();
+ * batch.put(db, bytes("Tampa"), bytes("green"));
+ * batch.put(db, bytes("London"), bytes("red"), NOOVERWRITE);
+ * batch.delete(other, bytes("Denver"));
+ * try (Transaction tx = env.createWriteTransaction()) {
+ *   batch.apply(tx);
+ *   tx.commit();
+ * }
+ * if (batch.resultCode(1) == LMDBException.KEYEXIST) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * Not available on Android.
+ */
+public class WriteBatch {
+  private static final int OP_PUT = 1;
+  private static final int OP_DEL = 2;
+  private static final int OP_DEL_VALUE = 3;
+  /** op, flags, dbi, key size, value size, reserved */
+  private static final int HEADER_SIZE = 24;
+  /** largest direct buffer the operations are kept in */
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  private DirectBuffer ops;
+  private int position;
+  private int size;
+  private long dataSize;
+  private DirectBuffer results;
+  private int applied;
+
+  public WriteBatch() {
+    this(4096);
+  }
+
+  /**
+   * @param capacity initial size of the off-heap buffer in bytes, it grows as needed.
+   */
+  public WriteBatch(int capacity) {
+    if (capacity < HEADER_SIZE) {
+      capacity = HEADER_SIZE;
+    }
+    ops = new DirectBuffer(ByteBuffer.allocateDirect(capacity));
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.WriteBatch#put(Database, byte[], byte[], int)
+   */
+  public WriteBatch put(Database db, byte[] key, byte[] value) {
+    return put(db, key, value, 0);
+  }
+
+  /**
+   * Add a put operation.
+   *
+   * @param db    the database to put into.
+   * @param key   the key, copied into the batch.
+   * @param value the value, copied into the batch.
+   * @param flags the flags of {@link Database#put(Transaction, byte[], byte[], int)},
+   *              except {@link org.fusesource.lmdbjni.Constants#RESERVE} and
+   *              {@link org.fusesource.lmdbjni.Constants#MULTIPLE}.
+   * @throws IllegalArgumentException if RESERVE or MULTIPLE is set.
+   */
+  public WriteBatch put(Database db, byte[] key, byte[] value, int flags) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int index = append(OP_PUT, db, flags, key.length, value.length);
+    ops.putBytes(index, key);
+    ops.putBytes(index + align(key.length), value);
+    return this;
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.WriteBatch#put(Database, byte[], byte[], int)
+   */
+  public WriteBatch put(Database db, DirectBuffer key, DirectBuffer value) {
+    return put(db, key, value, 0);
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.WriteBatch#put(Database, byte[], byte[], int)
+   */
+  public WriteBatch put(Database db, DirectBuffer key, DirectBuffer value, int flags) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int index = append(OP_PUT, db, flags, key.capacity(), value.capacity());
+    ops.putBytes(index, key, 0, key.capacity());
+    ops.putBytes(index + align(key.capacity()), value, 0, value.capacity());
+    return this;
+  }
+
+  /**
+   * Add an operation that deletes a key and all of its data items.
+   */
+  public WriteBatch delete(Database db, byte[] key) {
+    checkArgNotNull(key, "key");
+    int index = append(OP_DEL, db, 0, key.length, 0);
+    ops.putBytes(index, key);
+    return this;
+  }
+
+  /**
+   * Add an operation that deletes a single data item of a key in a database
+   * that supports sorted duplicates.
+   */
+  public WriteBatch delete(Database db, byte[] key, byte[] value) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int index = append(OP_DEL_VALUE, db, 0, key.length, value.length);
+    ops.putBytes(index, key);
+    ops.putBytes(index + align(key.length), value);
+    return this;
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.WriteBatch#delete(Database, byte[])
+   */
+  public WriteBatch delete(Database db, DirectBuffer key) {
+    checkArgNotNull(key, "key");
+    int index = append(OP_DEL, db, 0, key.capacity(), 0);
+    ops.putBytes(index, key, 0, key.capacity());
+    return this;
+  }
+
+  /**
+   * @see org.fusesource.lmdbjni.WriteBatch#delete(Database, byte[], byte[])
+   */
+  public WriteBatch delete(Database db, DirectBuffer key, DirectBuffer value) {
+    checkArgNotNull(key, "key");
+    checkArgNotNull(value, "value");
+    int index = append(OP_DEL_VALUE, db, 0, key.capacity(), value.capacity());
+    ops.putBytes(index, key, 0, key.capacity());
+    ops.putBytes(index + align(key.capacity()), value, 0, value.capacity());
+    return this;
+  }
+
+  /**
+   * <p>
+   *   Apply all operations of the batch in a write transaction.
+   * </p>
+   *
+   * The result code of every operation is available from {@link #resultCode(int)}.
+   * {@link org.fusesource.lmdbjni.LMDBException#KEYEXIST},
+   * {@link org.fusesource.lmdbjni.LMDBException#NOTFOUND} and
+   * {@link org.fusesource.lmdbjni.LMDBException#BAD_VALSIZE} for an empty or too
+   * long key do not stop the batch.
+   * Any other error, such as {@link org.fusesource.lmdbjni.LMDBException#MAP_FULL},
+   * stops the batch and is thrown; the transaction must then be aborted.
+   * A batch is not cleared by applying it and may be applied again, for example
+   * when the work is replayed by {@link Env#executeWrite(TransactionWork)}.
+   *
+   * @param tx a write transaction.
+   * @return the number of operations that succeeded.
+   */
+  public int apply(Transaction tx) {
+    checkArgNotNull(tx, "tx");
+    if (results == null || results.capacity() < Unsafe.ADDRESS_SIZE + 4 * size) {
+      results = new DirectBuffer(ByteBuffer.allocateDirect(Unsafe.ADDRESS_SIZE + 4 * Math.max(size, 16)));
+    }
+    long appliedAddress = results.addressOffset();
+    int rc = JNI.lmdbjni_write_batch(tx.pointer(), ops.addressOffset(), position,
+      appliedAddress + Unsafe.ADDRESS_SIZE, appliedAddress);
+    applied = (int) Unsafe.getAddress(appliedAddress, 0);
+    Util.checkErrorCode(rc);
+    int succeeded = 0;
+    for (int i = 0; i < applied; i++) {
+      if (resultCode(i) == 0) {
+        succeeded++;
+      }
+    }
+    return succeeded;
+  }
+
+  /**
+   * @param index the index of the operation in the order it was added.
+   * @return the result code of the operation from the last {@link #apply(Transaction)},
+   * 0 on success.
+   */
+  public int resultCode(int index) {
+    if (index < 0 || index >= applied) {
+      throw new IndexOutOfBoundsException("index=" + index + ", applied=" + applied);
+    }
+    return results.getInt(Unsafe.ADDRESS_SIZE + 4 * index);
+  }
+
+  /**
+   * @return number of operations in the batch.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return number of key and value bytes in the batch.
+   */
+  public long byteSize() {
+    return dataSize;
+  }
+
+  /**
+   * Remove all operations from the batch, keeping the allocated memory.
+   */
+  public void clear() {
+    position = 0;
+    size = 0;
+    dataSize = 0;
+    applied = 0;
+  }
+
+  private int append(int op, Database db, int flags, int keySize, int valueSize) {
+    checkArgNotNull(db, "db");
+    if ((flags & (Constants.RESERVE | Constants.MULTIPLE)) != 0) {
+      throw new IllegalArgumentException("RESERVE and MULTIPLE are not supported in a batch");
+    }
+    int length = ensureCapacity(HEADER_SIZE + ((keySize + 7L) & ~7L) + ((valueSize + 7L) & ~7L));
+    ops.putInt(position, op);
+    ops.putInt(position + 4, flags);
+    ops.putInt(position + 8, (int) db.pointer());
+    ops.putInt(position + 12, keySize);
+    ops.putInt(position + 16, valueSize);
+    ops.putInt(position + 20, 0);
+    int index = position + HEADER_SIZE;
+    position += length;
+    size++;
+    dataSize += keySize + valueSize;
+    return index;
+  }
+
+  /**
+   * Make room for an operation of the given length after the last one.
+   *
+   * @return the length as an int.
+   */
+  private int ensureCapacity(long length) {
+    long required = position + length;
+    if (required > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Batch would exceed " + MAX_CAPACITY + " bytes");
+    }
+    if (required > ops.capacity()) {
+      long capacity = Math.max(ops.capacity(), 1);
+      while (capacity < required) {
+        capacity = Math.min(capacity * 2, MAX_CAPACITY);
+      }
+      DirectBuffer grown = new DirectBuffer(ByteBuffer.allocateDirect((int) capacity));
+      grown.putBytes(0, ops, 0, position);
+      ops = grown;
+    }
+    return (int) length;
+  }
+
+  private static int align(int size) {
+    return (size + 7) & ~7;
+  }
+}
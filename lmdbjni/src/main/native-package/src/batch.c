@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2013, RedHat, Inc.
+ *
+ *    http://www.redhat.com/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include "lmdbjni.h"
+#include <errno.h>
+#include <string.h>
+
+/*
+ * Heap sort of key indexes using the key ordering of the database, so that
+ * custom comparators are honoured. Sorts in place without allocating.
+ */
+static void sift_down(MDB_txn *txn, MDB_dbi dbi, const MDB_val *keys, size_t *order, size_t root, size_t end) {
+  while (2 * root + 1 < end) {
+    size_t child = 2 * root + 1;
+    size_t tmp;
+    if (child + 1 < end && mdb_cmp(txn, dbi, &keys[order[child]], &keys[order[child + 1]]) < 0) {
+      child++;
+    }
+    if (mdb_cmp(txn, dbi, &keys[order[root]], &keys[order[child]]) >= 0) {
+      return;
+    }
+    tmp = order[root];
+    order[root] = order[child];
+    order[child] = tmp;
+    root = child;
+  }
+}
+
+static void sort_keys(MDB_txn *txn, MDB_dbi dbi, const MDB_val *keys, size_t *order, size_t count) {
+  size_t i, end, tmp;
+  for (i = 0; i < count; i++) {
+    order[i] = i;
+  }
+  for (i = count / 2; i > 0; i--) {
+    sift_down(txn, dbi, keys, order, i - 1, count);
+  }
+  for (end = count; end > 1; end--) {
+    tmp = order[0];
+    order[0] = order[end - 1];
+    order[end - 1] = tmp;
+    sift_down(txn, dbi, keys, order, 0, end - 1);
+  }
+}
+
+int lmdbjni_get_multi(MDB_txn *txn, MDB_dbi dbi, const MDB_val *keys, MDB_val *values, size_t count, size_t *order, size_t *found) {
+  MDB_cursor *cursor;
+  MDB_val key;
+  size_t i, idx;
+  int rc;
+
+  *found = 0;
+  if (count == 0) {
+    return MDB_SUCCESS;
+  }
+  if (order != NULL) {
+    sort_keys(txn, dbi, keys, order, count);
+  }
+  rc = mdb_cursor_open(txn, dbi, &cursor);
+  if (rc != MDB_SUCCESS) {
+    return rc;
+  }
+  /*
+   * Visiting the keys in database order lets mdb_cursor_set find most keys
+   * on the leaf page the cursor is already on, instead of descending from
+   * the root for every key.
+   */
+  for (i = 0; i < count; i++) {
+    idx = order != NULL ? order[i] : i;
+    key = keys[idx];
+    /* LMDB keys are never empty, and MDB_SET rejects an empty key */
+    rc = key.mv_size == 0 ? MDB_NOTFOUND : mdb_cursor_get(cursor, &key, &values[idx], MDB_SET);
+    if (rc == MDB_SUCCESS) {
+      (*found)++;
+    } else if (rc == MDB_NOTFOUND) {
+      values[idx].mv_size = 0;
+      values[idx].mv_data = NULL;
+    } else {
+      break;
+    }
+  }
+  mdb_cursor_close(cursor);
+  return rc == MDB_NOTFOUND ? MDB_SUCCESS : rc;
+}
+
+/*
+ * Header of an operation packed by WriteBatch.java. It is followed by the key
+ * and the value, both padded to a multiple of 8 bytes.
+ */
+typedef struct batch_op {
+  uint32_t op;
+  uint32_t flags;
+  uint32_t dbi;
+  uint32_t key_size;
+  uint32_t value_size;
+  uint32_t reserved;
+} batch_op;
+
+#define BATCH_OP_PUT 1
+#define BATCH_OP_DEL 2
+#define BATCH_OP_DEL_VALUE 3
+#define BATCH_ALIGN(n) (((n) + 7) & ~((size_t) 7))
+
+/*
+ * Apply a batch of puts and deletes. The result code of every operation is
+ * stored in results. MDB_KEYEXIST and MDB_NOTFOUND are expected outcomes and
+ * MDB_BAD_VALSIZE is returned for an empty or oversize key before anything is
+ * changed, so they do not stop the batch. Any other error leaves the
+ * transaction unusable, so processing stops and the error is returned.
+ * applied is set to the number of operations attempted.
+ */
+int lmdbjni_write_batch(MDB_txn *txn, const char *ops, size_t length, int *results, size_t *applied) {
+  const char *p = ops;
+  const char *end = ops + length;
+  size_t count = 0;
+  int rc = MDB_SUCCESS;
+
+  while (p + sizeof(batch_op) <= end) {
+    const batch_op *op = (const batch_op *) p;
+    MDB_val key, value;
+    key.mv_size = op->key_size;
+    key.mv_data = (void *) (p + sizeof(batch_op));
+    value.mv_size = op->value_size;
+    value.mv_data = (void *) (p + sizeof(batch_op) + BATCH_ALIGN(op->key_size));
+    switch (op->op) {
+    case BATCH_OP_PUT:
+      rc = mdb_put(txn, op->dbi, &key, &value, op->flags);
+      break;
+    case BATCH_OP_DEL:
+      rc = mdb_del(txn, op->dbi, &key, NULL);
+      break;
+    case BATCH_OP_DEL_VALUE:
+      rc = mdb_del(txn, op->dbi, &key, &value);
+      break;
+    default:
+      rc = EINVAL;
+      break;
+    }
+    results[count++] = rc;
+    if (rc != MDB_SUCCESS && rc != MDB_KEYEXIST && rc != MDB_NOTFOUND && rc != MDB_BAD_VALSIZE) {
+      *applied = count;
+      return rc;
+    }
+    p += sizeof(batch_op) + BATCH_ALIGN(op->key_size) + BATCH_ALIGN(op->value_size);
+  }
+  *applied = count;
+  return MDB_SUCCESS;
+}
+
+/*
+ * Whether values may be skipped by passing NULL data to mdb_cursor_get,
+ * which leaves overflow pages of large values untouched. Not for DUPSORT
+ * databases, where the data positions the sub-cursor of duplicates.
+ */
+static int can_skip_data(MDB_cursor *cursor) {
+  unsigned int db_flags = 0;
+  mdb_dbi_flags(mdb_cursor_txn(cursor), mdb_cursor_dbi(cursor), &db_flags);
+  return !(db_flags & MDB_DUPSORT);
+}
+
+/*
+ * Narrow data to value_length bytes starting at value_offset.
+ */
+static void project_value(MDB_val *data, size_t value_offset, size_t value_length) {
+  if (value_offset >= data->mv_size) {
+    data->mv_data = (char *) data->mv_data + data->mv_size;
+    data->mv_size = 0;
+    return;
+  }
+  data->mv_data = (char *) data->mv_data + value_offset;
+  data->mv_size -= value_offset;
+  if (data->mv_size > value_length) {
+    data->mv_size = value_length;
+  }
+}
+
+/*
+ * Move a cursor up to max_entries times and store the key and the data of
+ * every entry visited as a pair of MDB_val in entries. first_op is used for
+ * the first move and op for the following ones. Only value_length bytes of
+ * every value starting at value_offset are stored, with a value_length of 0
+ * the values are not read at all. The scan also stops once the key and
+ * stored data bytes reach max_bytes, after the entry that crossed it. count
+ * is set to the number of entries stored. MDB_NOTFOUND is returned when the
+ * cursor ran out of entries, possibly after storing some.
+ */
+int lmdbjni_cursor_scan(MDB_cursor *cursor, int first_op, int op, size_t max_entries, size_t max_bytes,
+                        size_t value_offset, size_t value_length, MDB_val *entries, size_t *count) {
+  size_t n = 0;
+  size_t bytes = 0;
+  int cursor_op = first_op;
+  int skip_data = value_length == 0 && can_skip_data(cursor);
+  int rc = MDB_SUCCESS;
+
+  while (n < max_entries && bytes < max_bytes) {
+    MDB_val *key = &entries[2 * n];
+    rc = mdb_cursor_get(cursor, key, skip_data ? NULL : key + 1, (MDB_cursor_op) cursor_op);
+    if (rc != MDB_SUCCESS) {
+      break;
+    }
+    if (value_length == 0) {
+      key[1].mv_size = 0;
+      key[1].mv_data = NULL;
+    } else {
+      project_value(key + 1, value_offset, value_length);
+    }
+    bytes += key->mv_size + key[1].mv_size;
+    n++;
+    cursor_op = op;
+  }
+  *count = n;
+  return rc;
+}
+
+#define RANGE_BACKWARD 1
+#define RANGE_FIRST 2
+#define RANGE_HAS_START 4
+#define RANGE_START_EXCLUSIVE 8
+#define RANGE_HAS_END 16
+#define RANGE_END_EXCLUSIVE 32
+#define RANGE_PREFIX 64
+#define RANGE_KEYS_ONLY 128
+
+static int range_cmp(MDB_cursor *cursor, const MDB_val *a, const MDB_val *b, int flags) {
+  int cmp = mdb_cmp(mdb_cursor_txn(cursor), mdb_cursor_dbi(cursor), a, b);
+  return (flags & RANGE_BACKWARD) ? -cmp : cmp;
+}
+
+static int range_past_end(MDB_cursor *cursor, const MDB_val *key, const MDB_val *end, int flags) {
+  int cmp;
+  if (!(flags & RANGE_HAS_END)) {
+    return 0;
+  }
+  if (flags & RANGE_PREFIX) {
+    return key->mv_size < end->mv_size || memcmp(key->mv_data, end->mv_data, end->mv_size) != 0;
+  }
+  cmp = range_cmp(cursor, key, end, flags);
+  return cmp > 0 || (cmp == 0 && (flags & RANGE_END_EXCLUSIVE));
+}
+
+static int range_seek(MDB_cursor *cursor, MDB_val *key, MDB_val *data, const MDB_val *start, int flags) {
+  unsigned int db_flags = 0;
+  int cmp;
+  int rc;
+
+  *key = *start;
+  rc = mdb_cursor_get(cursor, key, data, MDB_SET_RANGE);
+  if (!(flags & RANGE_BACKWARD)) {
+    if (rc == MDB_SUCCESS && (flags & RANGE_START_EXCLUSIVE) && range_cmp(cursor, key, start, flags) == 0) {
+      rc = mdb_cursor_get(cursor, key, data, MDB_NEXT_NODUP);
+    }
+    return rc;
+  }
+  /* backward, the start is the upper bound */
+  if (rc == MDB_NOTFOUND) {
+    return mdb_cursor_get(cursor, key, data, MDB_LAST);
+  }
+  if (rc != MDB_SUCCESS) {
+    return rc;
+  }
+  cmp = range_cmp(cursor, key, start, flags);
+  if (cmp < 0 || (cmp == 0 && (flags & RANGE_START_EXCLUSIVE))) {
+    return mdb_cursor_get(cursor, key, data, MDB_PREV);
+  }
+  mdb_dbi_flags(mdb_cursor_txn(cursor), mdb_cursor_dbi(cursor), &db_flags);
+  if (db_flags & MDB_DUPSORT) {
+    return mdb_cursor_get(cursor, key, data, MDB_LAST_DUP);
+  }
+  return rc;
+}
+
+/*
+ * Move a cursor within a key range. bounds holds the key where iteration
+ * starts followed by the key where it ends, which are the upper and lower
+ * bound respectively when iterating backward. With RANGE_FIRST the cursor is
+ * positioned at the first entry of the range, otherwise it moves to the next
+ * entry. MDB_NOTFOUND is returned once the cursor leaves the range, before
+ * the caller looks at the entry. With RANGE_PREFIX the end key is a prefix
+ * that all keys of the range share. With RANGE_KEYS_ONLY the value is left
+ * empty and, where possible, not read.
+ */
+int lmdbjni_cursor_range(MDB_cursor *cursor, MDB_val *key, MDB_val *data, const MDB_val *bounds, int flags) {
+  int backward = flags & RANGE_BACKWARD;
+  MDB_val *value = data;
+  int rc;
+
+  if (flags & RANGE_KEYS_ONLY) {
+    data->mv_size = 0;
+    data->mv_data = NULL;
+    if (can_skip_data(cursor)) {
+      data = NULL;
+    }
+  }
+  if (!(flags & RANGE_FIRST)) {
+    rc = mdb_cursor_get(cursor, key, data, backward ? MDB_PREV : MDB_NEXT);
+  } else if (flags & RANGE_HAS_START) {
+    rc = range_seek(cursor, key, data, &bounds[0], flags);
+  } else {
+    rc = mdb_cursor_get(cursor, key, data, backward ? MDB_LAST : MDB_FIRST);
+  }
+  if (rc == MDB_SUCCESS && range_past_end(cursor, key, &bounds[1], flags)) {
+    rc = MDB_NOTFOUND;
+  }
+  if (flags & RANGE_KEYS_ONLY) {
+    value->mv_size = 0;
+    value->mv_data = NULL;
+  }
+  return rc;
+}
+
+/*
+ * Fetch a page of fixed size duplicates with MDB_GET_MULTIPLE or
+ * MDB_NEXT_MULTIPLE. MDB_GET_MULTIPLE sets neither the key nor, for a key
+ * with a single value, the data, so the current entry is read first and a
+ * single value is returned as a page of one item.
+ */
+int lmdbjni_cursor_multiple(MDB_cursor *cursor, MDB_val *key, MDB_val *data, int op) {
+  if (op == MDB_GET_MULTIPLE) {
+    int rc = mdb_cursor_get(cursor, key, data, MDB_GET_CURRENT);
+    if (rc != MDB_SUCCESS) {
+      return rc;
+    }
+  }
+  return mdb_cursor_get(cursor, key, data, (MDB_cursor_op) op);
+}
+
+/*
+ * Sort the records of a BulkLoader run. A record is an unsigned int key size
+ * and value size followed by the key and the value, each padded to 8 bytes.
+ * The keys and values are collected into pairs of MDB_val and heap sorted by
+ * key, by value for DUPSORT databases and by address, so that records that
+ * compare equal keep the order they were added in.
+ */
+static int record_cmp(MDB_txn *txn, MDB_dbi dbi, int dup, const MDB_val *a, const MDB_val *b) {
+  int rc = mdb_cmp(txn, dbi, &a[0], &b[0]);
+  if (rc == 0 && dup) {
+    rc = mdb_dcmp(txn, dbi, &a[1], &b[1]);
+  }
+  if (rc == 0) {
+    rc = a[0].mv_data < b[0].mv_data ? -1 : a[0].mv_data > b[0].mv_data;
+  }
+  return rc;
+}
+
+static void swap_records(MDB_val *entries, size_t i, size_t j) {
+  MDB_val tmp[2];
+  memcpy(tmp, &entries[2 * i], sizeof(tmp));
+  memcpy(&entries[2 * i], &entries[2 * j], sizeof(tmp));
+  memcpy(&entries[2 * j], tmp, sizeof(tmp));
+}
+
+static void sift_down_records(MDB_txn *txn, MDB_dbi dbi, int dup, MDB_val *entries, size_t root, size_t end) {
+  while (2 * root + 1 < end) {
+    size_t child = 2 * root + 1;
+    if (child + 1 < end && record_cmp(txn, dbi, dup, &entries[2 * child], &entries[2 * (child + 1)]) < 0) {
+      child++;
+    }
+    if (record_cmp(txn, dbi, dup, &entries[2 * root], &entries[2 * child]) >= 0) {
+      return;
+    }
+    swap_records(entries, root, child);
+    root = child;
+  }
+}
+
+#define RECORD_ALIGN(size) (((size) + 7) & ~(size_t) 7)
+
+int lmdbjni_sort_records(MDB_txn *txn, MDB_dbi dbi, int dup, const char *records, size_t count, MDB_val *entries) {
+  size_t i, end;
+  const char *p = records;
+  for (i = 0; i < count; i++) {
+    unsigned int key_size = ((const unsigned int *) p)[0];
+    unsigned int data_size = ((const unsigned int *) p)[1];
+    p += 2 * sizeof(unsigned int);
+    entries[2 * i].mv_size = key_size;
+    entries[2 * i].mv_data = (void *) p;
+    p += RECORD_ALIGN(key_size);
+    entries[2 * i + 1].mv_size = data_size;
+    entries[2 * i + 1].mv_data = (void *) p;
+    p += RECORD_ALIGN(data_size);
+  }
+  for (i = count / 2; i > 0; i--) {
+    sift_down_records(txn, dbi, dup, entries, i - 1, count);
+  }
+  for (end = count; end > 1; end--) {
+    swap_records(entries, 0, end - 1);
+    sift_down_records(txn, dbi, dup, entries, 0, end - 1);
+  }
+  return MDB_SUCCESS;
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2013, RedHat, Inc.
+ *
+ *    http://www.redhat.com/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include "lmdbjni.h"
+#include <string.h>
+
+/*
+ * Key comparators implemented in C, so LMDB compares keys without calling
+ * back into the JVM. Numeric fields are stored big-endian. Bytes after the
+ * last field are compared lexicographically, and so are the remaining bytes
+ * of a key that is too short for a field.
+ */
+
+#define FIELD_LONG 1
+#define FIELD_INT 2
+#define FIELD_DOUBLE 3
+#define FIELD_BYTES 4
+#define FIELD_UTF8 5
+
+#define COMPARE_LONG 1
+#define COMPARE_INT 2
+#define COMPARE_DOUBLE 3
+#define COMPARE_REVERSE 4
+#define COMPARE_UTF8 5
+
+#define TUPLE_SLOTS 8
+#define TUPLE_MAX_FIELDS 16
+
+typedef struct tuple_field {
+  int type;
+  size_t width;
+} tuple_field;
+
+static const tuple_field LONG_FIELD = {FIELD_LONG, 8};
+static const tuple_field INT_FIELD = {FIELD_INT, 4};
+static const tuple_field DOUBLE_FIELD = {FIELD_DOUBLE, 8};
+static const tuple_field UTF8_FIELD = {FIELD_UTF8, 0};
+
+static tuple_field tuple_fields[TUPLE_SLOTS][TUPLE_MAX_FIELDS];
+static int tuple_counts[TUPLE_SLOTS];
+
+static uint64_t read_be(const unsigned char *p, size_t width) {
+  uint64_t value = 0;
+  size_t i;
+  for (i = 0; i < width; i++) {
+    value = (value << 8) | p[i];
+  }
+  return value;
+}
+
+static int compare_u64(uint64_t a, uint64_t b) {
+  return a < b ? -1 : a > b ? 1 : 0;
+}
+
+/* all NaNs compare equal like in Double.compare, map them to Double.NaN */
+static uint64_t canonical_double(uint64_t bits) {
+  if ((bits & 0x7ff0000000000000ULL) == 0x7ff0000000000000ULL && (bits & 0x000fffffffffffffULL) != 0) {
+    return 0x7ff8000000000000ULL;
+  }
+  return bits;
+}
+
+static int compare_bytes(const unsigned char *a, size_t a_size, const unsigned char *b, size_t b_size) {
+  int rc = memcmp(a, b, a_size < b_size ? a_size : b_size);
+  if (rc != 0) {
+    return rc < 0 ? -1 : 1;
+  }
+  return compare_u64(a_size, b_size);
+}
+
+/*
+ * Compare the field at the given offsets and advance them. Returns 0 and sets
+ * result, or -1 if a key is too short for the field.
+ */
+static int compare_field(const tuple_field *field, const MDB_val *a, const MDB_val *b, size_t *a_pos, size_t *b_pos, int *result) {
+  const unsigned char *pa = (const unsigned char *) a->mv_data + *a_pos;
+  const unsigned char *pb = (const unsigned char *) b->mv_data + *b_pos;
+  size_t a_left = a->mv_size - *a_pos;
+  size_t b_left = b->mv_size - *b_pos;
+  uint64_t va, vb;
+  size_t la, lb;
+
+  if (field->type == FIELD_UTF8) {
+    if (a_left < 2 || b_left < 2) {
+      return -1;
+    }
+    la = (size_t) read_be(pa, 2);
+    lb = (size_t) read_be(pb, 2);
+    if (a_left < 2 + la || b_left < 2 + lb) {
+      return -1;
+    }
+    /* the byte order of modified UTF-8 is UTF-16 code unit order, except
+       for U+0000 which is encoded as C0 80 */
+    *result = compare_bytes(pa + 2, la, pb + 2, lb);
+    *a_pos += 2 + la;
+    *b_pos += 2 + lb;
+    return 0;
+  }
+  if (a_left < field->width || b_left < field->width) {
+    return -1;
+  }
+  switch (field->type) {
+  case FIELD_LONG:
+  case FIELD_INT:
+    /* flip the sign bit to compare two's complement values unsigned */
+    va = read_be(pa, field->width) ^ ((uint64_t) 1 << (8 * field->width - 1));
+    vb = read_be(pb, field->width) ^ ((uint64_t) 1 << (8 * field->width - 1));
+    *result = compare_u64(va, vb);
+    break;
+  case FIELD_DOUBLE:
+    /* same order as Double.compare, negative values have their bits inverted */
+    va = canonical_double(read_be(pa, 8));
+    vb = canonical_double(read_be(pb, 8));
+    va = (va >> 63) ? ~va : va ^ ((uint64_t) 1 << 63);
+    vb = (vb >> 63) ? ~vb : vb ^ ((uint64_t) 1 << 63);
+    *result = compare_u64(va, vb);
+    break;
+  default:
+    *result = compare_bytes(pa, field->width, pb, field->width);
+    break;
+  }
+  *a_pos += field->width;
+  *b_pos += field->width;
+  return 0;
+}
+
+static int compare_fields(const tuple_field *fields, int count, const MDB_val *a, const MDB_val *b) {
+  size_t a_pos = 0;
+  size_t b_pos = 0;
+  int result;
+  int i;
+
+  for (i = 0; i < count; i++) {
+    if (compare_field(&fields[i], a, b, &a_pos, &b_pos, &result) != 0) {
+      break;
+    }
+    if (result != 0) {
+      return result;
+    }
+  }
+  return compare_bytes((const unsigned char *) a->mv_data + a_pos, a->mv_size - a_pos,
+                       (const unsigned char *) b->mv_data + b_pos, b->mv_size - b_pos);
+}
+
+static int compare_long(const MDB_val *a, const MDB_val *b) {
+  return compare_fields(&LONG_FIELD, 1, a, b);
+}
+
+static int compare_int(const MDB_val *a, const MDB_val *b) {
+  return compare_fields(&INT_FIELD, 1, a, b);
+}
+
+static int compare_double(const MDB_val *a, const MDB_val *b) {
+  return compare_fields(&DOUBLE_FIELD, 1, a, b);
+}
+
+static int compare_reverse(const MDB_val *a, const MDB_val *b) {
+  return compare_bytes((const unsigned char *) b->mv_data, b->mv_size, (const unsigned char *) a->mv_data, a->mv_size);
+}
+
+static int compare_utf8(const MDB_val *a, const MDB_val *b) {
+  return compare_fields(&UTF8_FIELD, 1, a, b);
+}
+
+/* MDB_cmp_func has no context argument, so every tuple slot needs its own function */
+#define TUPLE_COMPARE(slot) \
+  static int compare_tuple_##slot(const MDB_val *a, const MDB_val *b) { \
+    return compare_fields(tuple_fields[slot], tuple_counts[slot], a, b); \
+  }
+
+TUPLE_COMPARE(0)
+TUPLE_COMPARE(1)
+TUPLE_COMPARE(2)
+TUPLE_COMPARE(3)
+TUPLE_COMPARE(4)
+TUPLE_COMPARE(5)
+TUPLE_COMPARE(6)
+TUPLE_COMPARE(7)
+
+static MDB_cmp_func *const tuple_compare[TUPLE_SLOTS] = {
+  compare_tuple_0, compare_tuple_1, compare_tuple_2, compare_tuple_3,
+  compare_tuple_4, compare_tuple_5, compare_tuple_6, compare_tuple_7
+};
+
+/*
+ * Return the comparator with the given id, or NULL if there is none.
+ */
+void *lmdbjni_compare_function(int id) {
+  switch (id) {
+  case COMPARE_LONG:
+    return (void *) compare_long;
+  case COMPARE_INT:
+    return (void *) compare_int;
+  case COMPARE_DOUBLE:
+    return (void *) compare_double;
+  case COMPARE_REVERSE:
+    return (void *) compare_reverse;
+  case COMPARE_UTF8:
+    return (void *) compare_utf8;
+  default:
+    return NULL;
+  }
+}
+
+/*
+ * Define the fields of a tuple slot as (type, width) pairs and return its
+ * comparator, or NULL if the definition is invalid. A slot must not be
+ * redefined while a database uses its comparator.
+ */
+void *lmdbjni_tuple_compare_function(int slot, const int *fields, int count) {
+  int i;
+  if (slot < 0 || slot >= TUPLE_SLOTS || count < 1 || count > TUPLE_MAX_FIELDS) {
+    return NULL;
+  }
+  for (i = 0; i < count; i++) {
+    int type = fields[2 * i];
+    int width = fields[2 * i + 1];
+    if (type < FIELD_LONG || type > FIELD_UTF8 || width < 0) {
+      return NULL;
+    }
+    tuple_fields[slot][i].type = type;
+    switch (type) {
+    case FIELD_LONG:
+    case FIELD_DOUBLE:
+      tuple_fields[slot][i].width = 8;
+      break;
+    case FIELD_INT:
+      tuple_fields[slot][i].width = 4;
+      break;
+    case FIELD_UTF8:
+      tuple_fields[slot][i].width = 0;
+      break;
+    default:
+      tuple_fields[slot][i].width = (size_t) width;
+      break;
+    }
+  }
+  tuple_counts[slot] = count;
+  return (void *) tuple_compare[slot];
+}
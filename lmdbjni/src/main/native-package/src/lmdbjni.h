@@ -60,6 +60,18 @@ extern "C" {
 
 void buffer_copy(const void *source, size_t source_pos, void *dest, size_t dest_pos, size_t length);
 
+int lmdbjni_get_multi(MDB_txn *txn, MDB_dbi dbi, const MDB_val *keys, MDB_val *values, size_t count, size_t *order, size_t *found);
+int lmdbjni_write_batch(MDB_txn *txn, const char *ops, size_t length, int *results, size_t *applied);
+int lmdbjni_cursor_scan(MDB_cursor *cursor, int first_op, int op, size_t max_entries, size_t max_bytes,
+                        size_t value_offset, size_t value_length, MDB_val *entries, size_t *count);
+int lmdbjni_cursor_range(MDB_cursor *cursor, MDB_val *key, MDB_val *data, const MDB_val *bounds, int flags);
+int lmdbjni_cursor_multiple(MDB_cursor *cursor, MDB_val *key, MDB_val *data, int op);
+int lmdbjni_sort_records(MDB_txn *txn, MDB_dbi dbi, int dup, const char *records, size_t count, MDB_val *entries);
+int lmdbjni_reader_list(MDB_env *env, jlong *entries, int capacity, int *count);
+
+void *lmdbjni_compare_function(int id);
+void *lmdbjni_tuple_compare_function(int slot, const int *fields, int count);
+
 #ifdef __cplusplus
 } /* extern "C" */
 #endif
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2013, RedHat, Inc.
+ *
+ *    http://www.redhat.com/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include "lmdbjni.h"
+
+/*
+ * mdb_reader_list only reports the reader table as formatted lines of
+ * "pid thread txnid", with "-" for a slot without a read transaction.
+ * Parse them back into numbers so Java gets the table without scraping text.
+ */
+
+typedef struct reader_list {
+  jlong *entries;
+  int capacity;
+  int count;
+} reader_list;
+
+static const char *parse_number(const char *s, int base, jlong *value) {
+  jlong n = 0;
+  int digits = 0;
+  while (*s == ' ') {
+    s++;
+  }
+  for (;; s++, digits++) {
+    int d;
+    if (*s >= '0' && *s <= '9') {
+      d = *s - '0';
+    } else if (base == 16 && *s >= 'a' && *s <= 'f') {
+      d = *s - 'a' + 10;
+    } else {
+      break;
+    }
+    n = n * base + d;
+  }
+  if (!digits) {
+    return NULL;
+  }
+  *value = n;
+  return s;
+}
+
+static int add_reader(const char *msg, void *ctx) {
+  reader_list *list = (reader_list *) ctx;
+  jlong pid, thread, txnid = -1;
+  const char *s = parse_number(msg, 10, &pid);
+  /* the header and "(no reader locks)" do not start with a number */
+  if (!s || !(s = parse_number(s, 16, &thread))) {
+    return 0;
+  }
+  parse_number(s, 10, &txnid);
+  if (list->count < list->capacity) {
+    jlong *entry = list->entries + 3 * list->count;
+    entry[0] = pid;
+    entry[1] = thread;
+    entry[2] = txnid;
+  }
+  list->count++;
+  return 0;
+}
+
+/*
+ * Fill entries with up to capacity triples of pid, thread and txnid, where
+ * txnid is -1 for an idle slot. count is set to the number of readers, which
+ * may be larger than capacity.
+ */
+int lmdbjni_reader_list(MDB_env *env, jlong *entries, int capacity, int *count) {
+  reader_list list;
+  int rc;
+  list.entries = entries;
+  list.capacity = capacity;
+  list.count = 0;
+  rc = mdb_reader_list(env, add_reader, &list);
+  *count = list.count;
+  return rc;
+}
@@ -0,0 +1,109 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class BackupTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env(tmp.newFolder().getCanonicalPath());
+    db = env.openDatabase();
+    try (Transaction tx = env.createWriteTransaction()) {
+      for (int i = 0; i < 10000; i++) {
+        db.put(tx, Bytes.fromLong(i), new byte[100]);
+      }
+      tx.commit();
+    }
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testStream() throws IOException {
+    final AtomicLong progress = new AtomicLong();
+    final AtomicLong total = new AtomicLong();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long copied = new Backup(env).rateLimit(1024L * 1024 * 1024).listener(new Backup.Listener() {
+      @Override
+      public void progress(long bytesCopied, long bytesTotal) {
+        assertTrue(bytesCopied > progress.get());
+        progress.set(bytesCopied);
+        total.set(bytesTotal);
+      }
+    }).writeTo(out);
+    assertThat((long) out.size(), is(copied));
+    assertThat(progress.get(), is(copied));
+    assertTrue(copied <= total.get());
+    assertRestored(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  @Test
+  public void testCompactGzipChannel() throws IOException {
+    File file = tmp.newFile();
+    try (FileOutputStream out = new FileOutputStream(file); FileChannel channel = out.getChannel()) {
+      new Backup(env).compact(true).gzip(true).writeTo(channel);
+    }
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      assertRestored(in);
+    }
+  }
+
+  @Test
+  public void testInterrupted() throws IOException {
+    Thread.currentThread().interrupt();
+    try {
+      new Backup(env).rateLimit(1).writeTo(new ByteArrayOutputStream());
+      fail();
+    } catch (InterruptedIOException expected) {
+    }
+    // the copy has ended before the interrupt was reported, env can be closed
+    assertTrue(Thread.interrupted());
+  }
+
+  private void assertRestored(InputStream in) throws IOException {
+    File dir = tmp.newFolder();
+    try (FileOutputStream out = new FileOutputStream(new File(dir, "data.mdb"))) {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+    }
+    try (Env restored = new Env(dir.getCanonicalPath()); Database copy = restored.openDatabase()) {
+      assertThat(copy.stat().ms_entries, is(10000L));
+      assertArrayEquals(new byte[100], copy.get(Bytes.fromLong(9999)));
+    }
+  }
+}
@@ -845,4 +845,198 @@ public class BufferCursorTest {
       assertThat(e.getErrorCode(), is(LMDBException.EACCES));
     }
   }
+
+  @Test
+  public void testBatch() {
+    LinkedList<byte[]> expected = new LinkedList<>();
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      while (cursor.next()) {
+        expected.add(cursor.keyBytes());
+      }
+    }
+    assertThat(expected.size(), is(19));
+
+    EntryBatch batch = new EntryBatch(4);
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      LinkedList<byte[]> found = new LinkedList<>();
+      while (cursor.nextBatch(batch)) {
+        for (int i = 0; i < batch.size(); i++) {
+          assertArrayEquals(batch.keyBytes(i), batch.valBytes(i));
+          found.add(batch.keyBytes(i));
+        }
+        assertArrayEquals(found.getLast(), cursor.keyBytes());
+      }
+      assertTrue(batch.isExhausted());
+      assertThat(cursor.keyLength(), is(0));
+      assertThat(found.size(), is(expected.size()));
+      for (int i = 0; i < found.size(); i++) {
+        assertArrayEquals(expected.get(i), found.get(i));
+      }
+    }
+
+    // an unpositioned cursor iterates backward from the end
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      LinkedList<byte[]> found = new LinkedList<>();
+      while (cursor.prevBatch(batch)) {
+        for (int i = 0; i < batch.size(); i++) {
+          found.addFirst(batch.keyBytes(i));
+        }
+      }
+      assertThat(found.size(), is(expected.size()));
+      for (int i = 0; i < found.size(); i++) {
+        assertArrayEquals(expected.get(i), found.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchByteBudget() {
+    try (Transaction tx = env.createReadTransaction();
+         Cursor cursor = db.openCursor(tx)) {
+      EntryBatch batch = new EntryBatch(100, 20);
+      assertThat(cursor.getBatch(GetOp.FIRST, GetOp.NEXT, batch), is(2));
+      assertFalse(batch.isExhausted());
+      assertThat(batch.key(0).getLong(0, ByteOrder.BIG_ENDIAN), is(0L));
+      assertThat(batch.val(1).getLong(0, ByteOrder.BIG_ENDIAN), is(1L));
+      assertThat(batch.keyLength(1), is(8));
+      assertThat(batch.valLength(1), is(8));
+    }
+  }
+
+  @Test
+  public void testBatchFromKey() {
+    try (Transaction tx = env.createReadTransaction();
+         Cursor cursor = db.openCursor(tx)) {
+      EntryBatch batch = new EntryBatch(3);
+      DirectBuffer key = new DirectBuffer(ByteBuffer.allocateDirect(8));
+      key.putLong(0, 5, ByteOrder.BIG_ENDIAN);
+      assertThat(cursor.getBatch(SeekOp.RANGE, key, GetOp.NEXT, batch), is(3));
+      assertThat(batch.key(0).getLong(0, ByteOrder.BIG_ENDIAN), is(5L));
+      assertThat(batch.key(2).getLong(0, ByteOrder.BIG_ENDIAN), is(7L));
+      try {
+        cursor.getBatch(GetOp.SET, GetOp.NEXT, batch);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      try {
+        cursor.getBatch(GetOp.FIRST, GetOp.NEXT_MULTIPLE, batch);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testRange() {
+    KeyRange range = KeyRange.closedOpen(Bytes.fromLong(3), Bytes.fromLong(6));
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      assertTrue(cursor.first(range));
+      assertThat(cursor.keyLong(0), is(3L));
+      assertTrue(cursor.next(range));
+      assertTrue(cursor.next(range));
+      assertThat(cursor.keyLong(0), is(5L));
+      assertFalse(cursor.next(range));
+      assertThat(cursor.keyLength(), is(0));
+
+      assertTrue(cursor.last(range));
+      assertThat(cursor.keyLong(0), is(5L));
+      assertTrue(cursor.prev(range));
+      assertTrue(cursor.prev(range));
+      assertThat(cursor.valLong(0), is(3L));
+      assertFalse(cursor.prev(range));
+    }
+  }
+
+  @Test
+  public void testKeysOnlyAndProjection() {
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, new byte[]{(byte) 0xff}, new byte[]{1, 2, 3, 4, 5});
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      int count = 0;
+      for (boolean found = cursor.keysOnly().first(); found; found = cursor.next()) {
+        assertThat(cursor.valLength(), is(0));
+        count++;
+      }
+      assertThat(count, is(20));
+
+      assertTrue(cursor.projectValue(1, 2).last());
+      assertThat(cursor.keyBytes(), is(new byte[]{(byte) 0xff}));
+      assertThat(cursor.valBytes(), is(new byte[]{2, 3}));
+      assertTrue(cursor.prev(KeyRange.atMost(new byte[]{9})));
+      assertThat(cursor.keyBytes(), is(new byte[]{9}));
+      assertThat(cursor.valLength(), is(0));
+
+      assertTrue(cursor.fullValues().last());
+      assertThat(cursor.valBytes(), is(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    EntryBatch batch = new EntryBatch(32).projectValue(3, 10);
+    try (Transaction tx = env.createReadTransaction();
+         BufferCursor cursor = db.bufferCursor(tx)) {
+      assertTrue(cursor.prevBatch(batch));
+      assertThat(batch.valBytes(0), is(new byte[]{4, 5}));
+      assertThat(batch.valLength(1), is(0));
+      assertThat(batch.keysOnly().getMaxBytes(), is(Long.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void testMultiple() throws IOException {
+    try (Env dupEnv = new Env()) {
+      dupEnv.open(tmp.newFolder().getCanonicalPath());
+      Database ids = dupEnv.openDatabase(null, Constants.CREATE | Constants.DUPSORT | Constants.DUPFIXED);
+      DirectBuffer k = new DirectBuffer(ByteBuffer.allocateDirect(1));
+      DirectBuffer v = new DirectBuffer(ByteBuffer.allocateDirect(8));
+      try (Transaction tx = dupEnv.createWriteTransaction()) {
+        k.putByte(0, (byte) 1);
+        for (int i = 0; i < 2000; i++) {
+          v.putLong(0, i, ByteOrder.BIG_ENDIAN);
+          ids.put(tx, k, v);
+        }
+        k.putByte(0, (byte) 2);
+        v.putLong(0, 42, ByteOrder.BIG_ENDIAN);
+        ids.put(tx, k, v);
+        tx.commit();
+      }
+
+      long[] page = new long[4096 / 8];
+      try (Transaction tx = dupEnv.createReadTransaction();
+           BufferCursor cursor = ids.bufferCursor(tx)) {
+        long expected = 0;
+        int pages = 0;
+        assertTrue(cursor.seekRange(new byte[]{1}));
+        assertTrue(cursor.getMultiple());
+        do {
+          int n = cursor.valLongs(page, 0);
+          assertThat(n, is(cursor.valLength() / 8));
+          for (int i = 0; i < n; i++) {
+            assertThat(page[i], is(expected++));
+          }
+          pages++;
+        } while (cursor.nextMultiple());
+        assertThat(expected, is(2000L));
+        assertTrue(pages > 1);
+
+        assertTrue(cursor.seekRange(new byte[]{2}));
+        assertTrue(cursor.getMultiple());
+        assertThat(cursor.keyBytes(), is(new byte[]{2}));
+        assertThat(cursor.valLongs(page, 1), is(1));
+        assertThat(page[1], is(42L));
+        assertFalse(cursor.nextMultiple());
+
+        int[] halves = new int[2];
+        assertTrue(cursor.seekRange(new byte[]{2}));
+        assertTrue(cursor.getMultiple());
+        assertThat(cursor.valInts(halves, 0), is(2));
+        assertThat(halves[1], is(42));
+      }
+    }
+  }
 }
@@ -0,0 +1,166 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class BulkLoaderTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  File spillDir;
+  Random random = new Random(0);
+
+  @Before
+  public void before() throws IOException {
+    env = new Env();
+    env.setMaxDbs(4);
+    env.setMapSize(64 * 1024 * 1024);
+    env.open(tmp.newFolder().getCanonicalPath());
+    spillDir = tmp.newFolder();
+  }
+
+  @After
+  public void after() {
+    env.close();
+  }
+
+  @Test
+  public void testLoadInMemory() throws IOException {
+    Database db = env.openDatabase("plain");
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    try (BulkLoader loader = new BulkLoader(env, db, 1024 * 1024, 100, spillDir)) {
+      for (int i = 0; i < 1000; i++) {
+        long key = random.nextInt(500);
+        loader.add(Bytes.fromLong(key), Bytes.fromLong(i));
+        expected.put(key, (long) i);
+      }
+      assertThat(loader.finish(), is(1000L));
+      assertThat(spillDir.list().length, is(0));
+    }
+    assertEntries(db, expected);
+  }
+
+  @Test
+  public void testLoadWithRuns() throws IOException {
+    Database db = env.openDatabase("plain");
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    try (Transaction tx = env.createWriteTransaction()) {
+      // keys already present are overwritten, interleaved keys are inserted
+      for (long key = 1; key < 20000; key += 100) {
+        db.put(tx, Bytes.fromLong(key), Bytes.fromLong(-1));
+        expected.put(key, -1L);
+      }
+      tx.commit();
+    }
+    try (BulkLoader loader = new BulkLoader(env, db, 4096, 1000, spillDir)) {
+      for (int i = 0; i < 10000; i++) {
+        long key = random.nextInt(20000);
+        loader.add(Bytes.fromLong(key), Bytes.fromLong(i));
+        expected.put(key, (long) i);
+      }
+      assertTrue(spillDir.list().length > 1);
+      loader.finish();
+    }
+    assertThat(spillDir.list().length, is(0));
+    assertEntries(db, expected);
+  }
+
+  @Test
+  public void testLoadDuplicates() throws IOException {
+    Database db = env.openDatabase("dups", Constants.CREATE | Constants.DUPSORT);
+    TreeMap<Long, TreeSet<Long>> expected = new TreeMap<>();
+    try (BulkLoader loader = new BulkLoader(env, db, 8192, 500, spillDir)) {
+      for (int i = 0; i < 5000; i++) {
+        long key = random.nextInt(100);
+        long value = random.nextInt(200);
+        loader.add(Bytes.fromLong(key), Bytes.fromLong(value));
+        if (!expected.containsKey(key)) {
+          expected.put(key, new TreeSet<Long>());
+        }
+        expected.get(key).add(value);
+      }
+      loader.finish();
+    }
+    List<long[]> pairs = new ArrayList<>();
+    for (Map.Entry<Long, TreeSet<Long>> entry : expected.entrySet()) {
+      for (long value : entry.getValue()) {
+        pairs.add(new long[]{entry.getKey(), value});
+      }
+    }
+    try (Transaction tx = env.createReadTransaction(); BufferCursor cursor = db.bufferCursor(tx)) {
+      int i = 0;
+      for (boolean found = cursor.first(); found; found = cursor.next()) {
+        assertThat(cursor.keyLong(0), is(pairs.get(i)[0]));
+        assertThat(cursor.valLong(0), is(pairs.get(i)[1]));
+        i++;
+      }
+      assertThat(i, is(pairs.size()));
+    }
+  }
+
+  @Test
+  public void testNativeComparator() throws IOException {
+    Database db = env.openDatabase("reverse");
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, NativeComparator.REVERSE_LEXICOGRAPHIC);
+      tx.commit();
+    }
+    try (BulkLoader loader = new BulkLoader(env, db, 2048, 100, spillDir)) {
+      for (int i = 0; i < 1000; i++) {
+        loader.add(Bytes.fromLong(random.nextInt(300)), new byte[]{1});
+      }
+      loader.finish();
+    }
+    try (Transaction tx = env.createReadTransaction(); BufferCursor cursor = db.bufferCursor(tx)) {
+      long last = Long.MAX_VALUE;
+      int count = 0;
+      for (boolean found = cursor.first(); found; found = cursor.next()) {
+        assertTrue(cursor.keyLong(0) < last);
+        last = cursor.keyLong(0);
+        count++;
+      }
+      assertTrue(count > 250);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterFinish() throws IOException {
+    Database db = env.openDatabase("plain");
+    try (BulkLoader loader = new BulkLoader(env, db)) {
+      loader.finish();
+      loader.add(new byte[1], new byte[1]);
+    }
+  }
+
+  private void assertEntries(Database db, TreeMap<Long, Long> expected) {
+    try (Transaction tx = env.createReadTransaction(); BufferCursor cursor = db.bufferCursor(tx)) {
+      int count = 0;
+      for (boolean found = cursor.first(); found; found = cursor.next()) {
+        long key = cursor.keyLong(0);
+        assertThat(cursor.valLong(0), is(expected.get(key)));
+        count++;
+      }
+      assertThat(count, is(expected.size()));
+    }
+  }
+}
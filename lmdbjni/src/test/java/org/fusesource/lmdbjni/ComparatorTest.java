@@ -6,7 +6,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -172,4 +175,130 @@ public class ComparatorTest {
       }
     }
   }
+
+  @Test
+  public void testNativeLongComparator() {
+    if (Util.isAndroid()) {
+      return;
+    }
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, NativeComparator.LONG);
+      for (int i = -500; i < 500; i++) {
+        db.put(tx, Bytes.fromLong(i), data);
+      }
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      long expected = -500;
+      for (Entry entry : it.iterable()) {
+        assertThat(Bytes.getLong(entry.getKey()), is(expected++));
+      }
+      assertThat(expected, is(500L));
+    }
+  }
+
+  @Test
+  public void testNativeDoubleComparator() {
+    if (Util.isAndroid()) {
+      return;
+    }
+    double[] values = {Double.NaN, 2.5, -0.0, Double.NEGATIVE_INFINITY, 0.0, -1e10, 1e-10};
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, NativeComparator.DOUBLE);
+      for (double value : values) {
+        db.put(tx, ByteBuffer.allocate(8).putDouble(value).array(), data);
+      }
+      // a NaN with other bits is the same key
+      db.put(tx, ByteBuffer.allocate(8).putLong(0xfff0000000000001L).array(), data);
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      double previous = Double.NEGATIVE_INFINITY;
+      int count = 0;
+      for (Entry entry : it.iterable()) {
+        double value = ByteBuffer.wrap(entry.getKey()).getDouble();
+        assertTrue(Double.compare(previous, value) <= 0);
+        previous = value;
+        count++;
+      }
+      assertThat(count, is(values.length));
+      assertTrue(Double.isNaN(previous));
+    }
+  }
+
+  @Test
+  public void testNativeReverseComparator() {
+    if (Util.isAndroid()) {
+      return;
+    }
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, NativeComparator.REVERSE_LEXICOGRAPHIC);
+      db.put(tx, new byte[]{1}, data);
+      db.put(tx, new byte[]{1, 0}, data);
+      db.put(tx, new byte[]{2}, data);
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      assertArrayEquals(new byte[]{2}, it.next().getKey());
+      assertArrayEquals(new byte[]{1, 0}, it.next().getKey());
+      assertArrayEquals(new byte[]{1}, it.next().getKey());
+    }
+  }
+
+  @Test
+  public void testNativeUtf8Comparator() throws IOException {
+    if (Util.isAndroid()) {
+      return;
+    }
+    // a surrogate pair sorts before U+FFFD, as in String.compareTo
+    String[] sorted = {"a", "a\u00e9", "b", "\ud83d\ude00", "\ufffd"};
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, NativeComparator.UTF8);
+      for (int i = sorted.length - 1; i >= 0; i--) {
+        db.put(tx, utf(sorted[i]), data);
+      }
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      for (String value : sorted) {
+        assertArrayEquals(utf(value), it.next().getKey());
+      }
+      assertFalse(it.hasNext());
+    }
+  }
+
+  private static byte[] utf(String value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new DataOutputStream(bytes).writeUTF(value);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testTupleComparator() {
+    if (Util.isAndroid()) {
+      return;
+    }
+    TupleComparator comparator = new TupleComparator().addInt().addUtf8().addLong();
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, comparator);
+      db.put(tx, tuple(1, "b", -1), data);
+      db.put(tx, tuple(-1, "zz", 5), data);
+      db.put(tx, tuple(1, "ab", 3), data);
+      db.put(tx, tuple(1, "b", -7), data);
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      assertArrayEquals(tuple(-1, "zz", 5), it.next().getKey());
+      assertArrayEquals(tuple(1, "ab", 3), it.next().getKey());
+      assertArrayEquals(tuple(1, "b", -7), it.next().getKey());
+      assertArrayEquals(tuple(1, "b", -1), it.next().getKey());
+      assertFalse(it.hasNext());
+    }
+  }
+
+  private static byte[] tuple(int a, String b, long c) {
+    byte[] utf8 = b.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(4 + 2 + utf8.length + 8)
+      .putInt(a).putShort((short) utf8.length).put(utf8).putLong(c).array();
+  }
 }
@@ -0,0 +1,141 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CursorPoolTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env(tmp.newFolder().getCanonicalPath());
+    db = env.openDatabase();
+    put(1);
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testRenewCursor() {
+    CursorPool pool = db.getCursorPool();
+    Cursor first;
+    try (Transaction tx = env.createReadTransaction()) {
+      first = pool.borrow(tx);
+      assertNotNull(first.seek(SeekOp.KEY, Bytes.fromLong(1)));
+      pool.release(first);
+    }
+    assertThat(pool.idle(), is(1));
+    put(2);
+    try (Transaction tx = env.createReadTransaction()) {
+      Cursor cursor = pool.borrow(tx);
+      assertSame(first, cursor);
+      assertThat(pool.idle(), is(0));
+      // the renewed cursor reads the new snapshot
+      assertNotNull(cursor.seek(SeekOp.KEY, Bytes.fromLong(2)));
+      pool.release(cursor);
+    }
+  }
+
+  @Test
+  public void testRenewBufferCursor() {
+    CursorPool pool = db.getCursorPool();
+    BufferCursor first;
+    try (Transaction tx = env.createReadTransaction()) {
+      first = pool.borrowBufferCursor(tx);
+      assertTrue(first.first());
+      pool.release(first);
+    }
+    put(2);
+    try (Transaction tx = env.createReadTransaction()) {
+      BufferCursor cursor = pool.borrowBufferCursor(tx);
+      assertSame(first, cursor);
+      assertThat(cursor.keyLength(), is(0));
+      assertTrue(cursor.last());
+      assertThat(cursor.keyLong(0), is(2L));
+      pool.release(cursor);
+    }
+  }
+
+  @Test
+  public void testReleaseResetsProjection() {
+    CursorPool pool = db.getCursorPool();
+    try (Transaction tx = env.createReadTransaction()) {
+      BufferCursor cursor = pool.borrowBufferCursor(tx).keysOnly();
+      assertTrue(cursor.first());
+      assertThat(cursor.valLength(), is(0));
+      pool.release(cursor);
+    }
+    try (Transaction tx = env.createReadTransaction()) {
+      BufferCursor cursor = pool.borrowBufferCursor(tx);
+      assertTrue(cursor.first());
+      assertThat(cursor.valLength(), is(8));
+      assertThat(cursor.valLong(0), is(cursor.keyLong(0)));
+      pool.release(cursor);
+    }
+  }
+
+  @Test
+  public void testWriteCursorsAreNotPooled() {
+    CursorPool pool = db.getCursorPool();
+    try (Transaction tx = env.createWriteTransaction()) {
+      Cursor cursor = pool.borrow(tx);
+      cursor.put(Bytes.fromLong(3), Bytes.fromLong(3), 0);
+      pool.release(cursor);
+      tx.commit();
+    }
+    assertThat(pool.idle(), is(0));
+  }
+
+  @Test
+  public void testMaxIdle() {
+    try (CursorPool pool = new CursorPool(db, 2);
+         Transaction tx = env.createReadTransaction()) {
+      Cursor[] cursors = new Cursor[3];
+      for (int i = 0; i < cursors.length; i++) {
+        cursors[i] = pool.borrow(tx);
+      }
+      for (Cursor cursor : cursors) {
+        pool.release(cursor);
+      }
+      assertThat(pool.idle(), is(2));
+      pool.close();
+      assertThat(pool.idle(), is(0));
+    }
+  }
+
+  @Test(expected = LMDBException.class)
+  public void testClosed() {
+    CursorPool pool = new CursorPool(db);
+    pool.close();
+    try (Transaction tx = env.createReadTransaction()) {
+      pool.borrow(tx);
+    }
+  }
+
+  private void put(long key) {
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, Bytes.fromLong(key), Bytes.fromLong(key));
+      tx.commit();
+    }
+  }
+}
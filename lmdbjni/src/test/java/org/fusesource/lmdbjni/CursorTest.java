@@ -7,9 +7,16 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import static junit.framework.Assert.assertNull;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CursorTest {
   static {
@@ -65,4 +72,55 @@ public class CursorTest {
     }
     read.abort();
   }
+
+  @Test
+  public void testPutMultiple() throws IOException {
+    try (Env dupEnv = new Env()) {
+      dupEnv.setMapSize(64 * 1024 * 1024);
+      dupEnv.open(tmp.newFolder().getCanonicalPath());
+      Database ids = dupEnv.openDatabase(null, Constants.CREATE | Constants.DUPSORT | Constants.DUPFIXED);
+      DirectBuffer k = new DirectBuffer(ByteBuffer.allocateDirect(1));
+      long[] longs = new long[100000];
+      for (int i = 0; i < longs.length; i++) {
+        longs[i] = i * 3;
+      }
+      try (Transaction tx = dupEnv.createWriteTransaction(); Cursor cursor = ids.openCursor(tx)) {
+        k.putByte(0, (byte) 1);
+        assertThat(cursor.putMultiple(k, longs, 0, longs.length, ByteOrder.BIG_ENDIAN, Constants.APPENDDUP),
+          is(longs.length));
+        k.putByte(0, (byte) 2);
+        assertThat(cursor.putMultiple(k, new int[]{7, 5, 6}, 0, 3, ByteOrder.BIG_ENDIAN, 0), is(3));
+        // stops at the first duplicate
+        assertThat(cursor.putMultiple(k, new int[]{8, 6, 9}, 0, 3, ByteOrder.BIG_ENDIAN, Constants.NODUPDATA), is(1));
+        try {
+          cursor.putMultiple(k, new long[]{1, 2}, 1, Integer.MAX_VALUE, ByteOrder.BIG_ENDIAN, 0);
+          fail();
+        } catch (IndexOutOfBoundsException e) {
+          // expected
+        }
+        tx.commit();
+      }
+
+      long[] page = new long[4096 / 8];
+      int[] ints = new int[8];
+      try (Transaction tx = dupEnv.createReadTransaction(); BufferCursor cursor = ids.bufferCursor(tx)) {
+        long expected = 0;
+        assertTrue(cursor.seekRange(new byte[]{1}));
+        assertTrue(cursor.getMultiple());
+        do {
+          int n = cursor.valLongs(page, 0);
+          for (int i = 0; i < n; i++) {
+            assertThat(page[i], is(expected));
+            expected += 3;
+          }
+        } while (cursor.nextMultiple());
+        assertThat(expected, is(longs.length * 3L));
+
+        assertTrue(cursor.seekRange(new byte[]{2}));
+        assertTrue(cursor.getMultiple());
+        assertThat(cursor.valInts(ints, 0), is(4));
+        assertArrayEquals(new int[]{5, 6, 7, 8}, Arrays.copyOf(ints, 4));
+      }
+    }
+  }
 }
@@ -8,6 +8,8 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Comparator;
 
 import static org.fusesource.lmdbjni.Bytes.fromLong;
 import static org.hamcrest.CoreMatchers.is;
@@ -93,4 +95,139 @@ public class DatabaseTest {
     db.delete(key);
     assertNull(db.get(new byte[]{1}));
   }
+
+  @Test
+  public void testGetAll() {
+    for (int i = 0; i < 100; i += 2) {
+      db.put(fromLong(i), fromLong(i * 10));
+    }
+    GetBatch batch = new GetBatch(4);
+    DirectBuffer key = new DirectBuffer(ByteBuffer.allocateDirect(8));
+    key.putLong(0, 42, ByteOrder.BIG_ENDIAN);
+    batch.add(key);
+    for (int i = 99; i >= 0; i--) {
+      batch.add(fromLong(i));
+    }
+    try (Transaction tx = env.createReadTransaction()) {
+      assertThat(db.getAll(tx, batch), is(51));
+      assertThat(batch.foundCount(), is(51));
+      assertArrayEquals(fromLong(420), batch.getValue(0));
+      for (int i = 1; i < batch.size(); i++) {
+        long k = 100 - i;
+        if (k % 2 == 0) {
+          assertTrue(batch.isFound(i));
+          assertThat(batch.valueSize(i), is(8));
+          assertArrayEquals(fromLong(k * 10), batch.getValue(i));
+        } else {
+          assertFalse(batch.isFound(i));
+          assertThat(batch.valueSize(i), is(-1));
+          assertNull(batch.getValue(i));
+        }
+      }
+      DirectBuffer value = new DirectBuffer();
+      assertTrue(batch.getValue(0, value));
+      assertThat(value.getLong(0, ByteOrder.BIG_ENDIAN), is(420L));
+
+      batch.clear();
+      for (int i = 0; i < 10; i++) {
+        batch.add(fromLong(i));
+      }
+      assertThat(db.getAll(tx, batch, true), is(5));
+
+      batch.clear();
+      batch.add(new byte[0]);
+      batch.add(fromLong(2));
+      batch.add(new DirectBuffer(ByteBuffer.allocateDirect(0)));
+      assertThat(db.getAll(tx, batch), is(1));
+      assertFalse(batch.isFound(0));
+      assertArrayEquals(fromLong(20), batch.getValue(1));
+      assertFalse(batch.isFound(2));
+    }
+  }
+
+  @Test
+  public void testGetIntoArray() {
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, new byte[]{1}, new byte[]{1, 2, 3});
+      tx.commit();
+    }
+    assertGetIntoArray();
+  }
+
+  @Test
+  public void testGetIntoArrayWithComparator() {
+    if (Util.isAndroid()) {
+      return;
+    }
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.setComparator(tx, new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] o1, byte[] o2) {
+          for (int i = 0; i < Math.min(o1.length, o2.length); i++) {
+            if (o1[i] != o2[i]) {
+              return (o1[i] & 0xff) - (o2[i] & 0xff);
+            }
+          }
+          return o1.length - o2.length;
+        }
+      });
+      db.put(tx, new byte[]{1}, new byte[]{1, 2, 3});
+      tx.commit();
+    }
+    assertGetIntoArray();
+  }
+
+  private void assertGetIntoArray() {
+    try (Transaction tx = env.createReadTransaction()) {
+      byte[] value = new byte[5];
+      assertThat(db.get(tx, new byte[]{0, 1, 0}, 1, 1, value, 1, 4), is(3));
+      assertArrayEquals(new byte[]{0, 1, 2, 3, 0}, value);
+
+      byte[] small = new byte[2];
+      assertThat(db.get(tx, new byte[]{1}, small), is(3));
+      assertArrayEquals(new byte[]{1, 2}, small);
+
+      assertThat(db.get(tx, new byte[]{2}, small), is(-1));
+      try {
+        db.get(tx, new byte[]{1}, 1, 1, small, 0, 2);
+        fail("key out of bounds");
+      } catch (ArrayIndexOutOfBoundsException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testGetIntoBuffer() {
+    DirectBuffer key = new DirectBuffer(ByteBuffer.allocateDirect(1));
+    key.putByte(0, (byte) 1);
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, new byte[]{1}, new byte[]{1, 2, 3, 4});
+      tx.commit();
+    }
+    try (Transaction tx = env.createReadTransaction()) {
+      byte[] array = new byte[4];
+      assertThat(db.get(tx, key, array, 1, 2), is(4));
+      assertArrayEquals(new byte[]{0, 1, 2, 0}, array);
+
+      for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(3), ByteBuffer.allocateDirect(3)}) {
+        buffer.position(1);
+        assertThat(db.get(tx, key, buffer), is(4));
+        assertThat(buffer.position(), is(3));
+        assertThat(buffer.get(1), is((byte) 1));
+        assertThat(buffer.get(2), is((byte) 2));
+      }
+
+      assertTrue(db.containsKey(tx, key));
+      assertTrue(db.containsKey(tx, new byte[]{1}));
+      assertFalse(db.containsKey(tx, new byte[]{2}));
+      assertThat(db.valueLength(tx, key), is(4));
+      assertThat(db.valueLength(tx, new byte[]{1}), is(4));
+      assertThat(db.valueLength(tx, new byte[]{2}), is(-1));
+
+      key.putByte(0, (byte) 2);
+      assertFalse(db.containsKey(tx, key));
+      assertThat(db.get(tx, key, array, 0, 4), is(-1));
+      assertThat(db.get(tx, key, ByteBuffer.allocate(4)), is(-1));
+    }
+  }
 }
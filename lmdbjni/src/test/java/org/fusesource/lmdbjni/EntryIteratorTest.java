@@ -197,4 +197,141 @@ public class EntryIteratorTest {
     }
     assertTrue(keys.isEmpty());
   }
+
+  @Test
+  public void testRange() {
+    byte[] two = new byte[]{2};
+    byte[] six = new byte[]{6};
+    assertRange(KeyRange.closed(two, six), false, 2, 3, 4, 5, 6);
+    assertRange(KeyRange.closed(two, six), true, 6, 5, 4, 3, 2);
+    assertRange(KeyRange.open(two, six), false, 3, 4, 5);
+    assertRange(KeyRange.open(two, six), true, 5, 4, 3);
+    assertRange(KeyRange.closedOpen(two, six), true, 5, 4, 3, 2);
+    assertRange(KeyRange.atLeast(new byte[]{7}), false, 7, 8, 9);
+    assertRange(KeyRange.lessThan(two), true, 1, 0);
+    assertRange(KeyRange.greaterThan(new byte[]{20}), false);
+    assertRange(KeyRange.all(), true, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+    // an empty start key does not bound the range
+    assertRange(KeyRange.atLeast(new byte[0]), false, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertRange(KeyRange.greaterThan(new byte[0]), true, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+    assertRange(KeyRange.closed(new byte[0], two), false, 0, 1, 2);
+    assertRange(KeyRange.prefix(new byte[0]), false, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertRange(KeyRange.prefix(new byte[0]), true, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+    // no key is at or below an empty end key
+    assertRange(KeyRange.atMost(new byte[0]), true);
+    assertRange(KeyRange.lessThan(new byte[0]), true);
+    assertRange(KeyRange.atMost(new byte[0]), false);
+    assertRange(KeyRange.closed(new byte[0], new byte[0]), true);
+  }
+
+  @Test
+  public void testPrefix() {
+    db.put(new byte[]{5, 1}, new byte[]{5, 1});
+    db.put(new byte[]{5, 2}, new byte[]{5, 2});
+    try (Transaction tx = env.createReadTransaction();
+         EntryIterator it = db.iterateBackward(tx, KeyRange.prefix(new byte[]{5}))) {
+      assertArrayEquals(new byte[]{5, 2}, it.next().getKey());
+      assertArrayEquals(new byte[]{5, 1}, it.next().getKey());
+      assertArrayEquals(new byte[]{5}, it.next().getKey());
+      assertFalse(it.hasNext());
+    }
+    try (Transaction tx = env.createReadTransaction();
+         EntryIterator it = db.iterate(tx, KeyRange.prefix(new byte[]{5, 2}))) {
+      assertArrayEquals(new byte[]{5, 2}, it.next().getKey());
+      assertFalse(it.hasNext());
+    }
+  }
+
+  private void assertRange(KeyRange range, boolean backward, int... expected) {
+    try (Transaction tx = env.createReadTransaction();
+         EntryIterator it = backward ? db.iterateBackward(tx, range) : db.iterate(tx, range)) {
+      for (int key : expected) {
+        assertArrayEquals(new byte[]{(byte) key}, it.next().getKey());
+      }
+      assertFalse(it.hasNext());
+    }
+  }
+
+  @Test
+  public void testFlyweight() {
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx).flyweight()) {
+      Entry previous = null;
+      for (Entry next : it.iterable()) {
+        BufferEntry entry = (BufferEntry) next;
+        byte[] key = keys.pollFirst();
+        assertThat(entry.keyBuffer().getByte(0), is(key[0]));
+        assertThat(entry.valBuffer().getByte(0), is(key[0]));
+        assertArrayEquals(key, entry.getKey());
+        if (previous != null) {
+          assertSame(previous, entry);
+        }
+        previous = entry;
+      }
+      assertTrue(keys.isEmpty());
+    }
+  }
+
+  @Test
+  public void testFlyweightSeekBackward() {
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.seekBackward(tx, new byte[]{5}).flyweight()) {
+      for (int i = 5; i >= 0; i--) {
+        assertThat(((BufferEntry) it.next()).keyBuffer().getByte(0), is((byte) i));
+      }
+      assertFalse(it.hasNext());
+    }
+  }
+
+  @Test
+  public void testLazy() {
+    try (Transaction tx = env.createReadTransaction();
+         EntryIterator it = db.iterate(tx, KeyRange.closedOpen(new byte[]{2}, new byte[]{6})).lazy()) {
+      LinkedList<Entry> entries = new LinkedList<>();
+      for (Entry next : it.iterable()) {
+        entries.add(next);
+      }
+      assertThat(entries.size(), is(4));
+      for (int i = 0; i < 4; i++) {
+        // materialized after the cursor has moved on, within the transaction
+        Entry entry = entries.get(i);
+        assertArrayEquals(new byte[]{(byte) (i + 2)}, entry.getKey());
+        assertSame(entry.getKey(), entry.getKey());
+        assertArrayEquals(new byte[]{(byte) (i + 2)}, entry.getValue());
+      }
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testModeAfterStart() {
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterate(tx)) {
+      it.next();
+      it.lazy();
+    }
+  }
+
+  @Test
+  public void testKeysOnly() {
+    db.put(new byte[]{20}, new byte[16 * 1024]);
+    keys.add(new byte[]{20});
+    try (Transaction tx = env.createReadTransaction(); EntryIterator it = db.iterateBackward(tx).keysOnly()) {
+      for (Entry next : it.iterable()) {
+        assertArrayEquals(keys.pollLast(), next.getKey());
+        assertThat(next.getValue().length, is(0));
+      }
+      assertTrue(keys.isEmpty());
+    }
+  }
+
+  @Test
+  public void testProjectValue() {
+    db.put(new byte[]{20}, new byte[]{1, 2, 3, 4});
+    try (Transaction tx = env.createReadTransaction();
+         EntryIterator it = db.seek(tx, new byte[]{9}).projectValue(1, 2).flyweight()) {
+      BufferEntry entry = (BufferEntry) it.next();
+      assertThat(entry.keyBuffer().getByte(0), is((byte) 9));
+      assertThat(entry.valBuffer().capacity(), is(0));
+      entry = (BufferEntry) it.next();
+      assertArrayEquals(new byte[]{2, 3}, entry.getValue());
+      assertFalse(it.hasNext());
+    }
+  }
 }
@@ -145,6 +145,60 @@ public class EnvTest {
     }
   }
 
+  @Test
+  public void testMapGrowth() throws Exception {
+    String path = tmp.newFolder().getCanonicalPath();
+    try (Env env = new Env()) {
+      env.setMapSize(64 * 1024);
+      env.open(path);
+      env.setMapGrowthPolicy(MapGrowthPolicy.step(64 * 1024, 16 * 1024 * 1024));
+      final Database db = env.openDatabase();
+      final int[] attempts = new int[1];
+      int count = env.executeWrite(new TransactionWork<Integer>() {
+        @Override
+        public Integer execute(Transaction tx) {
+          attempts[0]++;
+          for (int i = 0; i < 1000; i++) {
+            db.put(tx, bytes("key" + i), new byte[512]);
+          }
+          return 1000;
+        }
+      });
+      assertThat(count, is(1000));
+      assertTrue(attempts[0] > 1);
+      assertTrue(env.info().getMapSize() > 64 * 1024);
+      assertThat(db.stat().ms_entries, is(1000L));
+      db.close();
+    }
+  }
+
+  @Test
+  public void testMapGrowthCeiling() throws Exception {
+    String path = tmp.newFolder().getCanonicalPath();
+    try (Env env = new Env()) {
+      env.setMapSize(64 * 1024);
+      env.open(path);
+      env.setMapGrowthPolicy(MapGrowthPolicy.ratio(2.0, 128 * 1024));
+      final Database db = env.openDatabase();
+      try {
+        env.executeWrite(new TransactionWork<Void>() {
+          @Override
+          public Void execute(Transaction tx) {
+            for (int i = 0; i < 1000; i++) {
+              db.put(tx, bytes("key" + i), new byte[512]);
+            }
+            return null;
+          }
+        });
+        fail("Expected LMDBException");
+      } catch (LMDBException e) {
+        assertThat(e.getErrorCode(), is(LMDBException.MAP_FULL));
+      }
+      assertThat(env.info().getMapSize(), is(128 * 1024L));
+      db.close();
+    }
+  }
+
   private void doTest(Env env, Database db) {
 
     assertNull(db.put(bytes("Tampa"), bytes("green")));
@@ -0,0 +1,162 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fusesource.lmdbjni.Bytes.fromLong;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class GroupCommitTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    String path = tmp.newFolder().getCanonicalPath();
+    env = new Env();
+    env.open(path);
+    db = env.openDatabase();
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testManyProducers() throws Exception {
+    final GroupCommit writer = new GroupCommit(env, 64, GroupCommit.DEFAULT_MAX_BATCH_BYTES, 200, 128);
+    writer.start();
+    final List<Future<Integer>> futures = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final int offset = t * 1000;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; i++) {
+            WriteBatch batch = new WriteBatch().put(db, fromLong(offset + i), fromLong(i));
+            Future<Integer> future = writer.submit(batch);
+            synchronized (futures) {
+              futures.add(future);
+            }
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (Future<Integer> future : futures) {
+      assertThat(future.get(), is(1));
+    }
+    writer.close();
+    assertThat(db.stat().ms_entries, is(8000L));
+  }
+
+  @Test
+  public void testFailingRequestIsIsolated() throws Exception {
+    GroupCommit writer = new GroupCommit(env, 10, GroupCommit.DEFAULT_MAX_BATCH_BYTES, 100000, 16);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final int n = i;
+      futures.add(writer.submit(new TransactionWork<Void>() {
+        @Override
+        public Void execute(Transaction tx) {
+          db.put(tx, fromLong(n), fromLong(n));
+          if (n == 3) {
+            throw new IllegalStateException("boom");
+          }
+          return null;
+        }
+      }));
+    }
+    writer.start();
+    for (int i = 0; i < 10; i++) {
+      try {
+        futures.get(i).get();
+        assertTrue(i != 3);
+      } catch (ExecutionException e) {
+        assertThat(i, is(3));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    }
+    writer.close();
+    assertThat(db.stat().ms_entries, is(9L));
+    assertNull(db.get(fromLong(3)));
+  }
+
+  @Test
+  public void testSubmitRacingClose() throws Exception {
+    final GroupCommit writer = new GroupCommit(env, 16, GroupCommit.DEFAULT_MAX_BATCH_BYTES, 0, 32);
+    writer.start();
+    final List<Future<Integer>> futures = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int offset = t * 100000;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; ; i++) {
+            try {
+              Future<Integer> future = writer.submit(new WriteBatch().put(db, fromLong(offset + i), fromLong(i)));
+              synchronized (futures) {
+                futures.add(future);
+              }
+            } catch (RejectedExecutionException e) {
+              return;
+            }
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    Thread.sleep(50);
+    writer.close();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // every accepted request is either committed or rejected, none is left hanging
+    long committed = 0;
+    for (Future<Integer> future : futures) {
+      try {
+        future.get(10, TimeUnit.SECONDS);
+        committed++;
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+      }
+    }
+    assertThat(db.stat().ms_entries, is(committed));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testSubmitAfterClose() {
+    GroupCommit writer = new GroupCommit(env);
+    writer.start();
+    writer.close();
+    writer.submit(new WriteBatch());
+  }
+}
@@ -0,0 +1,220 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class KeyCodecTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+  Random random = new Random(0);
+
+  @Before
+  public void before() throws IOException {
+    String path = tmp.newFolder().getCanonicalPath();
+    env = new Env();
+    env.setMapSize(16 * 1024 * 1024);
+    env.open(path);
+    db = env.openDatabase();
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testRoundtrip() {
+    KeyEncoder encoder = new KeyEncoder();
+    encoder.writeInt(-7).writeLong(Long.MIN_VALUE).writeFloat(-0.5f).writeDouble(Math.PI)
+      .writeBoolean(true).writeBytes(new byte[]{0, 1, 0, (byte) 0xff}).writeString("a\u0000\u00e9\u20ac\ud83d\ude00")
+      .writeString("").writeLong(42);
+
+    KeyDecoder decoder = new KeyDecoder(encoder.key());
+    assertThat(decoder.readInt(), is(-7));
+    assertThat(decoder.readLong(), is(Long.MIN_VALUE));
+    assertThat(decoder.readFloat(), is(-0.5f));
+    assertThat(decoder.readDouble(), is(Math.PI));
+    assertThat(decoder.readBoolean(), is(true));
+    assertArrayEquals(new byte[]{0, 1, 0, (byte) 0xff}, decoder.readBytes());
+    assertThat(decoder.readString(), is("a\u0000\u00e9\u20ac\ud83d\ude00"));
+    assertThat(decoder.readString(), is(""));
+    assertThat(decoder.readLong(), is(42L));
+    assertThat(decoder.remaining(), is(0));
+    assertThat(decoder.position(), is(encoder.position()));
+
+    decoder.wrap(encoder.key()).skip(4 + 8 + 4 + 8 + 1).skipBytes().skipBytes().skipBytes();
+    assertThat(decoder.readLong(), is(42L));
+  }
+
+  @Test
+  public void testNumberOrder() {
+    List<Long> longs = new ArrayList<>();
+    List<Double> doubles = new ArrayList<>();
+    Collections.addAll(longs, Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE);
+    Collections.addAll(doubles, Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.0, -Double.MIN_VALUE,
+      -0.0, 0.0, Double.MIN_VALUE, 1.0, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN);
+    for (int i = 0; i < 1000; i++) {
+      longs.add(random.nextLong());
+      doubles.add((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20));
+    }
+    KeyEncoder encoder = new KeyEncoder();
+    for (int i = 0; i < longs.size(); i++) {
+      for (int j = 0; j < longs.size(); j++) {
+        long a = longs.get(i);
+        long b = longs.get(j);
+        assertThat(sign(compare(encoder.reset().writeLong(a).toBytes(), encoder.reset().writeLong(b).toBytes())),
+          is(sign(Long.compare(a, b))));
+        assertThat(sign(compare(encoder.reset().writeInt((int) a).toBytes(), encoder.reset().writeInt((int) b).toBytes())),
+          is(sign(Integer.compare((int) a, (int) b))));
+      }
+    }
+    for (int i = 0; i < doubles.size(); i++) {
+      for (int j = 0; j < doubles.size(); j++) {
+        double a = doubles.get(i);
+        double b = doubles.get(j);
+        assertThat(sign(compare(encoder.reset().writeDouble(a).toBytes(), encoder.reset().writeDouble(b).toBytes())),
+          is(sign(Double.compare(a, b))));
+        assertThat(sign(compare(encoder.reset().writeFloat((float) a).toBytes(), encoder.reset().writeFloat((float) b).toBytes())),
+          is(sign(Float.compare((float) a, (float) b))));
+      }
+    }
+  }
+
+  @Test
+  public void testTupleOrder() {
+    List<Tuple> tuples = randomTuples(2000);
+    List<byte[]> keys = new ArrayList<>();
+    KeyEncoder encoder = new KeyEncoder();
+    for (Tuple tuple : tuples) {
+      keys.add(tuple.encode(encoder.reset()).toBytes());
+    }
+    for (int i = 1; i < tuples.size(); i++) {
+      assertThat(sign(compare(keys.get(i - 1), keys.get(i))), is(sign(tuples.get(i - 1).compareTo(tuples.get(i)))));
+    }
+  }
+
+  @Test
+  public void testIterateInOrder() {
+    List<Tuple> tuples = randomTuples(1000);
+    KeyEncoder encoder = new KeyEncoder();
+    DirectBuffer value = new DirectBuffer(ByteBuffer.allocateDirect(4));
+    try (Transaction tx = env.createWriteTransaction()) {
+      for (int i = 0; i < tuples.size(); i++) {
+        value.putInt(0, i);
+        db.put(tx, tuples.get(i).encode(encoder.reset()).key(), value);
+      }
+      tx.commit();
+    }
+    Collections.sort(tuples);
+    List<Tuple> distinct = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(tuple) != 0) {
+        distinct.add(tuple);
+      }
+    }
+
+    KeyDecoder decoder = new KeyDecoder();
+    try (Transaction tx = env.createReadTransaction(); BufferCursor cursor = db.bufferCursor(tx)) {
+      int i = 0;
+      for (boolean found = cursor.first(); found; found = cursor.next()) {
+        decoder.wrap(cursor.keyBuffer());
+        Tuple expected = distinct.get(i++);
+        assertThat(decoder.readString(), is(expected.name));
+        assertThat(decoder.readLong(), is(expected.id));
+        assertThat(decoder.readDouble(), is(expected.score));
+        assertThat(decoder.remaining(), is(0));
+      }
+      assertThat(i, is(distinct.size()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHeapBufferRejected() {
+    new KeyEncoder(new DirectBuffer(new byte[16]));
+  }
+
+  private List<Tuple> randomTuples(int count) {
+    String[] names = {"", "a", "a\u0000", "a\u0000b", "ab", "b", "\u00e9", "\u20ac", "\ud83d\ude00", "\uffff"};
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String name = names[random.nextInt(names.length)] + (random.nextBoolean() ? names[random.nextInt(names.length)] : "");
+      tuples.add(new Tuple(name, random.nextInt(7) - 3, random.nextInt(5) - 2.5));
+    }
+    return tuples;
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    for (int i = 0; i < Math.min(a.length, b.length); i++) {
+      int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  private static int sign(int value) {
+    return Integer.signum(value);
+  }
+
+  static class Tuple implements Comparable<Tuple> {
+    final String name;
+    final long id;
+    final double score;
+
+    Tuple(String name, long id, double score) {
+      this.name = name;
+      this.id = id;
+      this.score = score;
+    }
+
+    KeyEncoder encode(KeyEncoder encoder) {
+      return encoder.writeString(name).writeLong(id).writeDouble(score);
+    }
+
+    @Override
+    public int compareTo(Tuple o) {
+      int cmp = compareCodePoints(name, o.name);
+      if (cmp == 0) {
+        cmp = Long.compare(id, o.id);
+      }
+      return cmp != 0 ? cmp : Double.compare(score, o.score);
+    }
+
+    private static int compareCodePoints(String a, String b) {
+      int i = 0;
+      int j = 0;
+      while (i < a.length() && j < b.length()) {
+        int x = a.codePointAt(i);
+        int y = b.codePointAt(j);
+        if (x != y) {
+          return Integer.compare(x, y);
+        }
+        i += Character.charCount(x);
+        j += Character.charCount(y);
+      }
+      return Integer.compare(a.length() - i, b.length() - j);
+    }
+  }
+}
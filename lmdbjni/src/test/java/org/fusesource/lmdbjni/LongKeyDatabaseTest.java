@@ -0,0 +1,150 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class LongKeyDatabaseTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env();
+    env.setMaxDbs(4);
+    env.open(tmp.newFolder().getCanonicalPath());
+  }
+
+  @After
+  public void after() {
+    env.close();
+  }
+
+  @Test
+  public void testGetPutDelete() {
+    try (LongKeyDatabase db = new LongKeyDatabase(env, "records")) {
+      DirectBuffer value = new DirectBuffer(ByteBuffer.allocateDirect(4));
+      DirectBuffer found = new DirectBuffer(0, 0);
+      try (Transaction tx = env.createWriteTransaction()) {
+        for (long key = 0; key < 100; key++) {
+          value.putInt(0, (int) key * 2);
+          db.put(tx, key * 10, value);
+        }
+        db.putLong(tx, -1, 7);
+        assertFalse(db.putLong(tx, -1, 8, Constants.NOOVERWRITE));
+        tx.commit();
+      }
+      try (Transaction tx = env.createWriteTransaction()) {
+        assertThat(db.get(tx, 420, found), is(0));
+        assertThat(found.getInt(0), is(84));
+        assertThat(db.get(tx, 421, found), is(JNI.MDB_NOTFOUND));
+        assertThat(db.getLong(tx, -1, 0), is(7L));
+        assertThat(db.getLong(tx, 5, 3), is(3L));
+        assertTrue(db.containsKey(tx, 990));
+        assertTrue(db.delete(tx, 990));
+        assertFalse(db.delete(tx, 990));
+        assertFalse(db.containsKey(tx, 990));
+        tx.commit();
+      }
+    }
+  }
+
+  @Test
+  public void testRange() {
+    try (LongKeyDatabase db = new LongKeyDatabase(env, "records")) {
+      try (Transaction tx = env.createWriteTransaction()) {
+        for (long key = 0; key < 1000; key += 2) {
+          db.putLong(tx, key, key + 1, Constants.APPEND);
+        }
+        db.putLong(tx, -5, 0);
+        tx.commit();
+      }
+      try (Transaction tx = env.createReadTransaction(); LongCursor cursor = db.openCursor(tx)) {
+        long expected = 100;
+        for (boolean found = cursor.first(99, 200); found; found = cursor.next()) {
+          assertThat(cursor.key(), is(expected));
+          assertThat(cursor.valLong(), is(expected + 1));
+          expected += 2;
+        }
+        assertThat(expected, is(202L));
+
+        expected = 200;
+        for (boolean found = cursor.last(100, 200); found; found = cursor.prev()) {
+          assertThat(cursor.key(), is(expected));
+          expected -= 2;
+        }
+        assertThat(expected, is(98L));
+
+        assertFalse(cursor.first(1001, 2000));
+        assertTrue(cursor.seekKey(998));
+        assertFalse(cursor.seekKey(999));
+        assertTrue(cursor.seek(999));
+        // unsigned order puts negative keys last
+        assertThat(cursor.key(), is(-5L));
+        assertTrue(cursor.last());
+        assertThat(cursor.key(), is(-5L));
+        assertTrue(cursor.first());
+        assertThat(cursor.key(), is(0L));
+      }
+    }
+  }
+
+  @Test
+  public void testDuplicates() {
+    try (LongDupDatabase db = new LongDupDatabase(env, "index")) {
+      long[] values = new long[5000];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = values.length - i;
+      }
+      try (Transaction tx = env.createWriteTransaction()) {
+        assertTrue(db.add(tx, 1, 10));
+        assertFalse(db.add(tx, 1, 10));
+        assertTrue(db.add(tx, 1, 5));
+        assertTrue(db.add(tx, 2, 3));
+        assertThat(db.addAll(tx, 2, values, 0, values.length), is(values.length - 1));
+        assertTrue(db.remove(tx, 1, 5));
+        assertFalse(db.remove(tx, 1, 5));
+        tx.commit();
+      }
+      try (Transaction tx = env.createReadTransaction(); LongCursor cursor = db.openCursor(tx)) {
+        assertTrue(cursor.seek(2, 4999));
+        assertFalse(cursor.seek(2, 5001));
+        assertTrue(cursor.seekKey(2));
+        assertThat(cursor.count(), is(5000L));
+        long[] all = new long[6000];
+        assertThat(cursor.values(all, 0), is(5000));
+        for (int i = 0; i < 5000; i++) {
+          assertThat(all[i], is(i + 1L));
+        }
+        long[] some = new long[10];
+        assertThat(cursor.values(some, 7), is(3));
+        assertArrayEquals(new long[]{1, 2, 3}, Arrays.copyOfRange(some, 7, 10));
+
+        assertTrue(cursor.first());
+        assertThat(cursor.key(), is(1L));
+        assertThat(cursor.valLong(), is(10L));
+        assertFalse(cursor.nextDup());
+        assertTrue(cursor.nextKey());
+        assertThat(cursor.key(), is(2L));
+        assertThat(cursor.valLong(), is(1L));
+        assertTrue(cursor.nextDup());
+        assertThat(cursor.valLong(), is(2L));
+      }
+    }
+  }
+}
@@ -2,6 +2,9 @@ package org.fusesource.lmdbjni;
 
 import org.junit.Test;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
 public class NativeBufferTest {
   static {
     Setup.setLmdbLibraryPath();
@@ -15,4 +18,62 @@ public class NativeBufferTest {
     pool.delete();
 
   }
+
+  @Test
+  public void testSizeClass() {
+    assertThat(NativeBuffer.Slab.sizeClass(0), is(0));
+    assertThat(NativeBuffer.Slab.sizeClass(16), is(0));
+    assertThat(NativeBuffer.Slab.sizeClass(17), is(1));
+    assertThat(NativeBuffer.Slab.sizeClass(32), is(1));
+    assertThat(NativeBuffer.Slab.sizeClass(65536), is(12));
+    assertThat(NativeBuffer.Slab.sizeClass(65537), is(-1));
+  }
+
+  @Test
+  public void testSlabRecycles() {
+    if (!NativeBuffer.Slab.ENABLED) {
+      return;
+    }
+    NativeBuffer.releaseSlabs();
+    byte[] data = new byte[]{1, 2, 3};
+    NativeBuffer.create(data).delete();
+    SlabStats before = NativeBuffer.slabStats();
+    for (int i = 0; i < 100; i++) {
+      NativeBuffer buffer = NativeBuffer.create(data);
+      assertArrayEquals(data, buffer.toByteArray());
+      buffer.delete();
+    }
+    SlabStats after = NativeBuffer.slabStats();
+    assertThat(after.getHits() - before.getHits(), is(100L));
+    assertThat(after.getMisses(), is(before.getMisses()));
+    assertThat(after.getLiveBuffers(), is(before.getLiveBuffers()));
+    assertTrue(after.getHitRate() > 0);
+
+    long reserved = after.getBytesReserved();
+    NativeBuffer.releaseSlabs();
+    assertThat(NativeBuffer.slabStats().getBytesReserved(), is(reserved - 16));
+  }
+
+  @Test
+  public void testSlabOfTerminatedThreadIsFreed() throws InterruptedException {
+    if (!NativeBuffer.Slab.ENABLED) {
+      return;
+    }
+    SlabStats before = NativeBuffer.slabStats();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10; i++) {
+          NativeBuffer.create(1000).delete();
+        }
+      }
+    };
+    thread.start();
+    thread.join();
+    SlabStats after = NativeBuffer.slabStats();
+    assertThat(after.getMisses() - before.getMisses(), is(1L));
+    assertThat(after.getHits() - before.getHits(), is(9L));
+    assertThat(after.getLiveBuffers(), is(before.getLiveBuffers()));
+    assertThat(after.getBytesReserved(), is(before.getBytesReserved()));
+  }
 }
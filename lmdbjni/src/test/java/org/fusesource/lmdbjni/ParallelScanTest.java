@@ -0,0 +1,151 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.fusesource.lmdbjni.Bytes.fromLong;
+import static org.fusesource.lmdbjni.Bytes.getLong;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ParallelScanTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    open(0);
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  private void open(int flags) throws IOException {
+    String path = tmp.newFolder().getCanonicalPath();
+    env = new Env();
+    env.open(path, flags);
+    db = env.openDatabase();
+    try (Transaction tx = env.createWriteTransaction()) {
+      for (long i = 0; i < 10000; i++) {
+        db.put(tx, fromLong(i), fromLong(i), Constants.APPEND);
+      }
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    ParallelScan scan = new ParallelScan(env, db, 4);
+    try (Transaction tx = env.createReadTransaction()) {
+      List<KeyRange> ranges = scan.split(tx, KeyRange.all(), 4);
+      assertThat(ranges.size(), is(4));
+      long expected = 0;
+      for (KeyRange range : ranges) {
+        try (EntryIterator it = db.iterate(tx, range)) {
+          long count = 0;
+          for (Entry entry : it.iterable()) {
+            assertThat(getLong(entry.getKey()), is(expected++));
+            count++;
+          }
+          assertTrue(Math.abs(count - 2500) <= 1);
+        }
+      }
+      assertThat(expected, is(10000L));
+
+      ranges = scan.split(tx, KeyRange.closedOpen(fromLong(10), fromLong(11)), 4);
+      assertThat(ranges.size(), is(1));
+    }
+  }
+
+  @Test
+  public void testSplitReverseKeys() throws IOException {
+    after();
+    env = new Env();
+    env.setMaxDbs(1);
+    env.open(tmp.newFolder().getCanonicalPath());
+    db = env.openDatabase("reverse", Constants.CREATE | Constants.REVERSEKEY);
+    try (Transaction tx = env.createWriteTransaction()) {
+      for (long i = 0; i < 10000; i++) {
+        db.put(tx, fromLong(i), fromLong(i));
+      }
+      tx.commit();
+    }
+    ParallelScan scan = new ParallelScan(env, db, 4);
+    try (Transaction tx = env.createReadTransaction()) {
+      List<KeyRange> ranges = scan.split(tx, KeyRange.all(), 4);
+      long total = 0;
+      for (KeyRange range : ranges) {
+        try (EntryIterator it = db.iterate(tx, range)) {
+          long count = 0;
+          for (Entry ignored : it.iterable()) {
+            count++;
+          }
+          assertTrue(count > 0);
+          total += count;
+        }
+      }
+      assertThat(total, is(10000L));
+    }
+  }
+
+  @Test
+  public void testScan() {
+    assertScan(new ParallelScan(env, db, 8));
+  }
+
+  @Test
+  public void testScanNoTls() throws IOException {
+    after();
+    open(Constants.NOTLS);
+    assertScan(new ParallelScan(env, db, 8));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTaskFailure() {
+    new ParallelScan(env, db, 2).scan(new ParallelScan.Task<Void>() {
+      @Override
+      public Void scan(Transaction tx, KeyRange range) {
+        throw new IllegalStateException();
+      }
+    });
+  }
+
+  private void assertScan(ParallelScan scan) {
+    final long id = env.info().getLastTxnId();
+    List<Long> sums = scan.scan(KeyRange.atLeast(fromLong(1000)), new ParallelScan.Task<Long>() {
+      @Override
+      public Long scan(Transaction tx, KeyRange range) {
+        assertThat(tx.getId(), is(id));
+        long sum = 0;
+        try (BufferCursor cursor = db.bufferCursor(tx)) {
+          for (boolean found = cursor.first(range); found; found = cursor.next(range)) {
+            sum += cursor.valLong(0);
+          }
+        }
+        return sum;
+      }
+    });
+    assertThat(sums.size(), is(8));
+    long total = 0;
+    for (long sum : sums) {
+      total += sum;
+    }
+    assertThat(total, is((1000L + 9999L) * 9000L / 2));
+  }
+}
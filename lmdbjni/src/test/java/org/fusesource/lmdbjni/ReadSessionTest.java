@@ -0,0 +1,134 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ReadSessionTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env(tmp.newFolder().getCanonicalPath());
+    db = env.openDatabase();
+    for (long i = 0; i < 100; i++) {
+      put(i);
+    }
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testRefreshOnLag() {
+    try (ReadSession session = new ReadSession(env, 0, TimeUnit.SECONDS, 5)) {
+      Cursor cursor = session.openCursor(db);
+      BufferCursor buffer = session.bufferCursor(db);
+      assertThat(session.getLag(), is(0L));
+      assertFalse(session.checkpoint());
+      long id = session.getTransaction().getId();
+      for (long i = 100; i < 106; i++) {
+        put(i);
+      }
+      assertThat(session.getLag(), is(6L));
+      assertNull(db.get(session.getTransaction(), Bytes.fromLong(105)));
+      assertTrue(session.checkpoint());
+      assertThat(session.getRefreshes(), is(1L));
+      assertThat(session.getLag(), is(0L));
+      assertThat(session.getTransaction().getId(), is(id + 6));
+      assertNotNull(db.get(session.getTransaction(), Bytes.fromLong(105)));
+
+      // both cursors see the new snapshot
+      assertNotNull(cursor.seek(SeekOp.KEY, Bytes.fromLong(105)));
+      assertThat(buffer.keyLength(), is(0));
+      assertTrue(buffer.seek(Bytes.fromLong(105)));
+      assertThat(buffer.keyLong(0), is(105L));
+    }
+  }
+
+  @Test
+  public void testScanWithCheckpoints() {
+    int count = 0;
+    try (ReadSession session = new ReadSession(env, 0, TimeUnit.SECONDS, 1)) {
+      BufferCursor cursor = session.bufferCursor(db);
+      boolean found = cursor.first();
+      while (found) {
+        for (int i = 0; found && i < 10; i++) {
+          count++;
+          found = cursor.next();
+        }
+        if (found) {
+          byte[] last = cursor.keyBytes();
+          // writers keep committing behind the scan
+          put(0);
+          put(1);
+          if (session.checkpoint()) {
+            found = cursor.seekRange(last);
+          }
+        }
+      }
+      assertThat(session.getRefreshes(), is(9L));
+    }
+    assertThat(count, is(100));
+  }
+
+  @Test
+  public void testRefreshOnAge() throws InterruptedException {
+    try (ReadSession session = new ReadSession(env, 1, TimeUnit.MILLISECONDS, 0)) {
+      Thread.sleep(5);
+      assertTrue(session.getAge(TimeUnit.MILLISECONDS) >= 1);
+      assertTrue(session.isStale());
+      assertTrue(session.checkpoint());
+      assertThat(session.getRefreshes(), is(1L));
+    }
+  }
+
+  @Test
+  public void testReleasedAndClosedCursors() {
+    try (ReadSession session = new ReadSession(env, 0, TimeUnit.SECONDS, 1)) {
+      Cursor closed = session.openCursor(db);
+      closed.close();
+      BufferCursor released = session.bufferCursor(db);
+      session.release(released);
+      assertFalse(released.getCursor().isAllocated());
+      try {
+        session.release(released);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      BufferCursor open = session.bufferCursor(db);
+      put(100);
+      put(101);
+      // only the open cursor is renewed
+      assertTrue(session.checkpoint());
+      assertTrue(open.seek(Bytes.fromLong(101)));
+      assertThat(open.keyLong(0), is(101L));
+    }
+  }
+
+  private void put(long key) {
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, Bytes.fromLong(key), Bytes.fromLong(key));
+      tx.commit();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ReaderReaperTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env(tmp.newFolder().getCanonicalPath());
+    db = env.openDatabase();
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testReaderList() {
+    assertTrue(env.readerList().isEmpty());
+    try (Transaction tx = env.createReadTransaction()) {
+      put(3);
+      List<ReaderInfo> readers = env.readerList();
+      assertThat(readers.size(), is(1));
+      ReaderInfo reader = readers.get(0);
+      assertTrue(reader.isActive());
+      assertThat(reader.getTxnId(), is(tx.getId()));
+      assertThat(reader.getLag(), is(3L));
+      assertTrue(reader.getPid() > 0);
+      tx.reset();
+      reader = env.readerList().get(0);
+      assertFalse(reader.isActive());
+      assertThat(reader.getLag(), is(0L));
+    }
+  }
+
+  @Test
+  public void testCheck() {
+    final int[] calls = new int[1];
+    ReaderReaper reaper = new ReaderReaper(env, 2, new ReaderReaper.Listener() {
+      @Override
+      public void checked(int staleSlots, List<ReaderInfo> lagging) {
+        calls[0]++;
+      }
+
+      @Override
+      public void failed(RuntimeException e) {
+        fail(e.toString());
+      }
+    });
+    try (Transaction tx = env.createReadTransaction()) {
+      put(2);
+      assertTrue(reaper.check().isEmpty());
+      assertThat(calls[0], is(0));
+      put(1);
+      assertThat(reaper.check().size(), is(1));
+      assertThat(calls[0], is(1));
+    }
+    assertTrue(reaper.check().isEmpty());
+  }
+
+  @Test
+  public void testBackground() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    try (Transaction tx = env.createReadTransaction()) {
+      put(1);
+      try (ReaderReaper reaper = new ReaderReaper(env, 0, new ReaderReaper.Listener() {
+        @Override
+        public void checked(int staleSlots, List<ReaderInfo> lagging) {
+          latch.countDown();
+        }
+
+        @Override
+        public void failed(RuntimeException e) {
+        }
+      }).start(10, TimeUnit.MILLISECONDS)) {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+      }
+    }
+  }
+
+  @Test
+  public void testBackgroundFailure() throws InterruptedException {
+    final CountDownLatch failures = new CountDownLatch(2);
+    final CountDownLatch checks = new CountDownLatch(3);
+    try (Transaction tx = env.createReadTransaction()) {
+      put(1);
+      try (ReaderReaper reaper = new ReaderReaper(env, 0, new ReaderReaper.Listener() {
+        @Override
+        public void checked(int staleSlots, List<ReaderInfo> lagging) {
+          checks.countDown();
+          throw new IllegalStateException();
+        }
+
+        @Override
+        public void failed(RuntimeException e) {
+          assertTrue(e instanceof IllegalStateException);
+          failures.countDown();
+        }
+      }).start(10, TimeUnit.MILLISECONDS)) {
+        assertTrue(failures.await(10, TimeUnit.SECONDS));
+        assertTrue(checks.await(10, TimeUnit.SECONDS));
+      }
+    }
+  }
+
+  private void put(int commits) {
+    for (int i = 0; i < commits; i++) {
+      try (Transaction tx = env.createWriteTransaction()) {
+        db.put(tx, Bytes.fromLong(i), Bytes.fromLong(i));
+        tx.commit();
+      }
+    }
+  }
+}
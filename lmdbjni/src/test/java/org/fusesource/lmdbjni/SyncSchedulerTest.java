@@ -0,0 +1,128 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class SyncSchedulerTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+
+  @Before
+  public void before() throws IOException {
+    env = new Env();
+    env.open(tmp.newFolder().getCanonicalPath(), Constants.NOSYNC);
+    db = env.openDatabase();
+  }
+
+  @After
+  public void after() {
+    db.close();
+    env.close();
+  }
+
+  @Test
+  public void testSyncAfterTransactions() throws Exception {
+    try (SyncScheduler scheduler = new SyncScheduler(env, 0, TimeUnit.SECONDS).syncAfterTransactions(5).start()) {
+      assertSame(scheduler, env.getSyncScheduler());
+      long id = 0;
+      for (int i = 0; i < 4; i++) {
+        id = put(i);
+      }
+      Future<Long> durable = scheduler.whenDurable(id);
+      assertFalse(durable.isDone());
+      id = put(4);
+      assertTrue(durable.get(10, TimeUnit.SECONDS) >= id);
+      assertTrue(scheduler.getLastDurableTxnId() >= id);
+    }
+    assertNull(env.getSyncScheduler());
+  }
+
+  @Test
+  public void testSyncOnInterval() throws Exception {
+    try (SyncScheduler scheduler = new SyncScheduler(env, 10, TimeUnit.MILLISECONDS).start()) {
+      long id = put(1);
+      assertThat(scheduler.whenDurable(id).get(10, TimeUnit.SECONDS) >= id, is(true));
+    }
+  }
+
+  @Test
+  public void testSyncAfterBytes() throws Exception {
+    try (SyncScheduler scheduler = new SyncScheduler(env, 0, TimeUnit.SECONDS).syncAfterBytes(64 * 1024).start()) {
+      long id = 0;
+      try (Transaction tx = env.createWriteTransaction()) {
+        for (int i = 0; i < 100; i++) {
+          db.put(tx, Bytes.fromLong(i), new byte[1024]);
+        }
+        id = tx.getId();
+        tx.commit();
+      }
+      assertTrue(scheduler.whenDurable(id).get(10, TimeUnit.SECONDS) >= id);
+    }
+  }
+
+  @Test
+  public void testSyncAndClose() throws Exception {
+    SyncScheduler scheduler = new SyncScheduler(env, 1, TimeUnit.HOURS).start();
+    long id = put(1);
+    assertTrue(scheduler.sync() >= id);
+    id = put(2);
+    Future<Long> durable = scheduler.whenDurable(id);
+    assertFalse(durable.isDone());
+    scheduler.close();
+    assertTrue(durable.isDone());
+    assertThat(durable.get(), is(id));
+  }
+
+  @Test
+  public void testEmptyCommit() throws Exception {
+    try (SyncScheduler scheduler = new SyncScheduler(env, 1, TimeUnit.HOURS).start()) {
+      long id = put(1);
+      assertTrue(scheduler.sync() >= id);
+      assertTrue(scheduler.whenDurable(id).isDone());
+      try (Transaction tx = env.createWriteTransaction()) {
+        id = tx.getId();
+        tx.commit();
+      }
+      // nothing was written, there is nothing to wait for
+      Future<Long> durable = scheduler.whenDurable(id);
+      assertTrue(durable.isDone());
+      assertThat(durable.get(), is(id - 1));
+      id = put(2);
+      assertFalse(scheduler.whenDurable(id).isDone());
+      assertTrue(scheduler.sync() >= id);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSingleScheduler() {
+    try (SyncScheduler scheduler = new SyncScheduler(env, 1, TimeUnit.SECONDS).start()) {
+      new SyncScheduler(env, 1, TimeUnit.SECONDS).start();
+    }
+  }
+
+  private long put(long key) {
+    try (Transaction tx = env.createWriteTransaction()) {
+      db.put(tx, Bytes.fromLong(key), Bytes.fromLong(key));
+      long id = tx.getId();
+      tx.commit();
+      return id;
+    }
+  }
+}
@@ -100,4 +100,80 @@ public class TransactionTest {
     }
   }
 
+  @Test
+  public void testReadTransactionPool() {
+    db.put(data, data);
+    ReadTransactionPool pool = env.getReadTransactionPool();
+    Transaction tx = pool.borrow();
+    long id = tx.getId();
+    assertArrayEquals(data, db.get(tx, data));
+    pool.release(tx);
+    assertThat(pool.size(), is(1));
+
+    db.put(new byte[]{1}, data);
+    // same handle renewed with a newer snapshot
+    Transaction renewed = pool.borrow();
+    assertSame(tx, renewed);
+    assertThat(renewed.getId(), is(not(id)));
+    assertArrayEquals(data, db.get(renewed, new byte[]{1}));
+    pool.release(renewed);
+    assertThat(pool.size(), is(1));
+  }
+
+  @Test
+  public void testReadTransactionPoolThreadExit() throws Exception {
+    db.put(data, data);
+    final ReadTransactionPool pool = new ReadTransactionPool(env);
+    for (int i = 0; i < 3; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          pool.release(pool.borrow());
+        }
+      };
+      thread.start();
+      thread.join();
+    }
+    // handles of dead threads are aborted when another thread borrows
+    pool.release(pool.borrow());
+    assertThat(pool.size(), is(1));
+    pool.close();
+    assertThat(pool.size(), is(0));
+  }
+
+  @Test
+  public void testReadTransactionPoolNoTls() throws Exception {
+    String path = tmp.newFolder().getCanonicalPath();
+    try (Env env = new Env()) {
+      env.open(path, Constants.NOTLS);
+      try (Database db = env.openDatabase()) {
+        db.put(data, data);
+        final ReadTransactionPool pool = new ReadTransactionPool(env, 2);
+        Transaction tx1 = pool.borrow();
+        Transaction tx2 = pool.borrow();
+        Transaction tx3 = pool.borrow();
+        assertThat(pool.size(), is(2));
+        pool.release(tx1);
+        pool.release(tx2);
+        pool.release(tx3);
+        assertThat(pool.size(), is(2));
+
+        // reuse handles released by another thread
+        final Transaction[] borrowed = new Transaction[1];
+        Thread thread = new Thread() {
+          @Override
+          public void run() {
+            borrowed[0] = pool.borrow();
+          }
+        };
+        thread.start();
+        thread.join();
+        assertTrue(borrowed[0] == tx1 || borrowed[0] == tx2);
+        assertArrayEquals(data, db.get(borrowed[0], data));
+        pool.release(borrowed[0]);
+        pool.close();
+        assertThat(pool.size(), is(0));
+      }
+    }
+  }
 }
@@ -0,0 +1,137 @@
+package org.fusesource.lmdbjni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.fusesource.lmdbjni.Bytes.fromLong;
+import static org.fusesource.lmdbjni.Constants.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class WriteBatchTest {
+  static {
+    Setup.setLmdbLibraryPath();
+  }
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Env env;
+  Database db;
+  Database other;
+
+  @Before
+  public void before() throws IOException {
+    String path = tmp.newFolder().getCanonicalPath();
+    env = new Env();
+    env.setMaxDbs(2);
+    env.open(path);
+    db = env.openDatabase("db");
+    other = env.openDatabase("other", CREATE | DUPSORT);
+  }
+
+  @After
+  public void after() {
+    db.close();
+    other.close();
+    env.close();
+  }
+
+  @Test
+  public void testApply() {
+    db.put(bytes("Denver"), bytes("blue"));
+    other.put(bytes("a"), bytes("1"));
+    other.put(bytes("a"), bytes("2"));
+
+    DirectBuffer key = new DirectBuffer(ByteBuffer.allocateDirect(8));
+    key.putLong(0, 1);
+    DirectBuffer value = new DirectBuffer(ByteBuffer.allocateDirect(3));
+    value.putBytes(0, bytes("abc"));
+
+    WriteBatch batch = new WriteBatch(16);
+    batch.put(db, bytes("Tampa"), bytes("green"))
+      .put(db, bytes("Denver"), bytes("red"), NOOVERWRITE)
+      .delete(db, bytes("London"))
+      .put(db, key, value)
+      .delete(other, bytes("a"), bytes("1"))
+      .put(other, bytes("b"), bytes("1"));
+    assertThat(batch.size(), is(6));
+
+    try (Transaction tx = env.createWriteTransaction()) {
+      assertThat(batch.apply(tx), is(4));
+      tx.commit();
+    }
+    assertThat(batch.resultCode(0), is(0));
+    assertThat(batch.resultCode(1), is(LMDBException.KEYEXIST));
+    assertThat(batch.resultCode(2), is(LMDBException.NOTFOUND));
+    assertThat(batch.resultCode(3), is(0));
+
+    assertArrayEquals(bytes("green"), db.get(bytes("Tampa")));
+    assertArrayEquals(bytes("blue"), db.get(bytes("Denver")));
+    byte[] k = new byte[8];
+    key.getBytes(0, k);
+    assertArrayEquals(bytes("abc"), db.get(k));
+    assertArrayEquals(bytes("2"), other.get(bytes("a")));
+    assertArrayEquals(bytes("1"), other.get(bytes("b")));
+  }
+
+  @Test
+  public void testGrowAndClear() {
+    WriteBatch batch = new WriteBatch(32);
+    for (int i = 0; i < 1000; i++) {
+      batch.put(db, fromLong(i), fromLong(i), APPEND);
+    }
+    assertThat(batch.byteSize(), is(16000L));
+    try (Transaction tx = env.createWriteTransaction()) {
+      assertThat(batch.apply(tx), is(1000));
+      tx.commit();
+    }
+    assertThat(db.stat().ms_entries, is(1000L));
+
+    batch.clear();
+    assertThat(batch.size(), is(0));
+    for (int i = 0; i < 1000; i += 2) {
+      batch.delete(db, fromLong(i));
+    }
+    try (Transaction tx = env.createWriteTransaction()) {
+      assertThat(batch.apply(tx), is(500));
+      tx.commit();
+    }
+    assertThat(db.stat().ms_entries, is(500L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReserveNotSupported() {
+    new WriteBatch().put(db, bytes("a"), bytes("b"), RESERVE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMultipleNotSupported() {
+    DirectBuffer value = new DirectBuffer(ByteBuffer.allocateDirect(8));
+    new WriteBatch().put(other, new DirectBuffer(ByteBuffer.allocateDirect(1)), value, MULTIPLE);
+  }
+
+  @Test
+  public void testBadKeySizeDoesNotStopBatch() {
+    WriteBatch batch = new WriteBatch()
+      .put(db, new byte[0], bytes("empty"))
+      .put(db, new byte[(int) env.getMaxKeySize() + 1], bytes("long"))
+      .delete(db, new byte[0])
+      .put(db, bytes("a"), bytes("1"));
+    try (Transaction tx = env.createWriteTransaction()) {
+      assertThat(batch.apply(tx), is(1));
+      tx.commit();
+    }
+    assertThat(batch.resultCode(0), is(LMDBException.BAD_VALSIZE));
+    assertThat(batch.resultCode(1), is(LMDBException.BAD_VALSIZE));
+    assertThat(batch.resultCode(2), is(LMDBException.BAD_VALSIZE));
+    assertThat(batch.resultCode(3), is(0));
+    assertArrayEquals(bytes("1"), db.get(bytes("a")));
+  }
+}